@@ -2,22 +2,37 @@ package org.quifft;
 
 import org.quifft.audioread.AudioReader;
 import org.quifft.audioread.AudioReaderFactory;
+import org.quifft.audioread.MP3FrameIndex;
+import org.quifft.audioread.MP3Reader;
+import org.quifft.audioread.ParallelMP3Reader;
+import org.quifft.audioread.ReadAheadReader;
+import org.quifft.audioread.TimeRangeReader;
 import org.quifft.fft.FFTComputationWrapper;
+import org.quifft.fft.FFTFrameScheduler;
 import org.quifft.output.*;
+import org.quifft.params.FFTEngineType;
 import org.quifft.params.FFTParameters;
 import org.quifft.params.ParameterValidator;
+import org.quifft.params.Precision;
 import org.quifft.params.WindowFunction;
 import org.quifft.sampling.SampleWindowExtractor;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 
 /**
  * Class used by the client to compute an FFT for an audio file
  */
 public class QuiFFT {
 
+    // number of sampling windows whose samples fullFFT() holds in memory at once
+    private static final int WINDOWS_PER_CHUNK = 128;
+
     // parameters for FFT operation (i.e. window size, normalization, etc)
     private FFTParameters fftParameters = new FFTParameters();
 
@@ -44,9 +59,58 @@ public class QuiFFT {
         this(new File(fileName));
     }
 
+    /**
+     * Constructs a QuiFFT instance with the bytes of a WAV, AIFF or MP3 file held in memory
+     * <p>The type of audio is detected from its first bytes.  Samples are decoded straight from the array, so it
+     * shouldn't be modified while the FFT is computed.</p>
+     * @param audioBytes bytes of audio file for which FFT will be performed
+     * @throws IOException if an I/O exception occurs when the audio reader is initialized
+     * @throws UnsupportedAudioFileException if the bytes aren't WAV, AIFF or MP3 audio
+     */
+    public QuiFFT(byte[] audioBytes) throws IOException, UnsupportedAudioFileException {
+        this(ByteBuffer.wrap(audioBytes));
+    }
+
+    /**
+     * Constructs a QuiFFT instance with the bytes of a WAV, AIFF or MP3 file held in a buffer, from its position to
+     * its limit
+     * <p>The type of audio is detected from its first bytes.  Samples are decoded straight from the buffer, which
+     * can be a direct or memory-mapped buffer, so it shouldn't be modified while the FFT is computed.</p>
+     * @param audioBuffer buffer holding audio file for which FFT will be performed
+     * @throws IOException if an I/O exception occurs when the audio reader is initialized
+     * @throws UnsupportedAudioFileException if the bytes aren't WAV, AIFF or MP3 audio
+     */
+    public QuiFFT(ByteBuffer audioBuffer) throws IOException, UnsupportedAudioFileException {
+        this.audioReader = AudioReaderFactory.audioReaderFor(audioBuffer);
+    }
+
+    /**
+     * Constructs a QuiFFT instance with a stream of a WAV, AIFF or MP3 file, such as the body of a network request
+     * <p>The rest of the stream is read into memory and the type of audio is detected from its first bytes.  The
+     * stream isn't closed.</p>
+     * @param audioStream stream of audio file for which FFT will be performed
+     * @throws IOException if an I/O exception occurs while the stream is read
+     * @throws UnsupportedAudioFileException if the stream isn't WAV, AIFF or MP3 audio
+     */
+    public QuiFFT(InputStream audioStream) throws IOException, UnsupportedAudioFileException {
+        this.audioReader = AudioReaderFactory.audioReaderFor(audioStream);
+    }
+
+    /**
+     * Constructs a QuiFFT instance with a channel of a WAV, AIFF or MP3 file
+     * <p>A file channel is memory-mapped from its position on, and other channels are read into memory.  The type of
+     * audio is detected from its first bytes.  The channel isn't closed.</p>
+     * @param audioChannel channel of audio file for which FFT will be performed
+     * @throws IOException if an I/O exception occurs while the channel is read
+     * @throws UnsupportedAudioFileException if the channel isn't WAV, AIFF or MP3 audio
+     */
+    public QuiFFT(ReadableByteChannel audioChannel) throws IOException, UnsupportedAudioFileException {
+        this.audioReader = AudioReaderFactory.audioReaderFor(audioChannel);
+    }
+
     /**
      * Set window size (number of samples per FFT)
-     * <p>If numPoints parameter is not defined, this must be a power of 2.</p>
+     * <p>Any positive window size can be used, but powers of 2 and products of 2, 3 and 5 are fastest.</p>
      * @param windowSize number of samples from audio file for which each FFT should be performed
      * @return current QuiFFT object with window size parameter set
      */
@@ -102,7 +166,7 @@ public class QuiFFT {
     /**
      * Set number of points for FFT
      * <p>If this is not explicitly defined, the number of points will be equal to the window size.
-     * If defined, must be greater than or equal to window size AND must be a power of 2.
+     * If defined, must be greater than or equal to window size.
      * Each signal window will be zero-padded to reach a length equal to numPoints.</p>
      * @param numPoints the number of points for the N-point FFT
      * @return current QuiFFT object with number of points parameter set
@@ -156,6 +220,282 @@ public class QuiFFT {
         return fftParameters.isNormalized;
     }
 
+    /**
+     * Set algorithm used to compute each FFT
+     * <p>{@link FFTEngineType#CALIBRATED} benchmarks the available engines the first time a transform size is used;
+     * see {@link org.quifft.fft.FFTPlanner} for how to persist the results to a wisdom file.</p>
+     * @param engine FFT engine to be used
+     * @return current QuiFFT object with engine parameter set
+     */
+    public QuiFFT engine(FFTEngineType engine) {
+        fftParameters.engine = engine;
+        return this;
+    }
+
+    /**
+     * Get FFT engine parameter
+     * @return algorithm used to compute each FFT
+     */
+    public FFTEngineType engine() {
+        return fftParameters.engine;
+    }
+
+    /**
+     * Set floating point precision in which each FFT is computed
+     * <p>Single precision is plenty for 16-bit audio and moves half as much memory, but only windows whose total
+     * length is twice a power of 2 have a single precision kernel.</p>
+     * @param precision precision of FFT computation
+     * @return current QuiFFT object with precision parameter set
+     */
+    public QuiFFT precision(Precision precision) {
+        fftParameters.precision = precision;
+        return this;
+    }
+
+    /**
+     * Get precision parameter for FFT
+     * @return floating point precision in which each FFT is computed
+     */
+    public Precision precision() {
+        return fftParameters.precision;
+    }
+
+    /**
+     * Set option for whether the frames of a full FFT should be computed in parallel
+     * <p>Frames are divided into batches which are computed on the common fork-join pool.  This has no effect on an
+     * {@link FFTStream}, which computes one frame at a time.</p>
+     * @param isParallel true if frames should be computed in parallel
+     * @return current QuiFFT object with parallel parameter set
+     */
+    public QuiFFT parallel(boolean isParallel) {
+        fftParameters.isParallel = isParallel;
+        return this;
+    }
+
+    /**
+     * Get parallel parameter for FFT
+     * @return true if frames of a full FFT will be computed in parallel
+     */
+    public boolean parallel() {
+        return fftParameters.isParallel;
+    }
+
+    /**
+     * Set smallest number of points in an FFT for which each transform is split up and computed on multiple threads
+     * <p>Only applies to the default engine and power of 2 FFTs, and only when more than one processor is
+     * available.</p>
+     * @param parallelThreshold smallest number of points for which each transform is computed in parallel
+     * @return current QuiFFT object with parallel threshold parameter set
+     */
+    public QuiFFT parallelThreshold(int parallelThreshold) {
+        fftParameters.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    /**
+     * Get parallel threshold parameter for FFT
+     * @return smallest number of points for which each transform is computed in parallel
+     */
+    public int parallelThreshold() {
+        return fftParameters.parallelThreshold;
+    }
+
+    /**
+     * Set whether an FFTStream should update the spectrum of its previous frame with a sliding DFT instead of
+     * computing a new FFT for every frame
+     * <p>This is much faster when window overlap is close to 1, e.g. 0.99 or more.  Only rectangular, Hanning,
+     * Hamming and Blackman windows can be used.</p>
+     * @param useSlidingDFT true if an FFTStream should use a sliding DFT
+     * @return current QuiFFT object with sliding DFT parameter set
+     */
+    public QuiFFT slidingDFT(boolean useSlidingDFT) {
+        fftParameters.useSlidingDFT = useSlidingDFT;
+        return this;
+    }
+
+    /**
+     * Get sliding DFT parameter for FFT
+     * @return true if an FFTStream uses a sliding DFT
+     */
+    public boolean slidingDFT() {
+        return fftParameters.useSlidingDFT;
+    }
+
+    /**
+     * Set maximum number of samples slid into a sliding DFT before its spectrum is recomputed from scratch
+     * @param anchorInterval maximum number of samples between two recomputations of the spectrum
+     * @return current QuiFFT object with anchor interval parameter set
+     */
+    public QuiFFT anchorInterval(int anchorInterval) {
+        fftParameters.anchorInterval = anchorInterval;
+        return this;
+    }
+
+    /**
+     * Get anchor interval parameter for FFT
+     * @return maximum number of samples between two recomputations of a sliding DFT's spectrum
+     */
+    public int anchorInterval() {
+        return fftParameters.anchorInterval;
+    }
+
+    /**
+     * Set number of blocks of samples that may be decoded ahead of the FFT on a background thread
+     * <p>Decoding then overlaps with computing FFTs, which speeds up MP3s in particular on machines with more than
+     * one processor.  0 decodes samples on the thread computing the FFT.</p>
+     * @param readAheadBlocks maximum number of decoded blocks waiting to be transformed, or 0 for no read-ahead
+     * @return current QuiFFT object with read-ahead parameter set
+     */
+    public QuiFFT readAhead(int readAheadBlocks) {
+        fftParameters.readAheadBlocks = readAheadBlocks;
+        return this;
+    }
+
+    /**
+     * Get read-ahead parameter for FFT
+     * @return maximum number of decoded blocks waiting to be transformed, or 0 if there's no read-ahead
+     */
+    public int readAhead() {
+        return fftParameters.readAheadBlocks;
+    }
+
+    /**
+     * Set number of threads on which MP3 files are decoded
+     * <p>A single decoder thread can take longer than computing the FFTs, particularly when they're computed in
+     * parallel.  With more threads, segments of the MP3 are decoded at the same time and put back together in order,
+     * so the samples are exactly those of decoding on one thread.  This has no effect on WAV and AIFF files.</p>
+     * @param decoderThreads number of threads decoding MP3 segments, or 1 to decode on a single thread
+     * @return current QuiFFT object with decoder threads parameter set
+     */
+    public QuiFFT decoderThreads(int decoderThreads) {
+        fftParameters.decoderThreads = decoderThreads;
+        return this;
+    }
+
+    /**
+     * Get decoder threads parameter for FFT
+     * @return number of threads on which MP3 files are decoded
+     */
+    public int decoderThreads() {
+        return fftParameters.decoderThreads;
+    }
+
+    /**
+     * Set frequencies whose amplitudes should be computed instead of every frequency bin
+     * <p>Each frame will hold one bin per target frequency, computed with a Goertzel filter.  This is much faster than
+     * a full FFT when only a handful of frequencies are needed.</p>
+     * @param targetFrequencies frequencies in Hz, or null to compute every frequency bin
+     * @return current QuiFFT object with target frequencies parameter set
+     */
+    public QuiFFT targetFrequencies(double... targetFrequencies) {
+        fftParameters.targetFrequencies = targetFrequencies;
+        return this;
+    }
+
+    /**
+     * Get target frequencies parameter for FFT
+     * @return frequencies whose amplitudes are computed, or null if every frequency bin is computed
+     */
+    public double[] targetFrequencies() {
+        return fftParameters.targetFrequencies;
+    }
+
+    /**
+     * Set a band of frequencies that should be computed at a given density instead of the whole spectrum
+     * <p>Each frame will hold {@code bins} equally spaced bins from minFrequency to maxFrequency, computed with a
+     * chirp-z transform.  Bins can be much closer together than the frequency resolution; the cost and size of each
+     * frame are proportional to the window size plus the number of bins, instead of the number of points that
+     * zero-padding would need to reach the same spacing.</p>
+     * @param minFrequency frequency of first bin in Hz
+     * @param maxFrequency frequency of last bin in Hz
+     * @param bins number of bins in band
+     * @return current QuiFFT object with zoom band parameters set
+     */
+    public QuiFFT zoom(double minFrequency, double maxFrequency, int bins) {
+        fftParameters.minFrequency = minFrequency;
+        fftParameters.maxFrequency = maxFrequency;
+        fftParameters.zoomBins = bins;
+        return this;
+    }
+
+    /**
+     * Set lowest frequency that should be kept in each frame
+     * <p>Only the bins from the minimum to the maximum frequency are created, so frames of a narrow band take less
+     * memory and post-processing, and radix 2 transforms skip most of the arithmetic of the other bins.</p>
+     * @param minFrequency lowest frequency in Hz
+     * @return current QuiFFT object with minimum frequency parameter set
+     */
+    public QuiFFT minFrequency(double minFrequency) {
+        fftParameters.minFrequency = minFrequency;
+        return this;
+    }
+
+    /**
+     * Get minimum frequency parameter for FFT
+     * @return lowest frequency kept in each frame (or frequency of first bin of zoom band) in Hz, or null if not set
+     */
+    public Double minFrequency() {
+        return fftParameters.minFrequency;
+    }
+
+    /**
+     * Set highest frequency that should be kept in each frame
+     * @param maxFrequency highest frequency in Hz
+     * @return current QuiFFT object with maximum frequency parameter set
+     * @see #minFrequency(double)
+     */
+    public QuiFFT maxFrequency(double maxFrequency) {
+        fftParameters.maxFrequency = maxFrequency;
+        return this;
+    }
+
+    /**
+     * Get maximum frequency parameter for FFT
+     * @return highest frequency kept in each frame (or frequency of last bin of zoom band) in Hz, or null if not set
+     */
+    public Double maxFrequency() {
+        return fftParameters.maxFrequency;
+    }
+
+    /**
+     * Get zoom bins parameter for FFT
+     * @return number of bins in zoom band, or null if the whole spectrum is computed
+     */
+    public Integer zoomBins() {
+        return fftParameters.zoomBins;
+    }
+
+    /**
+     * Set the part of the audio file that should be transformed instead of the whole file
+     * <p>Only the samples of the range are decoded: WAV and AIFF files are read from the byte offset of its start,
+     * and MP3 files are decoded from a few frames before its start using an {@link MP3FrameIndex}.  Frames are
+     * timestamped relative to the start of the file.</p>
+     * @param startMs timestamp in milliseconds at which the range starts
+     * @param endMs timestamp in milliseconds at which the range ends
+     * @return current QuiFFT object with time range parameters set
+     */
+    public QuiFFT range(double startMs, double endMs) {
+        fftParameters.rangeStartMs = startMs;
+        fftParameters.rangeEndMs = endMs;
+        return this;
+    }
+
+    /**
+     * Get start of time range parameter for FFT
+     * @return timestamp in milliseconds at which the transformed range starts, or null if the whole file is transformed
+     */
+    public Double rangeStartMs() {
+        return fftParameters.rangeStartMs;
+    }
+
+    /**
+     * Get end of time range parameter for FFT
+     * @return timestamp in milliseconds at which the transformed range ends, or null if the whole file is transformed
+     */
+    public Double rangeEndMs() {
+        return fftParameters.rangeEndMs;
+    }
+
     /**
      * Performs an FFT for the entirety of the audio file
      * @return an FFT result containing metadata of this FFT and an array of all {@link FFTFrame}s computed
@@ -164,32 +504,11 @@ public class QuiFFT {
     public FFTResult fullFFT() {
         ParameterValidator.validateFFTParameters(fftParameters, false);
 
+        AudioReader reader = sampleReader();
         FFTResult fftResult = new FFTResult();
-        fftResult.setMetadata(audioReader, fftParameters);
-
-        boolean isStereo = audioReader.getAudioFormat().getChannels() == 2;
-        float sampleRate = audioReader.getAudioFormat().getSampleRate();
-        int[] wave = audioReader.getWaveform();
+        fftResult.setMetadata(reader, fftParameters);
 
-        int lengthOfWave = wave.length / (isStereo ? 2 : 1);
-        double frameOverlapMultiplier = 1 / (1 - fftParameters.windowOverlap);
-        int numFrames = (int) Math.ceil(((double) lengthOfWave / fftParameters.windowSize) * frameOverlapMultiplier);
-        FFTFrame[] fftFrames = new FFTFrame[numFrames];
-
-        SampleWindowExtractor windowExtractor = new SampleWindowExtractor(wave, isStereo, fftParameters.windowSize,
-                fftParameters.windowFunction, fftParameters.windowOverlap, fftParameters.zeroPadLength());
-        double currentAudioTimeMs = 0;
-        for(int i = 0; i < fftFrames.length; i++) {
-            // sampleWindow is input to FFT -- may be zero-padded if numPoints > windowSize
-            int[] sampleWindow = windowExtractor.extractWindow(i);
-
-            // compute next current FFT frame
-            fftFrames[i] = FFTComputationWrapper.doFFT(sampleWindow, currentAudioTimeMs, fftResult.windowDurationMs,
-                    fftResult.fileDurationMs, sampleRate, fftParameters);
-
-            // adjust current audio time
-            currentAudioTimeMs += fftResult.windowDurationMs * (1 - fftParameters.windowOverlap);
-        }
+        FFTFrame[] fftFrames = computeFramesInChunks(reader, fftResult);
 
         if(fftParameters.useDecibelScale) {
             FFTComputationWrapper.scaleLogarithmically(fftFrames);
@@ -202,6 +521,93 @@ public class QuiFFT {
         return fftResult;
     }
 
+    /**
+     * Computes every frame of the audio file while decoding its waveform in chunks
+     * <p>Only the samples of {@link #WINDOWS_PER_CHUNK} consecutive sampling windows are held in memory at once, so
+     * memory use is set by the window size rather than by the length of the file.  Frames are computed as soon as all
+     * of their samples have been decoded, after which the samples before the next window are dropped.  The number of
+     * frames is only known once the whole file has been read, and the frames are the same as if the whole waveform
+     * had been decoded before any of them was computed.</p>
+     * @param reader reader from which samples are decoded
+     * @param fftResult result whose metadata has been set
+     * @return all frames of the audio file
+     */
+    private FFTFrame[] computeFramesInChunks(AudioReader reader, FFTResult fftResult) {
+        boolean isStereo = reader.getAudioFormat().getChannels() == 2;
+        float sampleRate = reader.getAudioFormat().getSampleRate();
+        int channels = isStereo ? 2 : 1;
+        int windowSize = fftParameters.windowSize;
+
+        SampleWindowExtractor windowExtractor = new SampleWindowExtractor(new int[0], isStereo, windowSize,
+                fftParameters.windowFunction, fftParameters.windowOverlap, fftParameters.zeroPadLength());
+        int windowSpacing = windowExtractor.getWindowSpacing();
+
+        // buffer holds the samples of consecutive windows, starting at the first sample of the window of nextFrame
+        int[] buffer = new int[(windowSize + (WINDOWS_PER_CHUNK - 1) * windowSpacing) * channels];
+        int bufferLength = 0;
+        int[] discarded = null;
+        long samplesRead = 0;
+
+        FFTFrame[] fftFrames = new FFTFrame[WINDOWS_PER_CHUNK];
+        int nextFrame = 0;
+        int numFrames = 0;
+
+        boolean isEndOfFile = false;
+        while(!isEndOfFile) {
+            int numSamplesRequested = buffer.length - bufferLength;
+            int numSamplesRead;
+            try {
+                if(numSamplesRequested > 0) {
+                    numSamplesRead = reader.readSamples(buffer, bufferLength, numSamplesRequested);
+                    bufferLength += numSamplesRead;
+                } else {
+                    // windows don't advance (their spacing rounds down to 0), so later samples only add to the length
+                    if(discarded == null) discarded = new int[buffer.length];
+                    numSamplesRequested = discarded.length;
+                    numSamplesRead = reader.readSamples(discarded, 0, numSamplesRequested);
+                }
+            } catch(IOException e) {
+                System.err.println("An IOException occurred while reading samples from the audio file " +
+                        "during a fullFFT() call");
+                numSamplesRead = 0;
+            }
+            samplesRead += numSamplesRead;
+
+            // until the end of the file, the buffer is full and holds every sample of WINDOWS_PER_CHUNK windows
+            int readyFrames;
+            isEndOfFile = numSamplesRead < numSamplesRequested;
+            if(isEndOfFile) {
+                // now that we know the length of the entire wave, we can compute how many frames there should be
+                long lengthOfWave = samplesRead / channels;
+                double frameOverlapMultiplier = 1 / (1 - fftParameters.windowOverlap);
+                numFrames = (int) Math.ceil(((double) lengthOfWave / windowSize) * frameOverlapMultiplier);
+                readyFrames = numFrames;
+            } else {
+                readyFrames = windowSpacing == 0 ? nextFrame : nextFrame + WINDOWS_PER_CHUNK;
+            }
+
+            if(readyFrames > nextFrame) {
+                if(readyFrames > fftFrames.length) {
+                    fftFrames = Arrays.copyOf(fftFrames, Math.max(readyFrames, 2 * fftFrames.length));
+                }
+
+                windowExtractor.setSegment(buffer, bufferLength, nextFrame);
+                FFTFrameScheduler.computeFrames(windowExtractor, fftFrames, nextFrame, readyFrames - nextFrame,
+                        fftResult.rangeStartMs, fftResult.windowDurationMs, fftResult.fileDurationMs, sampleRate,
+                        fftParameters);
+
+                // keep only the samples from the window of the next frame on
+                int samplesToDrop = Math.min(bufferLength, (readyFrames - nextFrame) * windowSpacing * channels);
+                System.arraycopy(buffer, samplesToDrop, buffer, 0, bufferLength - samplesToDrop);
+                bufferLength -= samplesToDrop;
+                nextFrame = readyFrames;
+            }
+        }
+
+        // frames computed past the number of frames of the whole wave are dropped
+        return fftFrames.length == numFrames ? fftFrames : Arrays.copyOf(fftFrames, numFrames);
+    }
+
     /**
      * Creates an FFTStream which can be used as an iterator to compute FFT frames one by one
      * @return an FFTStream which can be used as an iterator to compute FFT frames one by one
@@ -211,11 +617,35 @@ public class QuiFFT {
         ParameterValidator.validateFFTParameters(fftParameters, true);
 
         FFTStream fftStream = new FFTStream();
-        fftStream.setMetadata(audioReader, fftParameters);
+        fftStream.setMetadata(sampleReader(), fftParameters);
 
         return fftStream;
     }
 
+    /**
+     * Gets the reader from which samples should be decoded, which decodes MP3 segments on several threads if more
+     * than one decoder thread is set, only reads the time range if one is set and decodes samples on a background
+     * thread if read-ahead is enabled
+     * @return audio reader, replaced by a {@link ParallelMP3Reader} if an MP3 has several decoder threads, wrapped in
+     * a {@link TimeRangeReader} if a time range is set and in a {@link ReadAheadReader} if readAheadBlocks is positive
+     */
+    private AudioReader sampleReader() {
+        AudioReader reader = audioReader;
+        if(fftParameters.decoderThreads > 1 && reader instanceof MP3Reader) {
+            reader = new ParallelMP3Reader((MP3Reader) reader, fftParameters.decoderThreads);
+        }
+        if(fftParameters.rangeStartMs != null) {
+            float sampleRate = reader.getAudioFormat().getSampleRate();
+            reader = new TimeRangeReader(reader, fftParameters.firstSample(sampleRate),
+                    fftParameters.endSample(sampleRate));
+        }
+        if(fftParameters.readAheadBlocks > 0) {
+            reader = new ReadAheadReader(reader, fftParameters.readAheadBlocks);
+        }
+
+        return reader;
+    }
+
     /**
      * Normalizes each bin amplitude by dividing all amplitudes by the max amplitude
      * @param fftFrames array of frames obtained by an FFT operation
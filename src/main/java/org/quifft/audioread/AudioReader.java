@@ -11,7 +11,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -22,7 +22,7 @@ import java.util.NoSuchElementException;
 public abstract class AudioReader implements Iterator<int[]> {
 
     /**
-     * Audio file being read
+     * Audio file being read, or null if audio is read from memory
      */
     File audio;
 
@@ -31,6 +31,11 @@ public abstract class AudioReader implements Iterator<int[]> {
      */
     AudioInputStream inputStream;
 
+    /**
+     * Decoder for samples of input stream
+     */
+    PCMDecoder decoder;
+
     // Keep count of how many frames have been read (how many times FFTStream's next() has been called)
     private int framesReadCount = 0;
 
@@ -43,20 +48,33 @@ public abstract class AudioReader implements Iterator<int[]> {
     // The number of FFT frames that should be extractable; not known until entire input stream has been read
     private int numExpectedFrames;
 
-    // Buffer used to store bytes as they are requested by FFTStream and replace them when they're no longer needed
-    private int[] sampleBuffer;
+    // Circular buffer holding the samples of the current window; each window replaces the oldest samples in place
+    private int[] sampleRing;
+
+    // Index in sampleRing of the first sample of the current window
+    private int ringStart;
+
+    // Reused array into which each window is copied from sampleRing in order
+    private int[] window;
 
     // FFT Parameters only used by FFTStream
     private FFTParameters fftParameters;
 
+    // Reusable array into which bytes are read from the input stream before they're decoded
+    private byte[] byteBuffer = new byte[0];
+
+    // Wrapper around byteBuffer used by decoder
+    private ByteBuffer wrappedByteBuffer = ByteBuffer.wrap(byteBuffer);
+
     /**
-     * Decodes audio reader's input stream to a target format with bit depth of 16
-     * <p>This is used when the input file is an 8-bit WAV or an MP3.</p>
+     * Decodes an input stream of the audio file, none of which has been read yet, to a target format with bit depth
+     * of 16, and uses it as the audio reader's input stream
+     * <p>This is used when the input file is an MP3 or uses an encoding that {@link PCMDecoder} can't decode.</p>
+     * @param in input stream of the audio file
      * @throws IOException if an I/O exception occurs when the input stream is initialized
-     * @throws UnsupportedAudioFileException if the file is not a valid audio file or has bit depth greater than 16
+     * @throws UnsupportedAudioFileException if the file is not a valid audio file or can't be converted to 16-bit PCM
      */
-    void getInputStreamAs8Bit() throws IOException, UnsupportedAudioFileException {
-        AudioInputStream in = AudioSystem.getAudioInputStream(audio);
+    void getInputStreamAs16Bit(AudioInputStream in) throws IOException, UnsupportedAudioFileException {
         AudioFormat baseFormat = in.getFormat();
         AudioFormat decodedFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED,
                 baseFormat.getSampleRate(),
@@ -66,6 +84,7 @@ public abstract class AudioReader implements Iterator<int[]> {
                 baseFormat.getSampleRate(),
                 false);
         this.inputStream = AudioSystem.getAudioInputStream(decodedFormat, in);
+        this.decoder = PCMDecoder.forFormat(decodedFormat);
     }
 
     /**
@@ -74,12 +93,15 @@ public abstract class AudioReader implements Iterator<int[]> {
      */
     public int[] getWaveform() {
         byte[] bytes = getBytes();
-        return convertBytesToSamples(bytes);
+
+        int[] samples = new int[bytes.length / decoder.bytesPerSample()];
+        decoder.decode(ByteBuffer.wrap(bytes), 0, samples, 0, samples.length);
+        return samples;
     }
 
     /**
      * Get the audio file being used by this AudioReader
-     * @return the audio file being used by this AudioReader
+     * @return the audio file being used by this AudioReader, or null if it reads audio held in memory
      */
     public File getFile() {
         return audio;
@@ -120,6 +142,67 @@ public abstract class AudioReader implements Iterator<int[]> {
         }
     }
 
+    /**
+     * Decodes the next samples of the audio file into an array
+     * <p>Samples are 16-bit values, interleaved if the file has several channels.  This lets a waveform be read in
+     * chunks of bounded size; it shouldn't be mixed with {@link #getWaveform()} or {@link #next()} on the same
+     * reader.</p>
+     * @param samples array into which samples are decoded
+     * @param offset index in samples of first decoded sample
+     * @param count number of samples to decode
+     * @return number of samples actually decoded, which is less than count only at the end of the file
+     * @throws IOException if an I/O exception occurs while reading the file
+     */
+    public int readSamples(int[] samples, int offset, int count) throws IOException {
+        int bytesPerSample = decoder.bytesPerSample();
+        int numBytes = count * bytesPerSample;
+        if(byteBuffer.length < numBytes) {
+            byteBuffer = new byte[numBytes];
+            wrappedByteBuffer = ByteBuffer.wrap(byteBuffer);
+        }
+
+        int numSamplesRead = readBytesToFillArray(byteBuffer, numBytes) / bytesPerSample;
+        decoder.decode(wrappedByteBuffer, 0, samples, offset, numSamplesRead);
+        return numSamplesRead;
+    }
+
+    /**
+     * Moves the reader to a given sample, so that the next samples read are those from that sample on
+     * <p>By default, the bytes of the samples before it are skipped in the input stream, which doesn't decode them
+     * when the file's samples are read as they are.  This should be called before any samples are read.</p>
+     * @param samplePosition number of samples per channel before the sample to move to; positions past the end of
+     * the file move to the end of the file
+     * @throws IOException if an I/O exception occurs while skipping samples
+     */
+    public void seek(long samplePosition) throws IOException {
+        long bytesToSkip = samplePosition * inputStream.getFormat().getFrameSize();
+        while(bytesToSkip > 0) {
+            long skipped = inputStream.skip(bytesToSkip);
+            if(skipped <= 0) break;
+            bytesToSkip -= skipped;
+        }
+    }
+
+    /**
+     * Decodes the rest of the audio file with {@link #readSamples(int[], int, int)}
+     * <p>This lets readers that don't read an input stream of their own obtain a waveform.</p>
+     * @return waveform for the rest of the audio file
+     * @throws IOException if an I/O exception occurs while reading the file
+     */
+    int[] readRemainingSamples() throws IOException {
+        int[] samples = new int[16384];
+        int length = 0;
+        int numSamplesRead;
+        while((numSamplesRead = readSamples(samples, length, samples.length - length)) > 0) {
+            length += numSamplesRead;
+            if(length == samples.length) {
+                samples = Arrays.copyOf(samples, 2 * samples.length);
+            }
+        }
+
+        return Arrays.copyOf(samples, length);
+    }
+
     /**
      * Allows {@link FFTStream} to share FFT parameters with AudioReader
      * @param parameters FFT parameters, which provide details needed to extract windows
@@ -139,6 +222,8 @@ public abstract class AudioReader implements Iterator<int[]> {
 
     /**
      * Only used for {@link FFTStream} output type -- returns next window of samples from audio waveform
+     * <p>Only the samples that weren't part of the previous window are read from the audio file.  The returned array
+     * is reused: its contents are replaced by the following window on the next call.</p>
      * @return next window of samples from audio waveform
      * @throws NoSuchElementException if next() is called when hasNext() is false
      */
@@ -149,48 +234,45 @@ public abstract class AudioReader implements Iterator<int[]> {
         boolean isStereo = getAudioFormat().getChannels() == 2;
         int windowSize = fftParameters.windowSize * (isStereo ? 2 : 1);
         double windowOverlap = fftParameters.windowOverlap;
-        byte[] newBytes;
 
         try {
-            int numBytesRead; // number of bytes actually read from input stream
-
-            // if first window taken, simply copy window size worth of samples into buffer array
-            if(sampleBuffer == null) {
-                newBytes = new byte[windowSize * 2]; // 16-bit audio = 2 bytes per sample
-                numBytesRead = readBytesToFillArray(newBytes);
-
-                sampleBuffer = convertBytesToSamples(newBytes);
+            int numSamplesRequested; // number of samples that should be read from audio file
+            int numSamplesRead; // number of samples actually read from audio file
+
+            // if first window taken, simply decode window size worth of samples into ring
+            if(sampleRing == null) {
+                sampleRing = new int[windowSize];
+                window = new int[windowSize];
+                numSamplesRequested = windowSize;
+                numSamplesRead = readSamples(sampleRing, 0, windowSize);
             } else {
-                // if previous samples exist in buffer, copy them into next buffer and append newly read bytes
+                // the oldest samples of the ring, which aren't overlapped by the next window, are replaced in place
+                // by newly read samples (if there are any) and by zeros past the end of the audio file
                 int samplesToKeep = (int) Math.round(windowSize * windowOverlap);
-                int prevSamplesCopyStartIndex = windowSize - samplesToKeep;
-                int numMoreBytesToRead = (windowSize - samplesToKeep) * 2;
+                int samplesToReplace = windowSize - samplesToKeep;
 
-                // copy overlapped samples into new buffer
-                int[] newSampleBuffer = new int[windowSize];
-                System.arraycopy(sampleBuffer, prevSamplesCopyStartIndex, newSampleBuffer, 0, samplesToKeep);
-
-                // read new bytes (if there are any)
                 if(areMoreBytesToRead) {
-                    newBytes = new byte[numMoreBytesToRead];
-                    numBytesRead = readBytesToFillArray(newBytes);
-
-                    int[] newSamples = convertBytesToSamples(newBytes);
-                    System.arraycopy(newSamples, 0, newSampleBuffer, samplesToKeep, newSamples.length);
+                    numSamplesRequested = samplesToReplace;
+                    numSamplesRead = readIntoRing(ringStart, samplesToReplace);
                 } else {
-                    newBytes = new byte[0];
-                    numBytesRead = 0;
+                    numSamplesRequested = 0;
+                    numSamplesRead = 0;
                 }
+                clearRing((ringStart + numSamplesRead) % windowSize, samplesToReplace - numSamplesRead);
 
-                sampleBuffer = newSampleBuffer;
+                ringStart = (ringStart + samplesToReplace) % windowSize;
             }
 
-            // accumulate length of wave as bytes are read
-            waveLength += numBytesRead / 2;
+            // unwrap ring into window, oldest sample first
+            System.arraycopy(sampleRing, ringStart, window, 0, windowSize - ringStart);
+            System.arraycopy(sampleRing, 0, window, windowSize - ringStart, ringStart);
+
+            // accumulate length of wave as samples are read
+            waveLength += numSamplesRead;
 
-            // whenever fewer bytes are read than can fit in newBytes, it means we've reached the end of
-            // the input stream.  at this point, we can compute the number of expected FFT frames
-            if(areMoreBytesToRead && numBytesRead < newBytes.length) {
+            // whenever fewer samples are read than were requested, it means we've reached the end of
+            // the audio file.  at this point, we can compute the number of expected FFT frames
+            if(areMoreBytesToRead && numSamplesRead < numSamplesRequested) {
                 areMoreBytesToRead = false;
 
                 // now that we know the length of the entire wave, we can compute how many frames there should be
@@ -205,46 +287,50 @@ public abstract class AudioReader implements Iterator<int[]> {
         }
 
         framesReadCount++;
-        return sampleBuffer;
+        return window;
     }
 
     /**
-     * Converts a byte array consisting of 16-bit audio into a list of samples half as long
-     * (each sample represented by 2 bytes)
-     * @param bytes byte array to be converted to samples
-     * @return an int[] representing the samples present in the input byte array
+     * Reads samples from the audio file into consecutive positions of the sample ring, wrapping around its end
+     * @param start index in ring of first sample to read
+     * @param count number of samples to read
+     * @return number of samples actually read, which is less than count only at the end of the file
+     * @throws IOException if an I/O exception occurs while reading the file
      */
-    private int[] convertBytesToSamples(byte[] bytes) {
-        final int BYTES_PER_SAMPLE = 2;
-        int[] samples = new int[bytes.length / BYTES_PER_SAMPLE];
-
-        int b = 0;
-        for(int i = 0; i < samples.length; i++) {
-            ByteBuffer bb = ByteBuffer.allocate(2);
-            bb.order(ByteOrder.LITTLE_ENDIAN);
-            for(int j = 0; j < BYTES_PER_SAMPLE; j++) {
-                bb.put(bytes[b++]);
-            }
-
-            samples[i] = bb.getShort(0);
+    private int readIntoRing(int start, int count) throws IOException {
+        int countBeforeEnd = Math.min(count, sampleRing.length - start);
+        int numSamplesRead = readSamples(sampleRing, start, countBeforeEnd);
+        if(numSamplesRead == countBeforeEnd && count > countBeforeEnd) {
+            numSamplesRead += readSamples(sampleRing, 0, count - countBeforeEnd);
         }
+        return numSamplesRead;
+    }
 
-        return samples;
+    /**
+     * Sets consecutive positions of the sample ring to 0, wrapping around its end
+     * @param start index in ring of first position to clear
+     * @param count number of positions to clear
+     */
+    private void clearRing(int start, int count) {
+        int countBeforeEnd = Math.min(count, sampleRing.length - start);
+        Arrays.fill(sampleRing, start, start + countBeforeEnd, 0);
+        Arrays.fill(sampleRing, 0, count - countBeforeEnd, 0);
     }
 
     /**
-     * Reads from the input stream until enough bytes have been read to fill given byte array
+     * Reads from the input stream until enough bytes have been read to fill the start of given byte array
      * This method acts as a wrapper for the inputStream.read() method because it doesn't guarantee that it'll
      * read enough bytes to fill the array.
      * @param b byte array to fill with read bytes
+     * @param length number of bytes to read into start of b
      * @return number of bytes actually read
      */
-    private int readBytesToFillArray(byte[] b) throws IOException {
+    private int readBytesToFillArray(byte[] b, int length) throws IOException {
         int numBytesRead = 0;
         int lastBytesRead = 0;
 
-        while(numBytesRead < b.length && lastBytesRead != -1) {
-            lastBytesRead = inputStream.read(b, numBytesRead, b.length - numBytesRead);
+        while(numBytesRead < length && lastBytesRead != -1) {
+            lastBytesRead = inputStream.read(b, numBytesRead, length - numBytesRead);
 
             if(lastBytesRead != -1) {
                 numBytesRead += lastBytesRead;
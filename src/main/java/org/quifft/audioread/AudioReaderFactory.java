@@ -3,33 +3,220 @@ package org.quifft.audioread;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
- * Factory to produce an appropriate subclass of {@link AudioReader} depending on whether input file is MP3 or WAV/AIFF
+ * Factory to produce an appropriate subclass of {@link AudioReader} depending on whether input audio is MP3 or WAV/AIFF
+ * <p>The type of audio is detected from its first bytes (its "magic number"), so audio can be read from memory and
+ * from streams as well as from files.</p>
  */
 public class AudioReaderFactory {
 
+    // Number of bytes at the start of audio needed to detect its type
+    private static final int MAGIC_LENGTH = 12;
+
+    /**
+     * Type of audio, as detected from its first bytes
+     */
+    private enum AudioType { PCM, MP3, UNKNOWN }
+
     /**
-     * Produces a {@link PCMReader} if given file is WAV or AIFF, {@link MP3Reader} if MP3, throws exception otherwise
+     * Produces a {@link DirectPCMReader} if given file is WAV or AIFF (or a {@link PCMReader} if its encoding isn't
+     * supported by DirectPCMReader), {@link MP3Reader} if MP3, throws exception otherwise
+     * <p>The type of file is detected from its first bytes, and only from its extension if they don't identify it
+     * (such as for MP3 files that start with junk before their first frame).  If a {@link PCMCache} directory is
+     * set, MP3 files are read from their cached samples instead.</p>
      * @param audioFile audio file to read
      * @return the appropriate subclass of {@link AudioReader} based on file type
      * @throws IOException if an I/O exception arises during creation of audio reader
      * @throws UnsupportedAudioFileException if file isn't an MP3, WAV, or AIFF file
      */
     public static AudioReader audioReaderFor(File audioFile) throws IOException, UnsupportedAudioFileException {
-        String fileExtension = getFileExtension(audioFile);
-
-        switch (fileExtension) {
-            case ".wav":
-            case ".aiff":
-                return new PCMReader(audioFile);
-            case ".mp3":
-                return new MP3Reader(audioFile);
+        AudioType type = AudioType.UNKNOWN;
+        if(audioFile.isFile()) {
+            try(FileChannel channel = FileChannel.open(audioFile.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer magic = ByteBuffer.allocate(MAGIC_LENGTH);
+                int numBytesRead = 0;
+                while(magic.hasRemaining() && numBytesRead != -1) {
+                    numBytesRead = channel.read(magic);
+                }
+                type = detectType(magic, 0, magic.position());
+            }
+        }
+
+        if(type == AudioType.UNKNOWN) {
+            String fileExtension = getFileExtension(audioFile);
+            switch(fileExtension) {
+                case ".wav":
+                case ".aiff":
+                    type = AudioType.PCM;
+                    break;
+                case ".mp3":
+                    type = AudioType.MP3;
+                    break;
+                default:
+                    String msg = String.format("Cannot read file type %s; " +
+                            "please provide a .wav, .aiff, or .mp3 file instead.", fileExtension);
+                    throw new UnsupportedAudioFileException(msg);
+            }
+        }
+
+        if(type == AudioType.MP3) {
+            AudioReader cachedReader = PCMCache.readerFor(audioFile);
+            return cachedReader != null ? cachedReader : new MP3Reader(audioFile);
+        }
+        try {
+            return new DirectPCMReader(audioFile);
+        } catch(UnsupportedAudioFileException e) {
+            // let AudioSystem handle encodings that DirectPCMReader can't decode
+            return new PCMReader(audioFile);
+        }
+    }
+
+    /**
+     * Produces a reader for WAV, AIFF or MP3 bytes held in memory, without copying them
+     * <p>The buffer's bytes from its position to its limit are read; the buffer mustn't be modified while they are,
+     * but its position and limit aren't changed.</p>
+     * @param data bytes of a WAV, AIFF or MP3 file
+     * @return the appropriate subclass of {@link AudioReader} based on the type of audio
+     * @throws IOException if an I/O exception arises during creation of audio reader
+     * @throws UnsupportedAudioFileException if the bytes aren't MP3, WAV, or AIFF audio
+     */
+    public static AudioReader audioReaderFor(ByteBuffer data) throws IOException, UnsupportedAudioFileException {
+        switch(detectType(data, data.position(), data.remaining())) {
+            case PCM:
+                try {
+                    return new DirectPCMReader(data);
+                } catch(UnsupportedAudioFileException e) {
+                    // let AudioSystem handle encodings that DirectPCMReader can't decode
+                    return new PCMReader(data);
+                }
+            case MP3:
+                return new MP3Reader(data);
             default:
-                String msg = String.format("Cannot read file type %s; " +
-                        "please provide a .wav, .aiff, or .mp3 file instead.", fileExtension);
-                throw new UnsupportedAudioFileException(msg);
+                throw new UnsupportedAudioFileException("Cannot detect type of audio; " +
+                        "please provide WAV, AIFF, or MP3 audio instead.");
+        }
+    }
+
+    /**
+     * Produces a reader for WAV, AIFF or MP3 audio read from an input stream
+     * <p>The rest of the stream is read into memory, since headers and frame indexes need random access to the
+     * audio; the stream isn't closed.</p>
+     * @param in stream of a WAV, AIFF or MP3 file
+     * @return the appropriate subclass of {@link AudioReader} based on the type of audio
+     * @throws IOException if an I/O exception occurs while the stream is read
+     * @throws UnsupportedAudioFileException if the stream isn't MP3, WAV, or AIFF audio
+     */
+    public static AudioReader audioReaderFor(InputStream in) throws IOException, UnsupportedAudioFileException {
+        byte[] bytes = new byte[Math.max(16384, in.available())];
+        int length = 0;
+        int numBytesRead;
+        while((numBytesRead = in.read(bytes, length, bytes.length - length)) != -1) {
+            length += numBytesRead;
+            if(length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, grow(length));
+            }
+        }
+
+        return audioReaderFor(ByteBuffer.wrap(bytes, 0, length));
+    }
+
+    /**
+     * Produces a reader for WAV, AIFF or MP3 audio read from a channel
+     * <p>The rest of a {@link FileChannel} is memory-mapped rather than read; other channels are read into memory,
+     * since headers and frame indexes need random access to the audio.  The channel isn't closed.</p>
+     * @param channel channel of a WAV, AIFF or MP3 file
+     * @return the appropriate subclass of {@link AudioReader} based on the type of audio
+     * @throws IOException if an I/O exception occurs while the channel is read or mapped
+     * @throws UnsupportedAudioFileException if the channel isn't MP3, WAV, or AIFF audio
+     */
+    public static AudioReader audioReaderFor(ReadableByteChannel channel)
+            throws IOException, UnsupportedAudioFileException {
+        if(channel instanceof FileChannel) {
+            FileChannel fileChannel = (FileChannel) channel;
+            long position = fileChannel.position();
+            long size = fileChannel.size() - position;
+            if(size > Integer.MAX_VALUE) {
+                throw new IOException("Channels larger than 2 GB can't be mapped into memory; read a file instead");
+            }
+            return audioReaderFor(fileChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(0, size)));
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(16384);
+        while(channel.read(data) != -1) {
+            if(!data.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(grow(data.capacity()));
+                // casts so that Java 8, whose ByteBuffer doesn't override flip(), can run this
+                ((Buffer) data).flip();
+                data = grown.put(data);
+            }
+        }
+        ((Buffer) data).flip();
+        return audioReaderFor(data);
+    }
+
+    /**
+     * Detects the type of audio from its first bytes
+     * @param data buffer holding audio
+     * @param start index in data of first byte of audio
+     * @param length number of bytes of audio in data from start on
+     * @return type of audio, or {@link AudioType#UNKNOWN} if the bytes don't identify it
+     */
+    private static AudioType detectType(ByteBuffer data, int start, int length) {
+        if(length >= MAGIC_LENGTH) {
+            String fileId = ascii(data, start);
+            String formType = ascii(data, start + 8);
+            if(fileId.equals("RIFF") && formType.equals("WAVE")) {
+                return AudioType.PCM;
+            }
+            if(fileId.equals("FORM") && (formType.equals("AIFF") || formType.equals("AIFC"))) {
+                return AudioType.PCM;
+            }
+        }
+
+        if(length >= 3 && data.get(start) == 'I' && data.get(start + 1) == 'D' && data.get(start + 2) == '3') {
+            return AudioType.MP3;
+        }
+
+        // MPEG audio frame header: 11 sync bits, then a version that isn't reserved and a layer that isn't reserved
+        if(length >= 2) {
+            int b0 = data.get(start) & 0xff;
+            int b1 = data.get(start + 1) & 0xff;
+            if(b0 == 0xff && (b1 & 0xe0) == 0xe0 && (b1 >>> 3 & 3) != 1 && (b1 >>> 1 & 3) != 0) {
+                return AudioType.MP3;
+            }
+        }
+
+        return AudioType.UNKNOWN;
+    }
+
+    private static String ascii(ByteBuffer data, int index) {
+        char[] id = new char[4];
+        for(int i = 0; i < 4; i++) {
+            id[i] = (char) (data.get(index + i) & 0xff);
+        }
+        return new String(id);
+    }
+
+    /**
+     * Computes the capacity of an array or buffer that's full, which doubles until it reaches the largest array size
+     * @param capacity current capacity
+     * @return new capacity
+     * @throws IOException if the capacity can't grow any further
+     */
+    private static int grow(int capacity) throws IOException {
+        int maxCapacity = Integer.MAX_VALUE - 8;
+        if(capacity >= maxCapacity) {
+            throw new IOException("Audio larger than 2 GB can't be read into memory; read a file instead");
         }
+        return (int) Math.min(2L * capacity, maxCapacity);
     }
 
     /**
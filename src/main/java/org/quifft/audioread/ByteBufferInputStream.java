@@ -0,0 +1,79 @@
+package org.quifft.audioread;
+
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream over the bytes of a buffer, from its position to its limit
+ * <p>Bytes are read from a duplicate of the buffer, so the buffer itself is never modified and can be shared by
+ * several streams.  Marks are supported, as {@link javax.sound.sampled.AudioSystem} requires to detect the format
+ * of a stream.</p>
+ */
+class ByteBufferInputStream extends InputStream {
+
+    // duplicate of buffer being read
+    private final ByteBuffer data;
+
+    // index in data of next byte to read
+    private int position;
+
+    // index in data one past the last byte to read
+    private final int limit;
+
+    // index in data to which reset() returns
+    private int mark;
+
+    ByteBufferInputStream(ByteBuffer data) {
+        this.data = data.duplicate();
+        this.position = data.position();
+        this.limit = data.limit();
+        this.mark = position;
+    }
+
+    @Override
+    public int read() {
+        return position < limit ? data.get(position++) & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if(len == 0) return 0;
+        if(position == limit) return -1;
+
+        int n = Math.min(len, limit - position);
+        // cast so that Java 8, whose ByteBuffer doesn't override position(int), can run this
+        ((Buffer) data).position(position);
+        data.get(b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, limit - position));
+        position += (int) skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = mark;
+    }
+
+}
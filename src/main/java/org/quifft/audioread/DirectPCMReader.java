@@ -0,0 +1,470 @@
+package org.quifft.audioread;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Audio reader that parses WAV and AIFF headers itself and decodes samples straight from a memory-mapped data chunk
+ * <p>{@link PCMReader} goes through {@link javax.sound.sampled.AudioSystem}, which copies every byte of the file
+ * through intermediate arrays before it's decoded.  This reader instead maps the data chunk of the file into memory
+ * with {@link FileChannel#map}, so the operating system pages the file in as samples are decoded and no copy of the
+ * file is ever held on the heap.  Data chunks too large for a single mapping are mapped as several regions, so
+ * files of several gigabytes can be streamed.  Audio that's already in memory can be read from a {@link ByteBuffer}
+ * the same way, without writing it to a file first.</p>
+ * <p>Supports every sample format that {@link PCMDecoder} decodes (8, 16, 24 and 32-bit integer and 32-bit float
+ * PCM) in WAV (RIFF) files and in AIFF and uncompressed AIFF-C files.</p>
+ */
+public class DirectPCMReader extends AudioReader {
+
+    // largest number of bytes mapped by a single region
+    private static final long MAX_REGION_SIZE = 1L << 30;
+
+    // number of bytes in the whole file or buffer, including its header
+    private final long sourceLength;
+
+    // format of samples in the file
+    private final AudioFormat format;
+
+    // number of bytes used by each sample in the file
+    private final int bytesPerSample;
+
+    // number of bytes used by each sample frame (one sample per channel) in the file
+    private final int frameSize;
+
+    // number of bytes of sample data in the data chunk, a multiple of the frame size
+    private final long dataLength;
+
+    // number of bytes mapped by each region but the last, a multiple of the frame size
+    private final long regionSize;
+
+    // mapped regions of the data chunk, in order
+    private final ByteBuffer[] regions;
+
+    // offset within the data chunk of the next sample to be decoded
+    private long position;
+
+    /**
+     * The construction of a DirectPCMReader parses the header of the .wav or .aiff file and maps its data chunk into
+     * memory
+     * @param audio .wav or .aiff file to be read
+     * @throws IOException if an I/O exception occurs while the file is read or mapped
+     * @throws UnsupportedAudioFileException if the file isn't a valid WAV or AIFF file or its samples can't be decoded
+     * by {@link PCMDecoder}
+     */
+    public DirectPCMReader(File audio) throws IOException, UnsupportedAudioFileException {
+        this(audio, new FileSource(FileChannel.open(audio.toPath(), StandardOpenOption.READ)));
+    }
+
+    /**
+     * The construction of a DirectPCMReader parses the header of WAV or AIFF bytes held in memory
+     * <p>The samples are decoded straight from the buffer, which mustn't be modified while it's read.</p>
+     * @param data bytes of a WAV or AIFF file, from the buffer's position to its limit
+     * @throws IOException never, since nothing is read from a file
+     * @throws UnsupportedAudioFileException if the bytes aren't a valid WAV or AIFF file or its samples can't be
+     * decoded by {@link PCMDecoder}
+     */
+    public DirectPCMReader(ByteBuffer data) throws IOException, UnsupportedAudioFileException {
+        this(null, new BufferSource(data));
+    }
+
+    private DirectPCMReader(File audio, ByteSource bytes) throws IOException, UnsupportedAudioFileException {
+        this.audio = audio;
+
+        try(ByteSource source = bytes) {
+            sourceLength = source.size();
+            Header header = Header.parse(source);
+
+            format = header.format();
+            decoder = PCMDecoder.forFormat(format);
+            bytesPerSample = decoder.bytesPerSample();
+
+            frameSize = format.getFrameSize();
+            dataLength = header.dataLength - header.dataLength % frameSize;
+
+            regionSize = MAX_REGION_SIZE - MAX_REGION_SIZE % frameSize;
+            regions = new ByteBuffer[(int) ((dataLength + regionSize - 1) / regionSize)];
+            for(int r = 0; r < regions.length; r++) {
+                long start = r * regionSize;
+                long size = Math.min(regionSize, dataLength - start);
+                regions[r] = source.map(header.dataOffset + start, size);
+            }
+        }
+    }
+
+    /**
+     * Obtains waveform for the rest of the audio file, decoded directly from the mapped data chunk
+     * @return waveform for the rest of the audio file (all of it unless {@link #next()} has been called)
+     * @throws IllegalStateException if the rest of the file has too many samples to be held in a single array
+     */
+    @Override
+    public int[] getWaveform() {
+        long remaining = (dataLength - position) / bytesPerSample;
+        if(remaining > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException(String.format("%s has %d samples, which is too many to hold in a " +
+                    "single array; use an FFTStream instead.", audio != null ? audio.getName() : "Audio", remaining));
+        }
+
+        int[] samples = new int[(int) remaining];
+        readSamples(samples, 0, samples.length);
+        return samples;
+    }
+
+    @Override
+    public int readSamples(int[] samples, int offset, int count) {
+        int numSamples = (int) Math.min(count, (dataLength - position) / bytesPerSample);
+
+        int decoded = 0;
+        while(decoded < numSamples) {
+            ByteBuffer region = regions[(int) (position / regionSize)];
+            int start = (int) (position % regionSize);
+            int n = Math.min(numSamples - decoded, (region.limit() - start) / bytesPerSample);
+
+            decoder.decode(region, start, samples, offset + decoded, n);
+
+            decoded += n;
+            position += (long) n * bytesPerSample;
+        }
+
+        return numSamples;
+    }
+
+    /**
+     * Moves the reader to a given sample by computing its offset in the data chunk, so nothing is read or decoded
+     * @param samplePosition number of samples per channel before the sample to move to
+     */
+    @Override
+    public void seek(long samplePosition) {
+        position = Math.min(dataLength, Math.max(0, samplePosition) * frameSize);
+    }
+
+    @Override
+    public long getFileDurationMs() {
+        // computed from the length of the whole file, like PCMReader does, so both readers report the same duration
+        float frameRate = format.getFrameRate();
+        return (long) Math.ceil((sourceLength / (frameSize * frameRate)) * 1000);
+    }
+
+    @Override
+    public AudioFormat getAudioFormat() {
+        return format;
+    }
+
+    /**
+     * Fields of a WAV or AIFF header needed to decode its samples
+     */
+    private static class Header {
+
+        int channels;
+        float sampleRate;
+        int bitsPerSample;
+        AudioFormat.Encoding encoding;
+        ByteOrder order;
+
+        // position in file and length in bytes of sample data
+        long dataOffset;
+        long dataLength;
+
+        /**
+         * Parses the header of a WAV or AIFF file
+         * @param source bytes of file to parse
+         * @return fields of header
+         * @throws IOException if an I/O exception occurs while the file is read
+         * @throws UnsupportedAudioFileException if the file isn't a valid WAV or AIFF file with supported samples
+         */
+        static Header parse(ByteSource source) throws IOException, UnsupportedAudioFileException {
+            ByteBuffer start = read(source, 0, 12, ByteOrder.BIG_ENDIAN);
+            String fileId = chunkId(start, 0);
+            String formType = chunkId(start, 8);
+
+            Header header;
+            if(fileId.equals("RIFF") && formType.equals("WAVE")) {
+                header = parseWave(source);
+            } else if(fileId.equals("FORM") && (formType.equals("AIFF") || formType.equals("AIFC"))) {
+                header = parseAiff(source, formType.equals("AIFC"));
+            } else {
+                throw new UnsupportedAudioFileException("File is neither a WAV nor an AIFF file");
+            }
+
+            if(header.channels < 1 || header.sampleRate <= 0 || !(header.sampleRate < Float.POSITIVE_INFINITY)) {
+                throw new UnsupportedAudioFileException("Invalid source count or sample rate");
+            }
+            return header;
+        }
+
+        /**
+         * Describes the samples of the file
+         * @return format of samples, whose sample size is that of the bytes holding each sample
+         */
+        AudioFormat format() {
+            // samples whose bit depth isn't a multiple of 8 are stored left-justified in whole bytes
+            int sampleSize = (bitsPerSample + 7) / 8 * 8;
+            return new AudioFormat(encoding, sampleRate, sampleSize, channels, sampleSize / 8 * channels, sampleRate,
+                    order == ByteOrder.BIG_ENDIAN);
+        }
+
+        private static Header parseWave(ByteSource source) throws IOException, UnsupportedAudioFileException {
+            Header header = new Header();
+            header.order = ByteOrder.LITTLE_ENDIAN;
+
+            boolean foundFormat = false;
+            long position = 12;
+            while(position + 8 <= source.size()) {
+                ByteBuffer chunk = read(source, position, 8, ByteOrder.LITTLE_ENDIAN);
+                String id = chunkId(chunk, 0);
+                long size = chunk.getInt(4) & 0xffffffffL;
+
+                if(id.equals("fmt ")) {
+                    ByteBuffer fmt = read(source, position + 8, 16, ByteOrder.LITTLE_ENDIAN);
+                    int formatTag = fmt.getShort(0) & 0xffff;
+
+                    // extensible format stores the real format tag at the start of its sub-format GUID
+                    if(formatTag == 0xFFFE && size >= 26) {
+                        formatTag = read(source, position + 8 + 24, 2, ByteOrder.LITTLE_ENDIAN).getShort(0) & 0xffff;
+                    }
+                    header.channels = fmt.getShort(2) & 0xffff;
+                    header.sampleRate = fmt.getInt(4) & 0xffffffffL;
+                    header.bitsPerSample = fmt.getShort(14) & 0xffff;
+
+                    // integer samples are unsigned if they fit in a byte, and signed otherwise
+                    if(formatTag == 1) {
+                        header.encoding = header.bitsPerSample <= 8 ?
+                                AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED;
+                    } else if(formatTag == 3) {
+                        header.encoding = AudioFormat.Encoding.PCM_FLOAT;
+                    } else {
+                        throw new UnsupportedAudioFileException(
+                                String.format("Unsupported WAV format tag %d", formatTag));
+                    }
+                    foundFormat = true;
+                } else if(id.equals("data")) {
+                    if(!foundFormat) throw new UnsupportedAudioFileException("WAV data chunk precedes fmt chunk");
+
+                    header.dataOffset = position + 8;
+                    header.dataLength = Math.min(size, source.size() - header.dataOffset);
+                    return header;
+                }
+
+                // chunks are padded to an even length
+                position += 8 + size + (size & 1);
+            }
+
+            throw new UnsupportedAudioFileException("WAV file has no data chunk");
+        }
+
+        private static Header parseAiff(ByteSource source, boolean isAifc)
+                throws IOException, UnsupportedAudioFileException {
+            Header header = new Header();
+            header.order = ByteOrder.BIG_ENDIAN;
+            header.encoding = AudioFormat.Encoding.PCM_SIGNED;
+
+            long frameCount = -1;
+            long ssndOffset = -1;
+            long ssndSize = 0;
+
+            long position = 12;
+            while(position + 8 <= source.size()) {
+                ByteBuffer chunk = read(source, position, 8, ByteOrder.BIG_ENDIAN);
+                String id = chunkId(chunk, 0);
+                long size = chunk.getInt(4) & 0xffffffffL;
+
+                if(id.equals("COMM")) {
+                    ByteBuffer comm = read(source, position + 8, isAifc ? 22 : 18, ByteOrder.BIG_ENDIAN);
+                    header.channels = comm.getShort(0) & 0xffff;
+                    frameCount = comm.getInt(2) & 0xffffffffL;
+                    header.bitsPerSample = comm.getShort(6) & 0xffff;
+                    header.sampleRate = (float) extendedToDouble(comm, 8);
+
+                    if(isAifc) {
+                        String compression = chunkId(comm, 18);
+                        if(compression.equals("sowt")) {
+                            header.order = ByteOrder.LITTLE_ENDIAN;
+                        } else if(compression.equals("fl32") || compression.equals("FL32")) {
+                            header.encoding = AudioFormat.Encoding.PCM_FLOAT;
+                        } else if(!compression.equals("NONE") && !compression.equals("twos")) {
+                            throw new UnsupportedAudioFileException(
+                                    String.format("Unsupported AIFF-C compression type %s", compression));
+                        }
+                    }
+                } else if(id.equals("SSND")) {
+                    // sample data starts after a data offset and block size, and is skipped by data offset bytes
+                    ByteBuffer ssnd = read(source, position + 8, 8, ByteOrder.BIG_ENDIAN);
+                    long dataOffset = ssnd.getInt(0) & 0xffffffffL;
+                    ssndOffset = position + 16 + dataOffset;
+                    ssndSize = Math.max(0, size - 8 - dataOffset);
+                }
+
+                // chunks are padded to an even length
+                position += 8 + size + (size & 1);
+            }
+
+            if(frameCount < 0) throw new UnsupportedAudioFileException("AIFF file has no COMM chunk");
+            if(ssndOffset < 0) throw new UnsupportedAudioFileException("AIFF file has no SSND chunk");
+
+            header.dataOffset = ssndOffset;
+            header.dataLength = Math.max(0, Math.min(Math.min(ssndSize, source.size() - ssndOffset),
+                    frameCount * header.format().getFrameSize()));
+            return header;
+        }
+
+        /**
+         * Reads bytes from a file into a new buffer
+         * @param source bytes of file to read from
+         * @param position position in file of first byte
+         * @param length number of bytes to read
+         * @param order byte order of returned buffer
+         * @return buffer holding bytes read
+         * @throws IOException if an I/O exception occurs while the file is read
+         * @throws UnsupportedAudioFileException if the file ends before all bytes are read
+         */
+        private static ByteBuffer read(ByteSource source, long position, int length, ByteOrder order)
+                throws IOException, UnsupportedAudioFileException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(order);
+            while(buffer.hasRemaining()) {
+                if(source.read(buffer, position + buffer.position()) < 0) {
+                    throw new UnsupportedAudioFileException("Audio file header is truncated");
+                }
+            }
+            return buffer;
+        }
+
+        private static String chunkId(ByteBuffer buffer, int index) {
+            byte[] id = new byte[4];
+            for(int i = 0; i < 4; i++) {
+                id[i] = buffer.get(index + i);
+            }
+            return new String(id, StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Converts an 80-bit IEEE 754 extended precision number (how AIFF stores sample rates) into a double
+         * @param buffer big-endian buffer holding number
+         * @param index index in buffer of number
+         * @return value of number
+         */
+        private static double extendedToDouble(ByteBuffer buffer, int index) {
+            int signAndExponent = buffer.getShort(index) & 0xffff;
+            long mantissa = buffer.getLong(index + 2);
+
+            int exponent = signAndExponent & 0x7fff;
+            if(exponent == 0 && mantissa == 0) return 0;
+
+            // the mantissa has an explicit integer bit, so its value is mantissa * 2^(exponent - 16383 - 63)
+            double value = (mantissa >>> 11) * Math.pow(2, exponent - 16383 - 52);
+            return (signAndExponent & 0x8000) != 0 ? -value : value;
+        }
+
+    }
+
+    /**
+     * Random access to the bytes of the file or buffer being read
+     */
+    private interface ByteSource extends Closeable {
+
+        long size() throws IOException;
+
+        /**
+         * Reads bytes into the remaining space of a buffer
+         * @param dst buffer into which bytes are read
+         * @param position position in file of first byte
+         * @return number of bytes read, or -1 if position is at the end of the file
+         * @throws IOException if an I/O exception occurs while the file is read
+         */
+        int read(ByteBuffer dst, long position) throws IOException;
+
+        /**
+         * Gets a region of the file as a buffer, without copying it onto the heap
+         * @param position position in file of first byte of region
+         * @param size number of bytes in region
+         * @return buffer holding region
+         * @throws IOException if an I/O exception occurs while the region is mapped
+         */
+        ByteBuffer map(long position, long size) throws IOException;
+
+    }
+
+    /**
+     * Bytes of a file, whose regions are memory-mapped
+     */
+    private static class FileSource implements ByteSource {
+
+        private final FileChannel channel;
+
+        FileSource(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public ByteBuffer map(long position, long size) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    /**
+     * Bytes held by a buffer, whose regions are slices of the buffer
+     */
+    private static class BufferSource implements ByteSource {
+
+        // bytes of file, with the file's first byte at index 0
+        private final ByteBuffer data;
+
+        BufferSource(ByteBuffer data) {
+            this.data = data.slice();
+        }
+
+        @Override
+        public long size() {
+            return data.limit();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            if(position >= data.limit()) return -1;
+
+            int n = (int) Math.min(dst.remaining(), data.limit() - position);
+            for(int i = 0; i < n; i++) {
+                dst.put(data.get((int) position + i));
+            }
+            return n;
+        }
+
+        @Override
+        public ByteBuffer map(long position, long size) {
+            // casts so that Java 8, whose ByteBuffer doesn't override position(int) and limit(int), can run this
+            ByteBuffer region = data.duplicate();
+            ((Buffer) region).limit((int) (position + size));
+            ((Buffer) region).position((int) position);
+            return region.slice();
+        }
+
+        @Override
+        public void close() {
+        }
+
+    }
+
+}
@@ -0,0 +1,371 @@
+package org.quifft.audioread;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Index of the frames of an MP3 file, giving the byte offset and sample position of every frame
+ * <p>An MPEG audio stream is a sequence of frames that each decode to a fixed number of samples, so an index of frame
+ * headers is enough to find the frame holding any sample without decoding anything.  The index is built by a single
+ * scan of the frame headers (skipping an ID3v2 tag and any bytes between frames that aren't a valid header), which
+ * is much faster than decoding the file.  Frames are accepted by the same rules as JLayer's, which MP3SPI decodes
+ * with, so that the sample positions of the index are those of the decoded waveform.</p>
+ * <p>A Layer III frame can't be decoded on its own: its audio data may start in the previous frames (the bit
+ * reservoir), and the decoder's filter banks overlap each frame with the previous one.
+ * {@link #warmUpFrame(int)} gives the frame from which decoding must start so that a given frame is decoded
+ * exactly as it would be by decoding the file from its start.</p>
+ * <p>Indexes are kept in a bounded cache, so a file is only scanned again once it's been modified.</p>
+ */
+public class MP3FrameIndex {
+
+    // maximum number of indexes kept in cache; least recently used indexes are evicted first
+    private static final int MAX_CACHED_INDEXES = 16;
+
+    // bitrates in kbps by [MPEG-1 ? 0 : 1][layer - 1][bitrate index]
+    private static final int[][][] BITRATES = {
+            {
+                    { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+                    { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+                    { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 }
+            },
+            {
+                    { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+                    { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 },
+                    { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 }
+            }
+    };
+
+    // header bits (sync word, version, layer and sample rate) that every frame of a stream shares
+    private static final int FIXED_HEADER_BITS = 0xfffe0c00;
+
+    // MPEG-1 sample rates in Hz by sample rate index; halved for MPEG-2 and quartered for MPEG-2.5
+    private static final int[] SAMPLE_RATES = { 44100, 48000, 32000 };
+
+    // indexes cached by canonical file path, in access order
+    private static final Map<String, MP3FrameIndex> indexCache = new LinkedHashMap<String, MP3FrameIndex>(16, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MP3FrameIndex> eldest) {
+            return size() > MAX_CACHED_INDEXES;
+        }
+    };
+
+    // length of indexed file in bytes and its last modification time, used to detect changes to the file
+    private final long fileLength;
+    private final long lastModified;
+
+    // byte offset in file of each frame
+    private final long[] frameOffsets;
+
+    // number of bytes of audio data (excluding header and side information) in each frame
+    private final int[] mainDataLengths;
+
+    // number of frames in index
+    private final int frameCount;
+
+    // number of samples per channel decoded from each frame
+    private final int samplesPerFrame;
+
+    // sample rate of audio in Hz
+    private final int sampleRate;
+
+    // number of channels of audio
+    private final int channels;
+
+    // largest number of bytes by which audio data of a frame can start before the frame (bit reservoir)
+    private final int maxReservoirLength;
+
+    private MP3FrameIndex(long fileLength, long lastModified, long[] frameOffsets, int[] mainDataLengths,
+                          int frameCount, int samplesPerFrame, int sampleRate, int channels, int maxReservoirLength) {
+        this.fileLength = fileLength;
+        this.lastModified = lastModified;
+        this.frameOffsets = frameOffsets;
+        this.mainDataLengths = mainDataLengths;
+        this.frameCount = frameCount;
+        this.samplesPerFrame = samplesPerFrame;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.maxReservoirLength = maxReservoirLength;
+    }
+
+    /**
+     * Gets the index of an MP3 file, scanning the file if its index isn't already cached
+     * @param audio .mp3 file
+     * @return index of frames of audio file
+     * @throws IOException if an I/O exception occurs while the file is scanned, or it has no valid MPEG audio frames
+     */
+    public static MP3FrameIndex forFile(File audio) throws IOException {
+        String key = audio.getCanonicalPath();
+        synchronized(indexCache) {
+            MP3FrameIndex index = indexCache.get(key);
+            if(index != null && index.fileLength == audio.length() && index.lastModified == audio.lastModified()) {
+                return index;
+            }
+        }
+
+        // scan outside of lock so that other files can be indexed meanwhile
+        MP3FrameIndex index = scan(audio);
+        synchronized(indexCache) {
+            indexCache.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Scans the frame headers of an MP3 file
+     * @param audio .mp3 file
+     * @return index of frames of audio file
+     * @throws IOException if an I/O exception occurs while the file is scanned, or it has no valid MPEG audio frames
+     */
+    private static MP3FrameIndex scan(File audio) throws IOException {
+        long lastModified = audio.lastModified();
+        try(FileChannel channel = FileChannel.open(audio.toPath(), StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("MP3 files larger than 2 GB can't be indexed");
+            }
+            return scan(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), lastModified);
+        }
+    }
+
+    /**
+     * Scans the frame headers of an MP3 stream
+     * @param data bytes of stream, from its start
+     * @param lastModified last modification time of the file holding the stream
+     * @return index of frames of stream
+     * @throws IOException if the stream has no valid MPEG audio frames
+     */
+    static MP3FrameIndex scan(ByteBuffer data, long lastModified) throws IOException {
+        data.order(ByteOrder.BIG_ENDIAN);
+        int length = data.limit();
+        long[] frameOffsets = new long[1024];
+        int[] mainDataLengths = new int[1024];
+        int frameCount = 0;
+
+        // fixed header bits and channel count of first frame, which every other frame must share (as JLayer requires
+        // once it's synced)
+        int fixedHeaderBits = -1;
+        int samplesPerFrame = 0;
+        int sampleRate = 0;
+        int channels = 0;
+        int maxReservoirLength = 0;
+
+        int position = id3v2Length(data);
+        while(position + 4 <= length) {
+            int header = data.getInt(position);
+            int frameLength = frameLength(header);
+            if(frameLength <= 0 || !isSyncMark(header, fixedHeaderBits, channels)) {
+                // not a valid header, so keep looking for the next frame one byte further
+                position++;
+                continue;
+            }
+
+            // like JLayer, only accept a frame that's followed by another header or ends the stream exactly;
+            // otherwise the header is taken to be a false sync and the search resumes after it
+            int next = position + frameLength;
+            if(next != length
+                    && (next + 4 > length || !isSyncMark(data.getInt(next), fixedHeaderBits, channels))) {
+                position += 4;
+                continue;
+            }
+
+            boolean isMono = (header >>> 6 & 3) == 3;
+
+            int version = header >>> 19 & 3;
+            int layer = 4 - (header >>> 17 & 3);
+            if(fixedHeaderBits == -1) {
+                fixedHeaderBits = header & FIXED_HEADER_BITS;
+                samplesPerFrame = layer == 1 ? 384 : layer == 2 || version == 3 ? 1152 : 576;
+                sampleRate = sampleRate(header);
+                channels = isMono ? 1 : 2;
+                maxReservoirLength = layer != 3 ? 0 : version == 3 ? 511 : 255;
+            }
+
+            if(frameCount == frameOffsets.length) {
+                frameOffsets = Arrays.copyOf(frameOffsets, 2 * frameCount);
+                mainDataLengths = Arrays.copyOf(mainDataLengths, 2 * frameCount);
+            }
+            frameOffsets[frameCount] = position;
+            if(layer == 3) {
+                int sideInfoLength = version == 3 ? (isMono ? 17 : 32) : (isMono ? 9 : 17);
+                int crcLength = (header >>> 16 & 1) == 0 ? 2 : 0;
+                mainDataLengths[frameCount] = Math.max(0, frameLength - 4 - crcLength - sideInfoLength);
+            }
+            frameCount++;
+
+            position += frameLength;
+        }
+
+        if(frameCount == 0) {
+            throw new IOException("No MPEG audio frames were found");
+        }
+
+        return new MP3FrameIndex(length, lastModified, frameOffsets, mainDataLengths, frameCount, samplesPerFrame,
+                sampleRate, channels, maxReservoirLength);
+    }
+
+    /**
+     * Gets the number of bytes taken up by an ID3v2 tag at the start of a stream
+     * @param data bytes of stream, from its start
+     * @return length of ID3v2 tag in bytes, or 0 if the stream doesn't start with one
+     */
+    private static int id3v2Length(ByteBuffer data) {
+        if(data.limit() < 10 || data.get(0) != 'I' || data.get(1) != 'D' || data.get(2) != '3') {
+            return 0;
+        }
+
+        // tag size is a 28-bit integer stored in the low 7 bits of 4 bytes, excluding the header and footer
+        int size = (data.get(6) & 0x7f) << 21 | (data.get(7) & 0x7f) << 14 | (data.get(8) & 0x7f) << 7
+                | (data.get(9) & 0x7f);
+        boolean hasFooter = (data.get(5) & 0x10) != 0;
+        return 10 + size + (hasFooter ? 10 : 0);
+    }
+
+    /**
+     * Checks whether 4 bytes are a header that JLayer would take to be the start of a frame of the stream
+     * @param header 4 bytes, big-endian
+     * @param fixedHeaderBits fixed header bits of the first frame of the stream, or -1 if no frame has been found yet
+     * @param channels number of channels of the first frame of the stream
+     * @return true if header has a sync word and valid version, layer and sample rate, and (after the first frame)
+     * shares the fixed header bits and the number of channels of the first frame
+     */
+    private static boolean isSyncMark(int header, int fixedHeaderBits, int channels) {
+        if((header & 0xffe00000) != 0xffe00000 || (header >>> 19 & 3) == 1 || (header >>> 17 & 3) == 0
+                || (header >>> 10 & 3) == 3) {
+            return false;
+        }
+
+        return fixedHeaderBits == -1
+                || ((header & FIXED_HEADER_BITS) == fixedHeaderBits && ((header >>> 6 & 3) == 3) == (channels == 1));
+    }
+
+    /**
+     * Gets the length of the frame starting with a given header
+     * @param header first 4 bytes of frame, big-endian
+     * @return length of frame in bytes, or 0 if header isn't a valid MPEG audio header (free format bitrates aren't
+     * supported)
+     */
+    private static int frameLength(int header) {
+        int version = header >>> 19 & 3;
+        int layer = 4 - (header >>> 17 & 3);
+        int bitrateIndex = header >>> 12 & 15;
+        if(!isSyncMark(header, -1, 0) || bitrateIndex == 0 || bitrateIndex == 15) {
+            return 0;
+        }
+
+        int bitrate = BITRATES[version == 3 ? 0 : 1][layer - 1][bitrateIndex] * 1000;
+        int sampleRate = sampleRate(header);
+        int padding = header >>> 9 & 1;
+        if(layer == 1) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        return (layer == 3 && version != 3 ? 72 : 144) * bitrate / sampleRate + padding;
+    }
+
+    /**
+     * Gets the sample rate of the frame starting with a given header
+     * @param header first 4 bytes of a valid frame, big-endian
+     * @return sample rate in Hz
+     */
+    private static int sampleRate(int header) {
+        int version = header >>> 19 & 3;
+        return SAMPLE_RATES[header >>> 10 & 3] >> (version == 3 ? 0 : version == 2 ? 1 : 2);
+    }
+
+    /**
+     * Get number of frames in file
+     * @return number of frames in file
+     */
+    public int frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Get number of samples per channel decoded from each frame
+     * @return number of samples per channel in each frame
+     */
+    public int samplesPerFrame() {
+        return samplesPerFrame;
+    }
+
+    /**
+     * Get sample rate of audio
+     * @return sample rate in Hz
+     */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Get number of channels of audio
+     * @return number of channels
+     */
+    public int channels() {
+        return channels;
+    }
+
+    /**
+     * Get total number of samples per channel decoded from the file
+     * @return number of samples per channel in file
+     */
+    public long sampleCount() {
+        return (long) frameCount * samplesPerFrame;
+    }
+
+    /**
+     * Get byte offset of a frame in the file
+     * @param frame index of frame
+     * @return offset of first byte of frame's header
+     */
+    public long frameOffset(int frame) {
+        return frameOffsets[frame];
+    }
+
+    /**
+     * Get position of the first sample decoded from a frame
+     * @param frame index of frame
+     * @return number of samples per channel decoded from the file before frame
+     */
+    public long samplePosition(int frame) {
+        return (long) frame * samplesPerFrame;
+    }
+
+    /**
+     * Get frame from which a given sample is decoded
+     * @param samplePosition number of samples per channel before sample
+     * @return index of frame holding sample, or the number of frames if sample is past the end of the file
+     */
+    public int frameAt(long samplePosition) {
+        return (int) Math.min(frameCount, Math.max(0, samplePosition) / samplesPerFrame);
+    }
+
+    /**
+     * Get frame from which decoding must start for a given frame to be decoded exactly
+     * <p>The previous frame is decoded to fill the decoder's filter banks, and the frames before it to fill the bit
+     * reservoir from which the previous frame's audio data may be taken.  The output of these warm-up frames should be
+     * discarded.</p>
+     * @param frame index of frame that should be decoded exactly
+     * @return index of first frame to decode
+     */
+    public int warmUpFrame(int frame) {
+        if(frame <= 1) {
+            return 0;
+        }
+
+        // frames before the previous one must hold at least a full reservoir of audio data
+        int first = frame - 1;
+        int reservoirLength = 0;
+        while(first > 0 && reservoirLength < maxReservoirLength) {
+            first--;
+            reservoirLength += mainDataLengths[first];
+        }
+        return first;
+    }
+
+}
@@ -1,8 +1,21 @@
 package org.quifft.audioread;
 
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
 import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 
 /**
@@ -11,9 +24,15 @@ import java.util.Map;
  */
 public class MP3Reader extends AudioReader {
 
-    // Format of MP3 file, used to compute duration
+    // Format of MP3 file, used to compute duration; null if the MP3 is read from a buffer
     private AudioFileFormat audioFileFormat;
 
+    // Bytes of MP3 held in memory, starting at index 0; null if the MP3 is read from a file
+    private ByteBuffer data;
+
+    // Index of frames of MP3 held in memory; null if the MP3 is read from a file, whose index is cached instead
+    private MP3FrameIndex dataIndex;
+
     /**
      * The construction of an MP3Reader opens an {@link AudioInputStream} for the .mp3 file.
      * @param audio .mp3 file to be read
@@ -23,18 +42,221 @@ public class MP3Reader extends AudioReader {
     public MP3Reader(File audio) throws IOException, UnsupportedAudioFileException {
         this.audio = audio;
         audioFileFormat = AudioSystem.getAudioFileFormat(audio);
-        getInputStream();
+        getInputStreamAs16Bit(AudioSystem.getAudioInputStream(audio));
+    }
+
+    /**
+     * The construction of an MP3Reader from MP3 bytes held in memory indexes their frames and opens an
+     * {@link AudioInputStream} that decodes them
+     * <p>Frames are decoded with JLayer directly, into the same samples that MP3SPI decodes them into when they're
+     * read from a file.  The buffer mustn't be modified while it's read.</p>
+     * @param data bytes of an MP3 file, from the buffer's position to its limit
+     * @throws UnsupportedAudioFileException if the bytes hold no valid MPEG audio frames
+     */
+    public MP3Reader(ByteBuffer data) throws UnsupportedAudioFileException {
+        this.data = data.slice();
+        try {
+            dataIndex = MP3FrameIndex.scan(this.data.duplicate(), 0);
+        } catch(IOException e) {
+            throw new UnsupportedAudioFileException(e.getMessage());
+        }
+
+        int channels = dataIndex.channels();
+        float sampleRate = dataIndex.sampleRate();
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels,
+                channels * 2, sampleRate, false);
+        InputStream frames = new DecodedFrameStream(new ByteBufferInputStream(this.data), 0, 0, Integer.MAX_VALUE);
+        inputStream = new AudioInputStream(frames, format, AudioSystem.NOT_SPECIFIED);
+        decoder = PCMDecoder.forFormat(format);
     }
 
     @Override
     public long getFileDurationMs() {
+        if(audioFileFormat == null) {
+            return (long) (dataIndex.sampleCount() * 1000.0 / dataIndex.sampleRate());
+        }
+
+        return fileDurationMs(audioFileFormat);
+    }
+
+    /**
+     * Gets the duration of an MP3 file as MP3SPI reports it
+     * @param audioFileFormat format of MP3 file
+     * @return duration of file in milliseconds
+     */
+    static long fileDurationMs(AudioFileFormat audioFileFormat) {
         Map<?, ?> properties = audioFileFormat.properties();
         Long microseconds = (Long) properties.get("duration");
         return (long) ((double) microseconds / 1000.0);
     }
 
-    private void getInputStream() throws IOException, UnsupportedAudioFileException {
-        getInputStreamAs8Bit();
+    /**
+     * Moves the reader to a given sample, so that the next samples read are those from that sample on
+     * <p>Rather than decoding the file up to the sample, the frame holding it is found in the file's
+     * {@link MP3FrameIndex} and decoding starts a few frames before it, so that the decoder's bit reservoir and filter
+     * banks are warmed up.  The samples that are read are then exactly those that would be read by decoding the file
+     * from its start.  This should be called before any window is read with {@link #next()}.</p>
+     * @param samplePosition number of samples per channel before the sample to move to; positions past the end of
+     * the file move to the end of the file
+     * @throws IOException if an I/O exception occurs while the file is indexed or reopened
+     */
+    @Override
+    public void seek(long samplePosition) throws IOException {
+        MP3FrameIndex index = frameIndex();
+        int frame = index.frameAt(samplePosition);
+        int firstFrame = index.warmUpFrame(frame);
+        long samplesToSkip = Math.max(0, Math.min(samplePosition, index.sampleCount()) - index.samplePosition(frame))
+                * index.channels();
+
+        long offset = firstFrame < index.frameCount() ? index.frameOffset(firstFrame) : Long.MAX_VALUE;
+        InputStream frames = new DecodedFrameStream(openAt(offset), frame - firstFrame, (int) samplesToSkip,
+                Integer.MAX_VALUE);
+
+        AudioFormat format = getAudioFormat();
+        inputStream.close();
+        inputStream = new AudioInputStream(frames, format, AudioSystem.NOT_SPECIFIED);
+    }
+
+    /**
+     * Gets the index of the frames of the MP3
+     * @return index of frames
+     * @throws IOException if an I/O exception occurs while the file is indexed
+     */
+    MP3FrameIndex frameIndex() throws IOException {
+        return data != null ? dataIndex : MP3FrameIndex.forFile(audio);
+    }
+
+    /**
+     * Opens a stream of the bytes of the MP3 from a given offset on
+     * @param offset offset of first byte of stream; offsets past the end of the MP3 give an empty stream
+     * @return stream of bytes
+     * @throws IOException if an I/O exception occurs while the file is opened
+     */
+    InputStream openAt(long offset) throws IOException {
+        if(data != null) {
+            // cast so that Java 8, whose ByteBuffer doesn't override position(int), can run this
+            ByteBuffer bytes = data.duplicate();
+            ((Buffer) bytes).position((int) Math.min(offset, data.limit()));
+            return new ByteBufferInputStream(bytes);
+        }
+
+        FileChannel channel = FileChannel.open(audio.toPath(), StandardOpenOption.READ);
+        channel.position(Math.min(offset, channel.size()));
+        return Channels.newInputStream(channel);
+    }
+
+    /**
+     * Stream of the 16-bit little-endian samples decoded by JLayer from consecutive MP3 frames, which is what MP3SPI
+     * decodes the frames into as well
+     */
+    static class DecodedFrameStream extends InputStream {
+
+        // frames read from the file
+        private final Bitstream bitstream;
+
+        // decoder of frames
+        private final Decoder frameDecoder = new Decoder();
+
+        // number of frames whose samples should still be discarded
+        private int framesToSkip;
+
+        // number of samples of the first frame that isn't skipped which should be discarded
+        private int samplesToSkip;
+
+        // number of frames after the skipped ones that should still be decoded
+        private int framesToDecode;
+
+        // samples of the current frame as bytes
+        private byte[] frameBytes = new byte[0];
+
+        // index in frameBytes of next byte to read and number of bytes held by frameBytes
+        private int position;
+        private int length;
+
+        /**
+         * Opens a stream of decoded samples
+         * @param in stream of MP3 bytes, starting at a frame
+         * @param framesToSkip number of frames decoded only to warm up the decoder, whose samples are discarded
+         * @param samplesToSkip number of samples discarded from the first frame after those
+         * @param framesToDecode number of frames after the skipped ones whose samples are read, after which the
+         *                       stream ends
+         */
+        DecodedFrameStream(InputStream in, int framesToSkip, int samplesToSkip, int framesToDecode) {
+            this.bitstream = new Bitstream(in);
+            this.framesToSkip = framesToSkip;
+            this.samplesToSkip = samplesToSkip;
+            this.framesToDecode = framesToDecode;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0) return 0;
+
+            while(position == length) {
+                if(!decodeNextFrame()) return -1;
+            }
+
+            int n = Math.min(len, length - position);
+            System.arraycopy(frameBytes, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * Decodes the next frame that isn't skipped into frameBytes
+         * @return false if there are no more frames
+         * @throws IOException if the frame can't be read or decoded
+         */
+        private boolean decodeNextFrame() throws IOException {
+            try {
+                while(framesToDecode > 0) {
+                    Header header = bitstream.readFrame();
+                    if(header == null) return false;
+
+                    SampleBuffer output = (SampleBuffer) frameDecoder.decodeFrame(header, bitstream);
+                    bitstream.closeFrame();
+                    if(framesToSkip > 0) {
+                        framesToSkip--;
+                        continue;
+                    }
+
+                    framesToDecode--;
+                    short[] samples = output.getBuffer();
+                    int count = Math.max(0, output.getBufferLength() - samplesToSkip);
+                    if(frameBytes.length < 2 * count) {
+                        frameBytes = new byte[2 * count];
+                    }
+                    for(int i = 0; i < count; i++) {
+                        short sample = samples[samplesToSkip + i];
+                        frameBytes[2 * i] = (byte) sample;
+                        frameBytes[2 * i + 1] = (byte) (sample >> 8);
+                    }
+                    samplesToSkip = 0;
+                    position = 0;
+                    length = 2 * count;
+                    return true;
+                }
+                return false;
+            } catch(JavaLayerException e) {
+                throw new IOException("Could not decode MP3 frame", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                bitstream.close();
+            } catch(BitstreamException e) {
+                throw new IOException(e);
+            }
+        }
+
     }
 
 }
@@ -0,0 +1,314 @@
+package org.quifft.audioread;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Opt-in on-disk cache of the PCM samples decoded from MP3 files
+ * <p>Decoding an MP3 takes much longer than reading a WAV file, which is wasted when the same file is analyzed again
+ * with different parameters.  Once a cache directory is set, the first reader created for an MP3 file decodes it
+ * into a 16-bit WAV file in the cache, and every later reader maps that WAV file with {@link DirectPCMReader}
+ * instead of decoding the MP3 again.  The samples read are exactly those {@link MP3Reader} would decode.</p>
+ * <p>Entries are keyed by the path, size and modification time of the MP3 file and a hash of its contents, so an
+ * entry is never used for a file that has changed.  Once the entries take up more than the cache's maximum size, the
+ * least recently used ones are deleted.  The cache directory can be set with {@link #setDirectory(File)} or with the
+ * {@code quifft.pcmcache} system property, and its maximum size in bytes with {@link #setMaxSize(long)} or the
+ * {@code quifft.pcmcache.size} system property.</p>
+ */
+public class PCMCache {
+
+    // system property that can be used to set the cache directory
+    private static final String DIRECTORY_PROPERTY = "quifft.pcmcache";
+
+    // system property that can be used to set the maximum size of the cache in bytes
+    private static final String MAX_SIZE_PROPERTY = "quifft.pcmcache.size";
+
+    /**
+     * Default maximum number of bytes taken up by the entries of the cache
+     */
+    public static final long DEFAULT_MAX_SIZE = 1L << 30;
+
+    // extension of cache entries, which are WAV files
+    private static final String ENTRY_EXTENSION = ".wav";
+
+    // number of bytes in the header of a cache entry before its samples
+    private static final int HEADER_LENGTH = 44;
+
+    // directory holding cache entries, or null if decoded samples aren't cached
+    private static File directory;
+
+    // maximum number of bytes taken up by cache entries
+    private static long maxSize = DEFAULT_MAX_SIZE;
+
+    static {
+        String maxSizeValue = System.getProperty(MAX_SIZE_PROPERTY);
+        if(maxSizeValue != null) {
+            try {
+                setMaxSize(Long.parseLong(maxSizeValue));
+            } catch(IllegalArgumentException e) {
+                System.err.println("Ignoring invalid PCM cache size " + maxSizeValue);
+            }
+        }
+
+        String directoryName = System.getProperty(DIRECTORY_PROPERTY);
+        if(directoryName != null) {
+            setDirectory(new File(directoryName));
+        }
+    }
+
+    /**
+     * Sets directory in which decoded samples are cached, which is created if it doesn't exist
+     * @param cacheDirectory cache directory, or null to stop caching decoded samples
+     */
+    public static synchronized void setDirectory(File cacheDirectory) {
+        directory = cacheDirectory;
+    }
+
+    /**
+     * Gets directory in which decoded samples are cached
+     * @return cache directory, or null if decoded samples aren't cached
+     */
+    public static synchronized File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sets maximum number of bytes taken up by the entries of the cache
+     * <p>Files whose decoded samples alone would take up more than this aren't cached.</p>
+     * @param bytes maximum size of cache in bytes
+     * @throws IllegalArgumentException if bytes isn't positive
+     */
+    public static synchronized void setMaxSize(long bytes) {
+        if(bytes <= 0) {
+            throw new IllegalArgumentException("PCM cache size must be positive; was " + bytes);
+        }
+        maxSize = bytes;
+    }
+
+    /**
+     * Gets maximum number of bytes taken up by the entries of the cache
+     * @return maximum size of cache in bytes
+     */
+    public static synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Creates a reader of the cached samples of an MP3 file, decoding the file into the cache first if it isn't
+     * cached yet
+     * <p>Errors while the cache is used are printed rather than thrown, so that the file can still be read by an
+     * {@link MP3Reader}.</p>
+     * @param audio .mp3 file
+     * @return reader of cached samples, or null if the cache is disabled or the file can't be cached
+     */
+    static AudioReader readerFor(File audio) {
+        File cacheDirectory;
+        long cacheSize;
+        synchronized(PCMCache.class) {
+            cacheDirectory = directory;
+            cacheSize = maxSize;
+        }
+        if(cacheDirectory == null) return null;
+
+        try {
+            File entry = new File(cacheDirectory, key(audio) + ENTRY_EXTENSION);
+            if(entry.isFile()) {
+                // modification time of an entry is the time it was last used, by which entries are evicted
+                entry.setLastModified(System.currentTimeMillis());
+                long fileDurationMs = MP3Reader.fileDurationMs(AudioSystem.getAudioFileFormat(audio));
+                return new CachedPCMReader(entry, audio, fileDurationMs);
+            }
+
+            // decoded samples are 16-bit, so the index tells how large the entry will be before anything is decoded
+            MP3FrameIndex index = MP3FrameIndex.forFile(audio);
+            long entryLength = HEADER_LENGTH + 2 * index.sampleCount() * index.channels();
+            if(entryLength > cacheSize || entryLength > 0xffffffffL) return null;
+
+            Files.createDirectories(cacheDirectory.toPath());
+            long fileDurationMs = write(audio, entry);
+            evict(cacheDirectory, cacheSize, entry);
+            return new CachedPCMReader(entry, audio, fileDurationMs);
+        } catch(IOException | UnsupportedAudioFileException e) {
+            System.err.println("Could not cache decoded samples of " + audio + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Computes the name of the cache entry of a file from its path, size, modification time and contents
+     * @param audio file to be cached
+     * @return hex digest identifying the file as it is now
+     * @throws IOException if an I/O exception occurs while the file is read
+     */
+    private static String key(File audio) throws IOException {
+        MessageDigest fileDigest = sha256();
+        MessageDigest contentDigest = sha256();
+
+        try(FileChannel channel = FileChannel.open(audio.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for(long position = 0; position < size; position += Integer.MAX_VALUE) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(Integer.MAX_VALUE, size - position));
+                contentDigest.update(region);
+            }
+
+            fileDigest.update(audio.getCanonicalPath().getBytes(StandardCharsets.UTF_8));
+            ByteBuffer attributes = ByteBuffer.allocate(16);
+            attributes.putLong(size).putLong(audio.lastModified());
+            fileDigest.update(attributes.array());
+            fileDigest.update(contentDigest.digest());
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for(byte b : fileDigest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes an MP3 file into a new cache entry
+     * <p>Samples are written to a temporary file that's renamed once it's complete, so a reader never sees an entry
+     * that's still being written, even if another process caches the same file at the same time.</p>
+     * @param audio .mp3 file
+     * @param entry cache entry to create
+     * @return duration of MP3 file in milliseconds
+     * @throws IOException if an I/O exception occurs while the file is decoded or the entry is written
+     * @throws UnsupportedAudioFileException if the file isn't a valid MP3 file
+     */
+    private static long write(File audio, File entry) throws IOException, UnsupportedAudioFileException {
+        MP3Reader reader = new MP3Reader(audio);
+        AudioFormat format = reader.getAudioFormat();
+        File temp = File.createTempFile(entry.getName(), ".tmp", entry.getParentFile());
+
+        try(InputStream in = reader.inputStream;
+            FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            byte[] bytes = new byte[65536];
+            long dataLength = 0;
+            int numBytesRead;
+            out.position(HEADER_LENGTH);
+            while((numBytesRead = in.read(bytes)) != -1) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, numBytesRead);
+                while(buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                dataLength += numBytesRead;
+            }
+
+            // header is written last, once the length of the samples is known
+            ByteBuffer header = wavHeader(format, dataLength);
+            while(header.hasRemaining()) {
+                out.write(header, header.position());
+            }
+        } catch(IOException e) {
+            Files.deleteIfExists(temp.toPath());
+            throw e;
+        }
+
+        try {
+            Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return reader.getFileDurationMs();
+    }
+
+    /**
+     * Builds the header of a WAV file of 16-bit PCM samples
+     * @param format format of samples
+     * @param dataLength number of bytes of samples
+     * @return buffer holding header
+     */
+    private static ByteBuffer wavHeader(AudioFormat format, long dataLength) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        int channels = format.getChannels();
+        int sampleRate = (int) format.getSampleRate();
+
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt((int) (HEADER_LENGTH - 8 + dataLength));
+        header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16);
+        header.putShort((short) 1).putShort((short) channels).putInt(sampleRate).putInt(sampleRate * channels * 2);
+        header.putShort((short) (channels * 2)).putShort((short) 16);
+        header.put("data".getBytes(StandardCharsets.US_ASCII)).putInt((int) dataLength);
+
+        // cast so that Java 8, whose ByteBuffer doesn't override flip(), can run this
+        ((Buffer) header).flip();
+        return header;
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache is no larger than its maximum size
+     * @param cacheDirectory cache directory
+     * @param cacheSize maximum size of cache in bytes
+     * @param entry entry that was just created, which is never deleted
+     */
+    private static synchronized void evict(File cacheDirectory, long cacheSize, File entry) {
+        File[] entries = cacheDirectory.listFiles((dir, name) -> name.endsWith(ENTRY_EXTENSION));
+        if(entries == null) return;
+
+        long totalSize = 0;
+        for(File e : entries) {
+            totalSize += e.length();
+        }
+
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for(File e : entries) {
+            if(totalSize <= cacheSize) break;
+            if(e.equals(entry)) continue;
+
+            long length = e.length();
+            if(e.delete()) {
+                totalSize -= length;
+            }
+        }
+    }
+
+    /**
+     * Reader of the cached samples of an MP3 file, which otherwise describes the MP3 file
+     */
+    private static class CachedPCMReader extends DirectPCMReader {
+
+        // duration of MP3 file as MP3Reader reports it
+        private final long fileDurationMs;
+
+        CachedPCMReader(File entry, File audio, long fileDurationMs) throws IOException, UnsupportedAudioFileException {
+            super(entry);
+            this.audio = audio;
+            this.fileDurationMs = fileDurationMs;
+        }
+
+        @Override
+        public long getFileDurationMs() {
+            return fileDurationMs;
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.quifft.audioread;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes blocks of PCM samples from bytes into the 16-bit {@code int} samples that make up QuiFFT's waveforms
+ * <p>Signed and unsigned integer samples of 8, 16, 24 and 32 bits and 32-bit float samples are decoded directly in
+ * either byte order, so no {@link javax.sound.sampled.AudioSystem} conversion is needed to read them.  Each block is
+ * decoded by a tight loop of absolute reads from a {@link ByteBuffer} (a wrapped array or a memory-mapped file)
+ * straight into a caller-provided array, and nothing is allocated while decoding.</p>
+ * <p>Integer samples wider than 16 bits keep their 16 most significant bits.  8-bit and float samples are scaled the
+ * way AudioSystem scales them to 16 bits (by 32767 if positive and by 32768 otherwise), so waveforms are the same as
+ * those QuiFFT got from AudioSystem before.</p>
+ */
+public class PCMDecoder {
+
+    // 16-bit value of each signed 8-bit sample (indexed by sample + 128)
+    private static final int[] EIGHT_BIT_SAMPLES = new int[256];
+    static {
+        for(int v = -128; v < 128; v++) {
+            EIGHT_BIT_SAMPLES[v + 128] = v > 0 ? (int) (v / 127.0f * 32767) : v * 256;
+        }
+    }
+
+    // number of bytes used by each sample
+    private final int bytesPerSample;
+
+    // whether samples are signed integers (as opposed to unsigned integers, when not floats)
+    private final boolean isSigned;
+
+    // whether samples are floats
+    private final boolean isFloat;
+
+    // byte order of samples
+    private final ByteOrder order;
+
+    private PCMDecoder(int bytesPerSample, boolean isSigned, boolean isFloat, ByteOrder order) {
+        this.bytesPerSample = bytesPerSample;
+        this.isSigned = isSigned;
+        this.isFloat = isFloat;
+        this.order = order;
+    }
+
+    /**
+     * Checks whether samples of a given format can be decoded
+     * @param format format of samples
+     * @return true if samples are 8, 16, 24 or 32-bit signed or unsigned integers or 32-bit floats
+     */
+    public static boolean supports(AudioFormat format) {
+        AudioFormat.Encoding encoding = format.getEncoding();
+        int bits = format.getSampleSizeInBits();
+        if(encoding.equals(AudioFormat.Encoding.PCM_FLOAT)) {
+            return bits == 32;
+        }
+        return (encoding.equals(AudioFormat.Encoding.PCM_SIGNED) || encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED))
+                && (bits == 8 || bits == 16 || bits == 24 || bits == 32);
+    }
+
+    /**
+     * Creates a decoder for samples of a given format
+     * @param format format of samples
+     * @return decoder for samples of format
+     * @throws UnsupportedAudioFileException if samples of format can't be decoded (see {@link #supports(AudioFormat)})
+     */
+    public static PCMDecoder forFormat(AudioFormat format) throws UnsupportedAudioFileException {
+        if(!supports(format)) {
+            throw new UnsupportedAudioFileException(String.format("Cannot decode %d-bit %s samples",
+                    format.getSampleSizeInBits(), format.getEncoding()));
+        }
+
+        return new PCMDecoder(format.getSampleSizeInBits() / 8,
+                !format.getEncoding().equals(AudioFormat.Encoding.PCM_UNSIGNED),
+                format.getEncoding().equals(AudioFormat.Encoding.PCM_FLOAT),
+                format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Get number of bytes used by each sample
+     * @return number of bytes used by each sample
+     */
+    public int bytesPerSample() {
+        return bytesPerSample;
+    }
+
+    /**
+     * Decodes consecutive samples into 16-bit values
+     * <p>Samples are read with absolute reads, so the position and limit of the buffer aren't changed, but its byte
+     * order is set to that of the samples.</p>
+     * @param buffer buffer holding samples
+     * @param position index in buffer of first byte of first sample
+     * @param samples array into which samples are decoded
+     * @param offset index in samples of first decoded sample
+     * @param count number of samples to decode
+     */
+    public void decode(ByteBuffer buffer, int position, int[] samples, int offset, int count) {
+        buffer.order(order);
+        switch(bytesPerSample) {
+            case 1:
+                decode8Bit(buffer, position, samples, offset, count);
+                break;
+            case 2:
+                decode16Bit(buffer, position, samples, offset, count);
+                break;
+            case 3:
+                decode24Bit(buffer, position, samples, offset, count);
+                break;
+            default:
+                if(isFloat) {
+                    decodeFloat(buffer, position, samples, offset, count);
+                } else {
+                    decode32Bit(buffer, position, samples, offset, count);
+                }
+        }
+    }
+
+    private void decode8Bit(ByteBuffer buffer, int position, int[] samples, int offset, int count) {
+        if(isSigned) {
+            for(int i = 0; i < count; i++) {
+                samples[offset + i] = EIGHT_BIT_SAMPLES[buffer.get(position + i) + 128];
+            }
+        } else {
+            // unsigned samples are centered on 128, so their unsigned value is the index of their signed value
+            for(int i = 0; i < count; i++) {
+                samples[offset + i] = EIGHT_BIT_SAMPLES[buffer.get(position + i) & 0xff];
+            }
+        }
+    }
+
+    private void decode16Bit(ByteBuffer buffer, int position, int[] samples, int offset, int count) {
+        // unsigned samples are turned into signed samples by flipping their sign bit
+        int flip = isSigned ? 0 : 0x8000;
+        for(int i = 0; i < count; i++) {
+            samples[offset + i] = (short) (buffer.getShort(position + 2 * i) ^ flip);
+        }
+    }
+
+    private void decode24Bit(ByteBuffer buffer, int position, int[] samples, int offset, int count) {
+        // most significant byte carries the sign; the least significant byte is dropped
+        int high = order == ByteOrder.BIG_ENDIAN ? 0 : 2;
+        int middle = 1;
+        int flip = isSigned ? 0 : 0x80;
+        for(int i = 0; i < count; i++) {
+            int p = position + 3 * i;
+            samples[offset + i] = (byte) (buffer.get(p + high) ^ flip) << 8 | buffer.get(p + middle) & 0xff;
+        }
+    }
+
+    private void decode32Bit(ByteBuffer buffer, int position, int[] samples, int offset, int count) {
+        int flip = isSigned ? 0 : 0x80000000;
+        for(int i = 0; i < count; i++) {
+            samples[offset + i] = (buffer.getInt(position + 4 * i) ^ flip) >> 16;
+        }
+    }
+
+    private void decodeFloat(ByteBuffer buffer, int position, int[] samples, int offset, int count) {
+        for(int i = 0; i < count; i++) {
+            float f = buffer.getFloat(position + 4 * i);
+
+            // values outside of [-1, 1] are clipped
+            samples[offset + i] = f > 0 ? (int) Math.min(f * 32767, 32767) : (int) Math.max(f * 32768, -32768);
+        }
+    }
+
+}
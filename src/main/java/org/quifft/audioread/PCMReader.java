@@ -6,12 +6,17 @@ import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Audio reader to extract waveform data from PCM-formatted files (WAV and AIFF)
  */
 public class PCMReader extends AudioReader {
 
+    // Number of bytes in the whole file or buffer, used to compute duration
+    private final long sourceLength;
+
     /**
      * The construction of a PCMReader opens an {@link AudioInputStream} for the .wav or .aiff file.
      * @param audio .wav or .aiff file to be read
@@ -20,24 +25,38 @@ public class PCMReader extends AudioReader {
      */
     public PCMReader(File audio) throws IOException, UnsupportedAudioFileException {
         this.audio = audio;
-        getInputStream();
+        this.sourceLength = audio.length();
+        getInputStream(AudioSystem.getAudioInputStream(audio));
+    }
+
+    /**
+     * The construction of a PCMReader opens an {@link AudioInputStream} for WAV or AIFF bytes held in memory
+     * @param data bytes of a WAV or AIFF file, from the buffer's position to its limit
+     * @throws IOException if an I/O exception occurs when the input stream is initialized
+     * @throws UnsupportedAudioFileException if the bytes aren't a valid audio file
+     */
+    public PCMReader(ByteBuffer data) throws IOException, UnsupportedAudioFileException {
+        this.sourceLength = data.remaining();
+        getInputStream(AudioSystem.getAudioInputStream(new ByteBufferInputStream(data)));
     }
 
     @Override
     public long getFileDurationMs() {
         AudioFormat format = inputStream.getFormat();
-        long audioFileLength = audio.length();
+        long audioFileLength = sourceLength;
         int frameSize = format.getFrameSize();
         float frameRate = format.getFrameRate();
         return (long) Math.ceil((audioFileLength / (frameSize * frameRate)) * 1000);
     }
 
-    private void getInputStream() throws IOException, UnsupportedAudioFileException {
-        inputStream = AudioSystem.getAudioInputStream(audio);
+    private void getInputStream(AudioInputStream in) throws IOException, UnsupportedAudioFileException {
+        inputStream = in;
 
-        // convert 8-bit audio into 16-bit
-        if(inputStream.getFormat().getSampleSizeInBits() == 8) {
-            getInputStreamAs8Bit();
+        // decode PCM samples directly, and let AudioSystem convert other encodings (such as mu-law) into 16-bit PCM
+        if(PCMDecoder.supports(inputStream.getFormat())) {
+            decoder = PCMDecoder.forFormat(inputStream.getFormat());
+        } else {
+            getInputStreamAs16Bit(inputStream);
         }
     }
 }
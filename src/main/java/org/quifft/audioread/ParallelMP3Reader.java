@@ -0,0 +1,252 @@
+package org.quifft.audioread;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audio reader that decodes segments of an MP3 file on several threads at once
+ * <p>The frames of the file are split into segments of {@code SEGMENT_FRAMES} consecutive frames, found with the
+ * file's {@link MP3FrameIndex}.  Each segment is decoded on its own, starting a few frames early so that the bit
+ * reservoir and filter banks of its decoder are warmed up the same way {@link MP3Reader#seek(long)} does, and the
+ * decoded segments are read back in order.  The samples read are therefore exactly those of decoding the file on a
+ * single thread.  No more than two segments per thread are decoded ahead of the samples being read, so memory use
+ * stays bounded however long the file is.</p>
+ * <p>Decoding threads are started by the first read and stop once they've been idle for a second.  The source reader
+ * shouldn't be used once it's been wrapped.</p>
+ */
+public class ParallelMP3Reader extends AudioReader {
+
+    // Number of frames in each segment (about 3 seconds of 44.1 kHz audio)
+    private static final int SEGMENT_FRAMES = 128;
+
+    // How long an idle decoding thread waits for another segment before it stops
+    private static final long KEEP_ALIVE_MS = 1000;
+
+    // Reader of the MP3 file whose segments are decoded
+    private final MP3Reader source;
+
+    // Number of threads decoding segments
+    private final int threads;
+
+    // Segments being decoded, in order
+    private final Queue<Future<int[]>> pendingSegments = new ArrayDeque<>();
+
+    // Decoding threads, or null before the first read
+    private ThreadPoolExecutor executor;
+
+    // Index of frames of MP3 file, or null before the first read
+    private MP3FrameIndex index;
+
+    // Position of the sample to read first, as set by seek()
+    private long firstSample = 0;
+
+    // Index of first frame of next segment to decode
+    private int nextFrame;
+
+    // Number of samples (counting every channel) of the next segment to discard, before the sample to read first
+    private int samplesToSkip;
+
+    // Samples of the segment currently being read, or null before the first read
+    private int[] currentSegment;
+
+    // Index in currentSegment of the next sample to read
+    private int currentPosition;
+
+    /**
+     * Wraps an MP3 reader so that its frames are decoded on several threads
+     * @param source reader of MP3 file
+     * @param threads number of threads decoding segments; must be positive
+     */
+    public ParallelMP3Reader(MP3Reader source, int threads) {
+        if(threads <= 0) {
+            throw new IllegalArgumentException("Decoder threads must be positive; was " + threads);
+        }
+
+        this.source = source;
+        this.threads = threads;
+        this.decoder = source.decoder;
+    }
+
+    @Override
+    public File getFile() {
+        return source.getFile();
+    }
+
+    @Override
+    public long getFileDurationMs() {
+        return source.getFileDurationMs();
+    }
+
+    @Override
+    public AudioFormat getAudioFormat() {
+        return source.getAudioFormat();
+    }
+
+    /**
+     * Obtains waveform for the rest of the audio file
+     * @return waveform for the rest of the audio file
+     */
+    @Override
+    public int[] getWaveform() {
+        try {
+            return readRemainingSamples();
+        } catch(IOException e) {
+            e.printStackTrace();
+            return new int[0];
+        }
+    }
+
+    /**
+     * Moves the reader to a given sample, so that decoding starts at the frame holding it
+     * @param samplePosition number of samples per channel before the sample to move to
+     * @throws IllegalStateException if samples have already been read, since they've been decoded ahead of time
+     */
+    @Override
+    public void seek(long samplePosition) {
+        if(executor != null) {
+            throw new IllegalStateException("Cannot seek once segments are being decoded");
+        }
+
+        firstSample = Math.max(0, samplePosition);
+    }
+
+    @Override
+    public int readSamples(int[] samples, int offset, int count) throws IOException {
+        if(executor == null) {
+            startDecoding();
+        }
+
+        int numSamplesRead = 0;
+        while(numSamplesRead < count) {
+            if(currentSegment == null || currentPosition == currentSegment.length) {
+                Future<int[]> segment = pendingSegments.poll();
+                if(segment == null) {
+                    executor.shutdown();
+                    break;
+                }
+                currentSegment = takeSegment(segment);
+                currentPosition = 0;
+                submitNextSegment();
+                continue;
+            }
+
+            int n = Math.min(count - numSamplesRead, currentSegment.length - currentPosition);
+            System.arraycopy(currentSegment, currentPosition, samples, offset + numSamplesRead, n);
+            currentPosition += n;
+            numSamplesRead += n;
+        }
+
+        return numSamplesRead;
+    }
+
+    /**
+     * Indexes the file and submits the first segments to new decoding threads
+     * @throws IOException if an I/O exception occurs while the file is indexed
+     */
+    private void startDecoding() throws IOException {
+        index = source.frameIndex();
+        nextFrame = index.frameAt(firstSample);
+        if(nextFrame < index.frameCount()) {
+            samplesToSkip = (int) (firstSample - index.samplePosition(nextFrame)) * index.channels();
+        }
+
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "QuiFFT MP3 decoder " + getFileName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+
+        for(int i = 0; i < 2 * threads; i++) {
+            submitNextSegment();
+        }
+    }
+
+    /**
+     * Submits the segment starting at nextFrame for decoding, if the file has any frames left
+     */
+    private void submitNextSegment() {
+        if(nextFrame >= index.frameCount()) return;
+
+        int first = nextFrame;
+        int end = (int) Math.min((long) first + SEGMENT_FRAMES, index.frameCount());
+        int skip = samplesToSkip;
+
+        pendingSegments.add(executor.submit(() -> decodeSegment(first, end, skip)));
+        nextFrame = end;
+        samplesToSkip = 0;
+    }
+
+    /**
+     * Decodes the frames of a segment
+     * @param first index of first frame of segment
+     * @param end index of frame after the last frame of segment
+     * @param samplesToSkip number of samples of the first frame that should be discarded
+     * @return decoded samples of segment
+     * @throws IOException if an I/O exception occurs while the file is read or a frame can't be decoded
+     */
+    private int[] decodeSegment(int first, int end, int samplesToSkip) throws IOException {
+        int warmUpFrame = index.warmUpFrame(first);
+        byte[] bytes = new byte[2 * ((end - first) * index.samplesPerFrame() * index.channels() - samplesToSkip)];
+        int length = 0;
+
+        try(InputStream frames = new MP3Reader.DecodedFrameStream(source.openAt(index.frameOffset(warmUpFrame)),
+                first - warmUpFrame, samplesToSkip, end - first)) {
+            int numBytesRead;
+            while((numBytesRead = frames.read(bytes, length, bytes.length - length)) > 0) {
+                length += numBytesRead;
+                if(length == bytes.length) {
+                    // make room in case the frames hold more samples than their headers promise
+                    bytes = Arrays.copyOf(bytes, 2 * bytes.length + 2);
+                }
+            }
+        }
+
+        int[] samples = new int[length / 2];
+        decoder.decode(ByteBuffer.wrap(bytes), 0, samples, 0, samples.length);
+        return samples;
+    }
+
+    /**
+     * Waits for a segment to be decoded
+     * @param segment segment being decoded
+     * @return decoded samples of segment
+     * @throws IOException if the segment couldn't be decoded
+     * @throws InterruptedIOException if the current thread is interrupted while waiting
+     */
+    private int[] takeSegment(Future<int[]> segment) throws IOException {
+        try {
+            return segment.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for decoded samples");
+        } catch(ExecutionException e) {
+            executor.shutdownNow();
+            pendingSegments.clear();
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            // decoders such as JLayer can throw unchecked exceptions on corrupt input
+            throw new IOException("MP3 decoder failed", cause);
+        }
+    }
+
+    private String getFileName() {
+        return source.getFile() != null ? source.getFile().getName() : "buffer";
+    }
+
+}
@@ -0,0 +1,269 @@
+package org.quifft.audioread;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audio reader that decodes another reader's samples ahead of time on a background thread
+ * <p>A daemon thread reads blocks of samples from the source reader into a bounded queue, while samples are taken
+ * from the queue by the thread computing FFTs.  Decoding an MP3 then overlaps with windowing and transforming its
+ * samples instead of taking turns with them.  Once the queue holds {@code depth} blocks, the decoding thread waits
+ * until a block has been taken, so no more than {@code depth + 2} blocks are ever held in memory.</p>
+ * <p>The decoding thread is started by the first read and ends at the end of the file, after an error, or once this
+ * reader is no longer referenced.  The source reader shouldn't be used once it's been wrapped.</p>
+ */
+public class ReadAheadReader extends AudioReader {
+
+    // Number of samples decoded into each block
+    private static final int BLOCK_SIZE = 16384;
+
+    // How long the decoding thread waits for room in a full queue before checking that the reader is still in use
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    // Reader whose samples are decoded ahead of time
+    private final AudioReader source;
+
+    // Blocks decoded by the decoding thread, in order
+    private final BlockingQueue<Block> decodedBlocks;
+
+    // Blocks whose samples have been taken, which the decoding thread can reuse
+    private final BlockingQueue<Block> freeBlocks;
+
+    // Block whose samples are currently being taken, or null before the first read
+    private Block currentBlock;
+
+    // Index in currentBlock of the next sample to take
+    private int currentPosition;
+
+    // Indicates whether the decoding thread has been started yet
+    private boolean isStarted = false;
+
+    // Indicates whether the last block of the file has been taken
+    private boolean isEndOfFile = false;
+
+    /**
+     * Wraps an audio reader so that its samples are decoded ahead of time
+     * @param source reader whose samples should be decoded ahead of time
+     * @param depth maximum number of decoded blocks waiting to be read; must be positive
+     */
+    public ReadAheadReader(AudioReader source, int depth) {
+        if(depth <= 0) {
+            throw new IllegalArgumentException("Read-ahead depth must be positive; was " + depth);
+        }
+
+        this.source = source;
+        this.decodedBlocks = new ArrayBlockingQueue<>(depth);
+        this.freeBlocks = new ArrayBlockingQueue<>(depth + 2);
+    }
+
+    @Override
+    public File getFile() {
+        return source.getFile();
+    }
+
+    @Override
+    public long getFileDurationMs() {
+        return source.getFileDurationMs();
+    }
+
+    @Override
+    public AudioFormat getAudioFormat() {
+        return source.getAudioFormat();
+    }
+
+    /**
+     * Obtains waveform for the rest of the audio file
+     * @return waveform for the rest of the audio file
+     */
+    @Override
+    public int[] getWaveform() {
+        try {
+            return readRemainingSamples();
+        } catch(IOException e) {
+            e.printStackTrace();
+            return new int[0];
+        }
+    }
+
+    /**
+     * Moves the source reader to a given sample
+     * @param samplePosition number of samples per channel before the sample to move to
+     * @throws IOException if an I/O exception occurs while the source reader seeks
+     * @throws IllegalStateException if samples have already been read, since they've been decoded ahead of time
+     */
+    @Override
+    public void seek(long samplePosition) throws IOException {
+        if(isStarted) {
+            throw new IllegalStateException("Cannot seek once samples have been read ahead");
+        }
+
+        source.seek(samplePosition);
+    }
+
+    @Override
+    public int readSamples(int[] samples, int offset, int count) throws IOException {
+        if(!isStarted) {
+            startDecoding();
+        }
+
+        int numSamplesRead = 0;
+        while(numSamplesRead < count && !isEndOfFile) {
+            if(currentBlock == null || currentPosition == currentBlock.length) {
+                if(currentBlock != null && currentBlock.length == BLOCK_SIZE) {
+                    freeBlocks.offer(currentBlock);
+                }
+                currentBlock = takeBlock();
+                currentPosition = 0;
+
+                // the decoding thread stops after an error or after a block that isn't full
+                if(currentBlock.error != null) {
+                    isEndOfFile = true;
+                    throw currentBlock.error;
+                }
+            }
+
+            int n = Math.min(count - numSamplesRead, currentBlock.length - currentPosition);
+            System.arraycopy(currentBlock.samples, currentPosition, samples, offset + numSamplesRead, n);
+            currentPosition += n;
+            numSamplesRead += n;
+
+            if(currentPosition == currentBlock.length && currentBlock.length < BLOCK_SIZE) {
+                isEndOfFile = true;
+            }
+        }
+
+        return numSamplesRead;
+    }
+
+    /**
+     * Takes the next decoded block from the queue, waiting for the decoding thread if the queue is empty
+     * @return next decoded block
+     * @throws InterruptedIOException if the current thread is interrupted while waiting
+     */
+    private Block takeBlock() throws InterruptedIOException {
+        try {
+            return decodedBlocks.take();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for decoded samples");
+        }
+    }
+
+    /**
+     * Starts the thread decoding the source reader's samples into the queue
+     */
+    private void startDecoding() {
+        isStarted = true;
+
+        Thread decoder = new Thread(new Decoder(source, decodedBlocks, freeBlocks, new WeakReference<>(this)),
+                "QuiFFT read-ahead " + (source.getFile() != null ? source.getFile().getName() : "buffer"));
+        decoder.setDaemon(true);
+        decoder.start();
+    }
+
+    /**
+     * Block of decoded samples, or the error that ended decoding
+     */
+    private static class Block {
+
+        // decoded samples; only the first length samples are valid
+        final int[] samples = new int[BLOCK_SIZE];
+
+        // number of samples decoded into this block, less than BLOCK_SIZE only for the last block
+        int length;
+
+        // error thrown by the source reader, in which case this is the last block
+        IOException error;
+
+    }
+
+    /**
+     * Body of the decoding thread
+     * <p>It only holds a weak reference to the reader being read, so that a reader that's dropped before the end of
+     * its file doesn't keep the thread waiting for room in the queue forever.</p>
+     */
+    private static class Decoder implements Runnable {
+
+        private final AudioReader source;
+        private final BlockingQueue<Block> decodedBlocks;
+        private final BlockingQueue<Block> freeBlocks;
+        private final WeakReference<ReadAheadReader> owner;
+
+        Decoder(AudioReader source, BlockingQueue<Block> decodedBlocks, BlockingQueue<Block> freeBlocks,
+                WeakReference<ReadAheadReader> owner) {
+            this.source = source;
+            this.decodedBlocks = decodedBlocks;
+            this.freeBlocks = freeBlocks;
+            this.owner = owner;
+        }
+
+        @Override
+        public void run() {
+            boolean isLastBlock = false;
+            while(!isLastBlock) {
+                Block block = freeBlocks.poll();
+                if(block == null) {
+                    block = new Block();
+                }
+
+                try {
+                    block.length = fill(block.samples);
+                    isLastBlock = block.length < BLOCK_SIZE;
+                } catch(IOException e) {
+                    block.error = e;
+                    isLastBlock = true;
+                } catch(RuntimeException e) {
+                    // decoders such as MP3SPI can throw unchecked exceptions on corrupt input
+                    block.error = new IOException("Audio decoder failed", e);
+                    isLastBlock = true;
+                }
+
+                if(!put(block)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Reads samples from the source reader until the array is full or the file ends
+         * @param samples array to fill
+         * @return number of samples read
+         * @throws IOException if an I/O exception occurs while reading the file
+         */
+        private int fill(int[] samples) throws IOException {
+            int length = 0;
+            int numSamplesRead;
+            while(length < samples.length
+                    && (numSamplesRead = source.readSamples(samples, length, samples.length - length)) > 0) {
+                length += numSamplesRead;
+            }
+            return length;
+        }
+
+        /**
+         * Adds a block to the queue, waiting while the queue is full
+         * @param block decoded block
+         * @return false if the reader was dropped or the thread was interrupted before there was room in the queue
+         */
+        private boolean put(Block block) {
+            try {
+                while(!decodedBlocks.offer(block, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    if(owner.get() == null) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch(InterruptedException e) {
+                return false;
+            }
+        }
+
+    }
+
+}
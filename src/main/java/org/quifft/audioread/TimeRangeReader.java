@@ -0,0 +1,105 @@
+package org.quifft.audioread;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Audio reader that only reads the samples of another reader within a range of sample positions
+ * <p>The source reader is moved to the start of the range with {@link AudioReader#seek(long)} before the first
+ * samples are read, so the samples before the range are skipped as cheaply as the source reader allows, and reads
+ * end at the end of the range as if the file ended there.  The source reader shouldn't be used once it's been
+ * wrapped.</p>
+ */
+public class TimeRangeReader extends AudioReader {
+
+    // Reader whose samples are read
+    private final AudioReader source;
+
+    // Number of channels of audio
+    private final long channels;
+
+    // Position in source reader of first sample to read, which seek() moves forward from the start of the range
+    private long firstSample;
+
+    // Number of samples (counting every channel) in range that haven't been read yet
+    private long remainingSamples;
+
+    // Indicates whether the source reader has been moved to the start of the range yet
+    private boolean isPositioned = false;
+
+    /**
+     * Wraps an audio reader so that only the samples within a range are read
+     * @param source reader whose samples should be read
+     * @param firstSample number of samples per channel before the first sample of the range
+     * @param endSample number of samples per channel before the first sample after the range
+     */
+    public TimeRangeReader(AudioReader source, long firstSample, long endSample) {
+        this.source = source;
+        this.firstSample = firstSample;
+
+        this.channels = source.getAudioFormat().getChannels();
+        long length = Math.max(0, endSample - firstSample);
+        this.remainingSamples = length > Long.MAX_VALUE / channels ? Long.MAX_VALUE : length * channels;
+    }
+
+    @Override
+    public File getFile() {
+        return source.getFile();
+    }
+
+    @Override
+    public long getFileDurationMs() {
+        return source.getFileDurationMs();
+    }
+
+    @Override
+    public AudioFormat getAudioFormat() {
+        return source.getAudioFormat();
+    }
+
+    /**
+     * Obtains waveform for the rest of the range
+     * @return waveform for the rest of the range
+     */
+    @Override
+    public int[] getWaveform() {
+        try {
+            return readRemainingSamples();
+        } catch(IOException e) {
+            e.printStackTrace();
+            return new int[0];
+        }
+    }
+
+    /**
+     * Moves the reader to a given sample of the range, so that the samples before it are skipped along with those
+     * before the range
+     * @param samplePosition number of samples per channel of the range before the sample to move to
+     * @throws IllegalStateException if samples have already been read, since the source reader has been moved to
+     * the start of the range
+     */
+    @Override
+    public void seek(long samplePosition) {
+        if(isPositioned) {
+            throw new IllegalStateException("Cannot seek once samples of the range have been read");
+        }
+
+        long skip = Math.max(0, samplePosition);
+        firstSample = skip > Long.MAX_VALUE - firstSample ? Long.MAX_VALUE : firstSample + skip;
+        remainingSamples -= skip > remainingSamples / channels ? remainingSamples : skip * channels;
+    }
+
+    @Override
+    public int readSamples(int[] samples, int offset, int count) throws IOException {
+        if(!isPositioned) {
+            isPositioned = true;
+            source.seek(firstSample);
+        }
+
+        int numSamplesRead = source.readSamples(samples, offset, (int) Math.min(count, remainingSamples));
+        remainingSamples -= numSamplesRead;
+        return numSamplesRead;
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.quifft.fft;
+
+/**
+ * Class to perform FFT computation on a batch of real signals at once
+ * <p>The batch is held in structure-of-arrays layout: value j of signal b is stored at index {@code j * count + b},
+ * so the same value of every signal in the batch is contiguous.  Each radix 2 butterfly is then applied to the whole
+ * batch by a single inner loop over b, which loads its twiddle factor once, has no branches and walks memory
+ * sequentially, so the JIT can unroll and vectorize it.  Signals are packed and unpacked the same way as by
+ * {@link RealFFT}, and the arithmetic on every signal is exactly that of {@link DoubleFFT}, so the results are
+ * identical to transforming each signal on its own.</p>
+ * <p>Batches are limited to real signals whose length is twice a power of 2; see {@link #supports(int)}.</p>
+ */
+public class BatchFFT {
+
+    /**
+     * Checks whether real signals of a given length can be transformed in batches
+     * @param n length of each real signal
+     * @return true if n is twice a power of 2
+     */
+    public static boolean supports(int n) {
+        return n % 2 == 0 && FFTPlan.isPowerOfTwo(n / 2);
+    }
+
+    /**
+     * Computes the first N/2 bins of the FFT of each of a batch of real signals of length N
+     * @param signals real signals whose length N is twice a power of 2
+     * @param count number of signals in batch (the first {@code count} entries of signals are used)
+     * @param re array of length at least {@code N/2 * count} to hold real parts of FFT results; bin j of signal b is
+     *           stored at index {@code j * count + b}
+     * @param im array of length at least {@code N/2 * count} to hold imaginary parts of FFT results, laid out like re
+     * @param plan plan for complex transforms of length N/2
+     */
+    public static void fft(int[][] signals, int count, double[] re, double[] im, FFTPlan plan) {
+        int half = plan.size();
+
+        // pack even samples into real parts and odd samples into imaginary parts
+        for(int b = 0; b < count; b++) {
+            int[] signal = signals[b];
+            for(int j = 0; j < half; j++) {
+                re[j * count + b] = signal[2 * j];
+                im[j * count + b] = signal[2 * j + 1];
+            }
+        }
+
+        radix2(re, im, count, plan);
+
+        unpack(re, im, count, plan);
+    }
+
+    /**
+     * Computes the FFT of each of a batch of complex signals whose length is a power of 2 in place
+     * @param re real parts of signals in structure-of-arrays layout; replaced by real parts of FFT results
+     * @param im imaginary parts of signals in structure-of-arrays layout; replaced by imaginary parts of FFT results
+     * @param count number of signals in batch
+     * @param plan plan for transforms of a single signal
+     */
+    static void radix2(double[] re, double[] im, int count, FFTPlan plan) {
+        int n = plan.size();
+
+        // bit reversal permutation swaps whole rows of the batch
+        int[] swaps = plan.bitReversalSwaps();
+        for(int s = 0; s < swaps.length; s += 2) {
+            int k = swaps[s] * count;
+            int j = swaps[s + 1] * count;
+            for(int b = 0; b < count; b++) {
+                double temp = re[j + b];
+                re[j + b] = re[k + b];
+                re[k + b] = temp;
+
+                temp = im[j + b];
+                im[j + b] = im[k + b];
+                im[k + b] = temp;
+            }
+        }
+
+        // butterfly updates
+        double[] twiddleRe = plan.twiddleRe();
+        double[] twiddleIm = plan.twiddleIm();
+        for(int halfL = 1; halfL < n; halfL += halfL) {
+            int L = halfL + halfL;
+            for(int block = 0; block < n; block += L) {
+                for(int k = 0; k < halfL; k++) {
+                    double wRe = twiddleRe[halfL - 1 + k];
+                    double wIm = twiddleIm[halfL - 1 + k];
+                    int j = (block + k) * count;
+                    int m = j + halfL * count;
+                    for(int b = 0; b < count; b++) {
+                        double taoRe = wRe * re[m + b] - wIm * im[m + b];
+                        double taoIm = wRe * im[m + b] + wIm * re[m + b];
+                        re[m + b] = re[j + b] - taoRe;
+                        im[m + b] = im[j + b] - taoIm;
+                        re[j + b] += taoRe;
+                        im[j + b] += taoIm;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Unpacks the N/2-point transforms of a batch of packed real signals into the first N/2 bins of their N-point
+     * transforms (see {@link RealFFT#unpack(double[], double[], FFTPlan)})
+     * @param re real parts of packed transforms; replaced by real parts of results
+     * @param im imaginary parts of packed transforms; replaced by imaginary parts of results
+     * @param count number of signals in batch
+     * @param plan plan for complex transforms of length N/2
+     */
+    static void unpack(double[] re, double[] im, int count, FFTPlan plan) {
+        int half = plan.size();
+        double[] twiddleRe = plan.realTwiddleRe();
+        double[] twiddleIm = plan.realTwiddleIm();
+
+        // DC bins only depend on Z[0]
+        for(int b = 0; b < count; b++) {
+            re[b] = re[b] + im[b];
+            im[b] = 0;
+        }
+
+        for(int k = 1; k <= half / 2; k++) {
+            double wRe = twiddleRe[k];
+            double wIm = twiddleIm[k];
+            int rowK = k * count;
+            int rowJ = (half - k) * count;
+            for(int b = 0; b < count; b++) {
+                int i = rowK + b;
+                int j = rowJ + b;
+
+                double eRe = (re[i] + re[j]) / 2;
+                double eIm = (im[i] - im[j]) / 2;
+                double oRe = (im[i] + im[j]) / 2;
+                double oIm = (re[j] - re[i]) / 2;
+
+                double tRe = wRe * oRe - wIm * oIm;
+                double tIm = wRe * oIm + wIm * oRe;
+
+                // X[N/2-k] = conj(E[k] - t)
+                re[j] = eRe - tRe;
+                im[j] = tIm - eIm;
+
+                re[i] = eRe + tRe;
+                im[i] = eIm + tIm;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.quifft.fft;
+
+/**
+ * Class to perform FFT computation on signals of any length using Bluestein's (chirp-z) algorithm
+ * <p>Using the identity nk = (n^2 + k^2 - (k - n)^2) / 2, a DFT of length n can be rewritten as a convolution of
+ * the signal multiplied by the chirp e^(-pi*i*k^2/n) with the conjugate chirp.  The convolution is computed with
+ * power of 2 FFTs of length at least 2n - 1, so this runs in {@code O(n*logn)} time for any n, including primes.
+ * The chirp and the transformed convolution kernel are looked up from a cached {@link FFTPlan}.  At most n of the
+ * m &gt;= 2n - 1 values of the first convolution FFT are non-zero, so it is pruned (see {@link PrunedFFT}).</p>
+ * <p>This is used as a fallback for lengths with prime factors other than 2, 3 and 5, which {@link MixedRadixFFT}
+ * can't compute.</p>
+ */
+public class BluesteinFFT {
+
+    /**
+     * Computes the FFT of a complex signal in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    static void fft(double[] re, double[] im, FFTPlan plan) {
+        fft(re, im, plan, plan.size());
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose values after the first {@code nonZeroLength} are 0 in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     */
+    static void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+        int n = plan.size();
+        double[] wRe = plan.chirpRe();
+        double[] wIm = plan.chirpIm();
+        double[] bRe = plan.kernelRe();
+        double[] bIm = plan.kernelIm();
+        FFTPlan convolutionPlan = plan.convolutionPlan();
+        int m = convolutionPlan.size();
+
+        double[][] work = plan.work(m);
+        double[] aRe = work[0];
+        double[] aIm = work[1];
+
+        // multiply signal by chirp and zero-pad to convolution length
+        for(int k = 0; k < nonZeroLength; k++) {
+            aRe[k] = re[k] * wRe[k] - im[k] * wIm[k];
+            aIm[k] = re[k] * wIm[k] + im[k] * wRe[k];
+        }
+        for(int k = nonZeroLength; k < m; k++) {
+            aRe[k] = 0;
+            aIm[k] = 0;
+        }
+
+        DoubleFFT.radix2(aRe, aIm, convolutionPlan, nonZeroLength);
+
+        // multiply by transformed kernel, conjugating the product so that the next forward FFT is an inverse FFT
+        for(int k = 0; k < m; k++) {
+            double productRe = aRe[k] * bRe[k] - aIm[k] * bIm[k];
+            double productIm = aRe[k] * bIm[k] + aIm[k] * bRe[k];
+            aRe[k] = productRe;
+            aIm[k] = -productIm;
+        }
+
+        DoubleFFT.fft(aRe, aIm, convolutionPlan);
+
+        // undo conjugation, scale inverse FFT by 1/m, and multiply by chirp
+        for(int k = 0; k < n; k++) {
+            double cRe = aRe[k] / m;
+            double cIm = -aIm[k] / m;
+            re[k] = cRe * wRe[k] - cIm * wIm[k];
+            im[k] = cRe * wIm[k] + cIm * wRe[k];
+        }
+    }
+
+}
@@ -46,6 +46,16 @@ public class Complex {
         im = imag;
     }
 
+    // return the real part
+    public double re() {
+        return re;
+    }
+
+    // return the imaginary part
+    public double im() {
+        return im;
+    }
+
     // return abs/modulus/magnitude
     public double abs() {
         return Math.hypot(re, im);
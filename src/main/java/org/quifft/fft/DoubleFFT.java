@@ -0,0 +1,122 @@
+package org.quifft.fft;
+
+/**
+ * Class to perform FFT computation on primitive {@code double} arrays
+ * <p>Powers of 2 are computed with the same iterative radix 2 Cooley-Tukey algorithm used by {@link InplaceFFT},
+ * except that the signal is held in two split arrays (real parts and imaginary parts) and transformed in place.
+ * No objects are allocated while the transform runs, and twiddle factors and the bit reversal permutation are
+ * looked up from a cached {@link FFTPlan}, so the cost of each FFT is only the arithmetic of its butterflies.</p>
+ * <p>Other sizes are computed with {@link MixedRadixFFT} if they are products of 2, 3, 4 and 5, and with
+ * {@link BluesteinFFT} otherwise.</p>
+ */
+public class DoubleFFT {
+
+    /**
+     * Computes the FFT of a complex signal of any length in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     */
+    public static void fft(double[] re, double[] im) {
+        fft(re, im, FFTPlan.forSize(re.length));
+    }
+
+    /**
+     * Computes the FFT of a complex signal of any length in place using a precomputed plan
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    public static void fft(double[] re, double[] im, FFTPlan plan) {
+        if(plan.isRadix2()) {
+            radix2(re, im, plan);
+        } else if(plan.isMixedRadix()) {
+            MixedRadixFFT.fft(re, im, plan);
+        } else {
+            BluesteinFFT.fft(re, im, plan);
+        }
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose length is a power of 2 in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    static void radix2(double[] re, double[] im, FFTPlan plan) {
+        radix2(re, im, plan, plan.size());
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose length is a power of 2 and whose values after the first
+     * {@code nonZeroLength} are 0 in place, skipping the butterfly stages that only copy values (see
+     * {@link PrunedFFT})
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     */
+    static void radix2(double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+        radix2(re, im, plan, nonZeroLength, 0, plan.size());
+    }
+
+    /**
+     * Computes a circular range of outputs of the FFT of a complex signal whose length is a power of 2 and whose values
+     * after the first {@code nonZeroLength} are 0 in place, skipping the butterflies that only contribute to other
+     * outputs (see {@link PrunedFFT})
+     * @param re real parts of signal; replaced by real parts of FFT result within the range of outputs
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result within the range of outputs
+     * @param plan plan for transforms of length {@code re.length}
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     * @param firstOutput index of first output needed
+     * @param outputCount number of outputs needed, starting at firstOutput and wrapping around past the end
+     */
+    static void radix2(double[] re, double[] im, FFTPlan plan, int nonZeroLength, int firstOutput,
+                       int outputCount) {
+        int n = plan.size();
+
+        // bit reversal permutation, which also does the work of the first log2(factor) stages
+        int factor = PrunedFFT.pruningFactor(n, nonZeroLength);
+        PrunedFFT.bitReverse(re, im, plan, factor);
+
+        // butterfly updates, limited to the butterflies whose results reach a needed output
+        for(int halfL = factor; halfL < n; halfL += halfL) {
+            int from = outputCount >= halfL ? 0 : firstOutput % halfL;
+            int to = from + Math.min(outputCount, halfL);
+            butterflies(re, im, plan, halfL, from, Math.min(to, halfL));
+            if(to > halfL) {
+                butterflies(re, im, plan, halfL, 0, to - halfL);
+            }
+        }
+    }
+
+    /**
+     * Applies butterflies {@code from} (inclusive) to {@code to} (exclusive) of every block of a radix 2 stage
+     * @param re real parts of signal
+     * @param im imaginary parts of signal
+     * @param plan plan for transforms of length {@code re.length}
+     * @param halfL half of the block length of the stage
+     * @param from index within each block of first butterfly
+     * @param to index within each block after last butterfly
+     */
+    private static void butterflies(double[] re, double[] im, FFTPlan plan, int halfL, int from, int to) {
+        int n = plan.size();
+        double[] twiddleRe = plan.twiddleRe();
+        double[] twiddleIm = plan.twiddleIm();
+        int L = halfL + halfL;
+        for(int block = 0; block < n; block += L) {
+            for(int k = from; k < to; k++) {
+                double wRe = twiddleRe[halfL - 1 + k];
+                double wIm = twiddleIm[halfL - 1 + k];
+                int j = block + k;
+                int m = j + halfL;
+                double taoRe = wRe * re[m] - wIm * im[m];
+                double taoIm = wRe * im[m] + wIm * re[m];
+                re[m] = re[j] - taoRe;
+                im[m] = im[j] - taoIm;
+                re[j] += taoRe;
+                im[j] += taoIm;
+            }
+        }
+    }
+
+}
@@ -3,10 +3,20 @@ package org.quifft.fft;
 import org.quifft.output.FFTFrame;
 import org.quifft.output.FrequencyBin;
 import org.quifft.params.FFTParameters;
+import org.quifft.params.Precision;
 
 /**
- * Uses Princeton FFT Implementation to compute {@link FFTFrame}s
- * @see InplaceFFT
+ * Uses {@link RealFFT} and the {@link FFTEngine} chosen by {@link FFTPlanner} to compute {@link FFTFrame}s
+ * <p>With single precision, {@link FloatFFT} is used instead for every window length it supports.
+ * {@link #doFFTBatch} computes several frames at once with {@link BatchFFT}, and {@link #doSlidingDFT} updates the
+ * spectrum of a stream's previous frame with a {@link SlidingDFT}.  When target frequencies are set, only their
+ * amplitudes are computed, with a {@link GoertzelFilterBank}; when a zoom band is set, only its bins are computed,
+ * with a {@link ZoomFFT}.  Otherwise, only the bins from {@code minFrequency} to {@code maxFrequency} are
+ * created.</p>
+ * @see RealFFT
+ * @see FloatFFT
+ * @see FFTPlanner
+ * @see DoubleFFT
  */
 public class FFTComputationWrapper {
 
@@ -22,22 +32,233 @@ public class FFTComputationWrapper {
      */
     public static FFTFrame doFFT(int[] wave, double startTimeMs, double windowDurationMs, double fileDurationMs,
                                  float audioSampleRate, FFTParameters fftParameters) {
-        // get complex FFT values
-        Complex[] complexWave = Complex.convertIntToComplex(wave);
-        InplaceFFT.fft(complexWave); // wave becomes FFT result
+        if(fftParameters.targetFrequencies != null) {
+            return doGoertzel(wave, startTimeMs, windowDurationMs, fileDurationMs, audioSampleRate, fftParameters);
+        }
+        if(fftParameters.zoomBins != null) {
+            return doZoomFFT(wave, startTimeMs, windowDurationMs, fileDurationMs, audioSampleRate, fftParameters);
+        }
+        if(fftParameters.precision == Precision.FLOAT && FloatFFT.supports(wave.length)) {
+            return doFloatFFT(wave, startTimeMs, windowDurationMs, fileDurationMs, audioSampleRate, fftParameters);
+        }
+
+        // get complex FFT values for the band of the first half of spectrum
+        // (FFT of a real signal is symmetrical so any information after the halfway point is redundant)
+        int firstBin = fftParameters.firstBin(audioSampleRate);
+        int lastBin = fftParameters.lastBin(audioSampleRate);
+        double endMs = Math.min(fileDurationMs, startTimeMs + windowDurationMs); // last window(s) will probably be partial
+        if(lastBin < firstBin) {
+            return new FFTFrame(startTimeMs, endMs, new FrequencyBin[0]);
+        }
+
+        // samples after the window are zero-padding, which pruned transforms skip
+        int nonZeroLength = Math.min(fftParameters.windowSize, wave.length);
+        double[] re;
+        double[] im;
+        FFTEngine engine;
+        if(wave.length % 2 == 0) {
+            // the parallel threshold counts points of the real FFT, which is computed as a half-length transform
+            FFTPlan plan = FFTPlan.forSize(wave.length / 2);
+            engine = FFTPlanner.engineFor(plan.size(), fftParameters.engine,
+                    Math.max(1, fftParameters.parallelThreshold / 2));
+            re = plan.scratchRe();
+            im = plan.scratchIm();
+            RealFFT.fft(wave, nonZeroLength, firstBin, lastBin, re, im, plan, engine);
+        } else {
+            // odd lengths can't be packed into a half-length complex signal
+            FFTPlan plan = FFTPlan.forSize(wave.length);
+            engine = FFTPlanner.engineFor(plan.size(), fftParameters.engine, fftParameters.parallelThreshold);
+            re = plan.scratchRe();
+            im = plan.scratchIm();
+            for(int i = 0; i < wave.length; i++) {
+                re[i] = wave[i];
+                im[i] = 0;
+            }
+            engine.fft(re, im, plan, nonZeroLength, firstBin, lastBin - firstBin + 1);
+        }
 
         // compute frequency increment for bins
         double frequencyAxisIncrement = audioSampleRate / (double) wave.length;
 
-        // copy first half of FFT results into a list of frequency bins
-        // (FFT is symmetrical so any information after the halfway point is redundant)
-        FrequencyBin[] bins = new FrequencyBin[complexWave.length / 2];
+        // replace real parts of the band with scaled bin amplitudes, then copy them into a list of frequency bins
+        FrequencyBin[] bins = new FrequencyBin[lastBin - firstBin + 1];
+        engine.magnitudes(re, im, re, firstBin, bins.length, 2.0 / fftParameters.totalWindowLength());
         for(int i = 0; i < bins.length; i++) {
-            double scaledBinAmplitude = 2 * complexWave[i].abs() / fftParameters.totalWindowLength();
-            bins[i] = new FrequencyBin(i * frequencyAxisIncrement, scaledBinAmplitude);
+            bins[i] = new FrequencyBin((firstBin + i) * frequencyAxisIncrement, re[firstBin + i]);
+        }
+
+        return new FFTFrame(startTimeMs, endMs, bins);
+    }
+
+    /**
+     * Computes FFTs for a batch of windowed time domain signals with {@link BatchFFT}
+     * @param waves sampled values from audio waveform for each window; all windows must have the same length, which
+     *              must be supported by {@link BatchFFT}
+     * @param count number of windows in batch (the first {@code count} entries of waves are used)
+     * @param startTimesMs timestamp in the original audio file at which each sample window begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT
+     * @param frames array into which the FFTFrame of each window is written
+     * @param offset index in frames at which the frame of the first window is written
+     */
+    public static void doFFTBatch(int[][] waves, int count, double[] startTimesMs, double windowDurationMs,
+                                  double fileDurationMs, float audioSampleRate, FFTParameters fftParameters,
+                                  FFTFrame[] frames, int offset) {
+        int length = waves[0].length;
+        FFTPlan plan = FFTPlan.forSize(length / 2);
+        double[][] scratch = plan.batchScratch(count);
+        double[] re = scratch[0];
+        double[] im = scratch[1];
+        BatchFFT.fft(waves, count, re, im, plan);
+
+        double frequencyAxisIncrement = audioSampleRate / (double) length;
+        double amplitudeScale = 2.0 / fftParameters.totalWindowLength();
+
+        int firstBin = fftParameters.firstBin(audioSampleRate);
+        int binCount = Math.max(0, fftParameters.lastBin(audioSampleRate) - firstBin + 1);
+        for(int b = 0; b < count; b++) {
+            FrequencyBin[] bins = new FrequencyBin[binCount];
+            for(int i = 0; i < binCount; i++) {
+                int index = (firstBin + i) * count + b;
+                double amplitude = amplitudeScale * Math.sqrt(re[index] * re[index] + im[index] * im[index]);
+                bins[i] = new FrequencyBin((firstBin + i) * frequencyAxisIncrement, amplitude);
+            }
+
+            double endMs = Math.min(fileDurationMs, startTimesMs[b] + windowDurationMs);
+            frames[offset + b] = new FFTFrame(startTimesMs[b], endMs, bins);
+        }
+    }
+
+    /**
+     * Computes the amplitude of each target frequency of a windowed time domain signal with a
+     * {@link GoertzelFilterBank}
+     * @param wave sampled values from audio waveform
+     * @param startTimeMs timestamp in the original audio file at which this sample window begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT; {@code targetFrequencies} must be set
+     * @return a single FFTFrame with one bin for each target frequency
+     */
+    private static FFTFrame doGoertzel(int[] wave, double startTimeMs, double windowDurationMs,
+                                       double fileDurationMs, float audioSampleRate, FFTParameters fftParameters) {
+        double[] frequencies = fftParameters.targetFrequencies;
+        double[] amplitudes = new double[frequencies.length];
+
+        // zero-padding doesn't change the filter outputs, so only the window's samples are filtered
+        int sampleCount = Math.min(fftParameters.windowSize, wave.length);
+        GoertzelFilterBank.magnitudes(wave, sampleCount, frequencies, audioSampleRate, amplitudes,
+                2.0 / fftParameters.totalWindowLength());
+
+        FrequencyBin[] bins = new FrequencyBin[frequencies.length];
+        for(int i = 0; i < bins.length; i++) {
+            bins[i] = new FrequencyBin(frequencies[i], amplitudes[i]);
+        }
+
+        double endMs = Math.min(fileDurationMs, startTimeMs + windowDurationMs);
+        return new FFTFrame(startTimeMs, endMs, bins);
+    }
+
+    /**
+     * Computes the band of the spectrum of a windowed time domain signal selected by the zoom parameters with a
+     * {@link ZoomFFT}
+     * @param wave sampled values from audio waveform
+     * @param startTimeMs timestamp in the original audio file at which this sample window begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT; {@code minFrequency}, {@code maxFrequency} and
+     *                      {@code zoomBins} must be set
+     * @return a single FFTFrame with {@code zoomBins} bins from {@code minFrequency} to {@code maxFrequency}
+     */
+    private static FFTFrame doZoomFFT(int[] wave, double startTimeMs, double windowDurationMs,
+                                      double fileDurationMs, float audioSampleRate, FFTParameters fftParameters) {
+        double minFrequency = fftParameters.minFrequency;
+        double maxFrequency = fftParameters.maxFrequency;
+        int binCount = fftParameters.zoomBins;
+
+        // zero-padding doesn't change the chirp-z transform, so only the window's samples are transformed
+        ZoomFFT zoomFFT = ZoomFFT.forBand(fftParameters.windowSize, minFrequency, maxFrequency, binCount,
+                audioSampleRate);
+        double[] amplitudes = new double[binCount];
+        zoomFFT.magnitudes(wave, amplitudes, 2.0 / fftParameters.totalWindowLength());
+
+        FrequencyBin[] bins = new FrequencyBin[binCount];
+        for(int i = 0; i < bins.length; i++) {
+            bins[i] = new FrequencyBin(ZoomFFT.binFrequency(minFrequency, maxFrequency, binCount, i), amplitudes[i]);
+        }
+
+        double endMs = Math.min(fileDurationMs, startTimeMs + windowDurationMs);
+        return new FFTFrame(startTimeMs, endMs, bins);
+    }
+
+    /**
+     * Slides a {@link SlidingDFT} to the next window of a stream and computes the frame of its updated spectrum
+     * @param slidingDFT sliding DFT holding the spectrum of the previous window
+     * @param wave sampled values of the next window from audio waveform, without window function or zero-padding
+     * @param hop number of samples by which the window moved since the previous window
+     * @param startTimeMs timestamp in the original audio file at which this sample window begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT
+     * @return a single FFTFrame holding the spectrum of the next window
+     */
+    public static FFTFrame doSlidingDFT(SlidingDFT slidingDFT, int[] wave, int hop, double startTimeMs,
+                                        double windowDurationMs, double fileDurationMs, float audioSampleRate,
+                                        FFTParameters fftParameters) {
+        slidingDFT.slide(wave, hop);
+
+        int length = fftParameters.totalWindowLength();
+        double frequencyAxisIncrement = audioSampleRate / (double) length;
+
+        // the sliding DFT only keeps the band of bins from firstBin on
+        int firstBin = fftParameters.firstBin(audioSampleRate);
+        FrequencyBin[] bins = new FrequencyBin[slidingDFT.bins()];
+        for(int i = 0; i < bins.length; i++) {
+            bins[i] = new FrequencyBin((firstBin + i) * frequencyAxisIncrement, slidingDFT.magnitude(i, 2.0 / length));
+        }
+
+        double endMs = Math.min(fileDurationMs, startTimeMs + windowDurationMs);
+        return new FFTFrame(startTimeMs, endMs, bins);
+    }
+
+    /**
+     * Computes an FFT for a windowed time domain signal in single precision
+     * @param wave sampled values from audio waveform; length must be supported by {@link FloatFFT}
+     * @param startTimeMs timestamp in the original audio file at which this sample window begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT
+     * @return a single FFTFrame that is the result of an FFT being computed on wave with given parameters
+     */
+    private static FFTFrame doFloatFFT(int[] wave, double startTimeMs, double windowDurationMs, double fileDurationMs,
+                                       float audioSampleRate, FFTParameters fftParameters) {
+        int firstBin = fftParameters.firstBin(audioSampleRate);
+        int lastBin = fftParameters.lastBin(audioSampleRate);
+        double endMs = Math.min(fileDurationMs, startTimeMs + windowDurationMs);
+        if(lastBin < firstBin) {
+            return new FFTFrame(startTimeMs, endMs, new FrequencyBin[0]);
+        }
+
+        FFTPlan plan = FFTPlan.forSize(wave.length / 2);
+        float[] re = plan.floatScratchRe();
+        float[] im = plan.floatScratchIm();
+        FloatFFT.fft(wave, firstBin, lastBin, re, im, plan);
+
+        double frequencyAxisIncrement = audioSampleRate / (double) wave.length;
+
+        FrequencyBin[] bins = new FrequencyBin[lastBin - firstBin + 1];
+        float amplitudeScale = 2f / fftParameters.totalWindowLength();
+        for(int i = 0; i < bins.length; i++) {
+            int k = firstBin + i;
+            float magnitude = (float) Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+            bins[i] = new FrequencyBin(k * frequencyAxisIncrement, magnitude * amplitudeScale);
         }
 
-        double endMs = Math.min(fileDurationMs, startTimeMs + windowDurationMs); // last window(s) will probably be partial
         return new FFTFrame(startTimeMs, endMs, bins);
     }
 
@@ -0,0 +1,79 @@
+package org.quifft.fft;
+
+/**
+ * An algorithm that computes complex FFTs in place on primitive {@code double} arrays
+ * <p>Engines are interchangeable: each one produces the same result for every size it supports, so
+ * {@link FFTPlanner} is free to choose whichever engine is fastest for a given transform size.</p>
+ * @see FFTEngines
+ * @see FFTPlanner
+ */
+public interface FFTEngine {
+
+    /**
+     * Get name of this engine, used to identify it in wisdom files
+     * @return name of this engine
+     */
+    String getName();
+
+    /**
+     * Checks whether this engine can compute transforms of a given size
+     * @param n number of points in transform
+     * @return true if this engine supports transforms of size n
+     */
+    boolean supports(int n);
+
+    /**
+     * Computes the FFT of a complex signal in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    void fft(double[] re, double[] im, FFTPlan plan);
+
+    /**
+     * Computes the FFT of a complex signal whose values after the first {@code nonZeroLength} are 0 in place
+     * <p>By default, the full transform is computed; engines that can skip the arithmetic on the zeros override this
+     * (see {@link PrunedFFT}).</p>
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     */
+    default void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+        fft(re, im, plan);
+    }
+
+    /**
+     * Computes a circular range of outputs of the FFT of a complex signal whose values after the first
+     * {@code nonZeroLength} are 0 in place
+     * <p>Outputs outside of the range are left with unspecified values.  By default, every output is computed;
+     * engines that can skip the arithmetic of unneeded outputs override this (see {@link PrunedFFT}).</p>
+     * @param re real parts of signal; replaced by real parts of FFT result within the range of outputs
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result within the range of outputs
+     * @param plan plan for transforms of length {@code re.length}
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     * @param firstOutput index of first output needed
+     * @param outputCount number of outputs needed, starting at firstOutput and wrapping around past the end
+     */
+    default void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength, int firstOutput, int outputCount) {
+        fft(re, im, plan, nonZeroLength);
+    }
+
+    /**
+     * Computes the scaled magnitude {@code scale * |re[i] + i*im[i]|} of {@code length} values of a transform,
+     * starting at index {@code offset}
+     * @param re real parts of transform
+     * @param im imaginary parts of transform
+     * @param magnitudes array of length at least {@code offset + length} to hold magnitudes at the same indices as
+     *                   their values; may be {@code re} or {@code im}
+     * @param offset index of first value whose magnitude is computed
+     * @param length number of values whose magnitude is computed
+     * @param scale factor by which every magnitude is multiplied
+     */
+    default void magnitudes(double[] re, double[] im, double[] magnitudes, int offset, int length, double scale) {
+        for(int i = offset; i < offset + length; i++) {
+            magnitudes[i] = scale * Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package org.quifft.fft;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@link FFTEngine}s available to QuiFFT
+ */
+public class FFTEngines {
+
+    /**
+     * Iterative radix 2 Cooley-Tukey FFT (see {@link DoubleFFT}); supports powers of 2
+     */
+    public static final FFTEngine RADIX_2 = new FFTEngine() {
+        @Override
+        public String getName() {
+            return "radix-2";
+        }
+
+        @Override
+        public boolean supports(int n) {
+            return FFTPlan.isPowerOfTwo(n);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan) {
+            DoubleFFT.radix2(re, im, plan);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+            DoubleFFT.radix2(re, im, plan, nonZeroLength);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength, int firstOutput,
+                        int outputCount) {
+            DoubleFFT.radix2(re, im, plan, nonZeroLength, firstOutput, outputCount);
+        }
+    };
+
+    /**
+     * Recursive mixed radix Cooley-Tukey FFT (see {@link MixedRadixFFT}); supports products of 2, 3 and 5
+     */
+    public static final FFTEngine MIXED_RADIX = new FFTEngine() {
+        @Override
+        public String getName() {
+            return "mixed-radix";
+        }
+
+        @Override
+        public boolean supports(int n) {
+            return FFTPlan.isMixedRadixSize(n);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan) {
+            MixedRadixFFT.fft(re, im, plan);
+        }
+    };
+
+    /**
+     * Bluestein's chirp-z algorithm (see {@link BluesteinFFT}); supports any size
+     */
+    public static final FFTEngine BLUESTEIN = new FFTEngine() {
+        @Override
+        public String getName() {
+            return "bluestein";
+        }
+
+        @Override
+        public boolean supports(int n) {
+            return n > 0;
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan) {
+            BluesteinFFT.fft(re, im, plan);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+            // shorter Bluestein transforms have much shorter convolutions, so splitting the transform pays off
+            if(PrunedFFT.pruningFactor(plan.size(), nonZeroLength) > 1) {
+                PrunedFFT.fft(this, re, im, plan, nonZeroLength);
+            } else {
+                BluesteinFFT.fft(re, im, plan, nonZeroLength);
+            }
+        }
+    };
+
+    /**
+     * Four-step FFT (see {@link FourStepFFT}); supports powers of 2 and is fastest for transforms too large to fit
+     * in cache
+     */
+    public static final FFTEngine FOUR_STEP = new FFTEngine() {
+        @Override
+        public String getName() {
+            return "four-step";
+        }
+
+        @Override
+        public boolean supports(int n) {
+            return FFTPlan.isPowerOfTwo(n);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan) {
+            FourStepFFT.fft(re, im, plan);
+        }
+    };
+
+    /**
+     * Four-step FFT whose steps run in parallel on the common {@link java.util.concurrent.ForkJoinPool} (see
+     * {@link FourStepFFT#parallelFFT}); supports powers of 2
+     */
+    public static final FFTEngine PARALLEL_FOUR_STEP = new FFTEngine() {
+        @Override
+        public String getName() {
+            return "parallel-four-step";
+        }
+
+        @Override
+        public boolean supports(int n) {
+            return FFTPlan.isPowerOfTwo(n);
+        }
+
+        @Override
+        public void fft(double[] re, double[] im, FFTPlan plan) {
+            FourStepFFT.parallelFFT(re, im, plan);
+        }
+    };
+
+    /**
+     * Radix 2 FFT whose butterflies and magnitude computation use the JDK Vector API; supports powers of 2
+     * <p>This engine is only available on Java 17 or later with the {@code jdk.incubator.vector} module resolved
+     * (run with {@code --add-modules jdk.incubator.vector}); otherwise this field is null.</p>
+     */
+    public static final FFTEngine VECTOR = loadVectorEngine();
+
+    // every engine, in the order the planner prefers them when their benchmarks tie
+    private static final List<FFTEngine> engines = new ArrayList<>();
+
+    static {
+        engines.add(RADIX_2);
+        engines.add(MIXED_RADIX);
+        engines.add(BLUESTEIN);
+        engines.add(FOUR_STEP);
+        engines.add(PARALLEL_FOUR_STEP);
+        if(VECTOR != null) {
+            engines.add(VECTOR);
+        }
+    }
+
+    /**
+     * Get every engine available to QuiFFT
+     * @return unmodifiable list of engines
+     */
+    public static List<FFTEngine> all() {
+        return Collections.unmodifiableList(engines);
+    }
+
+    /**
+     * Checks whether the Vector API engine is available to this JVM
+     * @return true if {@link #VECTOR} is available
+     */
+    public static boolean isVectorAvailable() {
+        return VECTOR != null;
+    }
+
+    /**
+     * Loads the Vector API engine from the Java 17 layer of the multi-release jar
+     * @return vector engine, or null if this JVM can't load it
+     */
+    private static FFTEngine loadVectorEngine() {
+        try {
+            Method create = Class.forName("org.quifft.fft.VectorFFTEngine").getDeclaredMethod("create");
+            return (FFTEngine) create.invoke(null);
+        } catch(ReflectiveOperationException | LinkageError e) {
+            // running on Java 8, or from classes outside of the multi-release jar
+            return null;
+        }
+    }
+
+    /**
+     * Finds an engine by name
+     * @param name name of engine (as returned by {@link FFTEngine#getName()})
+     * @return engine with given name, or null if no engine has that name
+     */
+    public static FFTEngine forName(String name) {
+        for(FFTEngine engine : engines) {
+            if(engine.getName().equals(name)) {
+                return engine;
+            }
+        }
+        return null;
+    }
+
+}
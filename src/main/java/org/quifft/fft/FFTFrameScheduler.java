@@ -0,0 +1,128 @@
+package org.quifft.fft;
+
+import org.quifft.output.FFTFrame;
+import org.quifft.params.FFTEngineType;
+import org.quifft.params.FFTParameters;
+import org.quifft.params.Precision;
+import org.quifft.sampling.SampleWindowExtractor;
+
+import java.util.stream.IntStream;
+
+/**
+ * Computes every {@link FFTFrame} of a full FFT, grouping frames into batches and optionally computing batches in
+ * parallel
+ * <p>When a batch can be computed with {@link BatchFFT}, it is sized so that its working buffers stay in cache.
+ * Otherwise each batch holds a single frame.  Each frame's start time only depends on its index, so batches can be
+ * computed in any order and on any thread.</p>
+ */
+public class FFTFrameScheduler {
+
+    // target size in bytes of the working buffers of one batch (about the size of a core's L2 cache)
+    private static final int BATCH_BYTES = 256 * 1024;
+
+    // maximum number of frames in a batch
+    private static final int MAX_BATCH_SIZE = 64;
+
+    /**
+     * Computes frames by extracting sample windows and transforming them
+     * @param windowExtractor extractor from which the sample window of each frame is taken
+     * @param frames array to be filled with computed frames; its length is the number of frames computed
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT; {@code isParallel} selects parallel computation
+     */
+    public static void computeFrames(SampleWindowExtractor windowExtractor, FFTFrame[] frames,
+                                     double windowDurationMs, double fileDurationMs, float audioSampleRate,
+                                     FFTParameters fftParameters) {
+        computeFrames(windowExtractor, frames, 0, frames.length, 0, windowDurationMs, fileDurationMs, audioSampleRate,
+                fftParameters);
+    }
+
+    /**
+     * Computes a range of consecutive frames by extracting sample windows and transforming them
+     * @param windowExtractor extractor from which the sample window of each frame is taken
+     * @param frames array to be filled with computed frames
+     * @param first index of first frame to compute
+     * @param count number of frames to compute
+     * @param startMs timestamp in the audio file at which the window of frame 0 begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT; {@code isParallel} selects parallel computation
+     */
+    public static void computeFrames(SampleWindowExtractor windowExtractor, FFTFrame[] frames, int first, int count,
+                                     double startMs, double windowDurationMs, double fileDurationMs,
+                                     float audioSampleRate, FFTParameters fftParameters) {
+        int batchSize = batchSize(fftParameters, count);
+        int batchCount = (count + batchSize - 1) / batchSize;
+
+        IntStream batches = IntStream.range(0, batchCount);
+        if(fftParameters.isParallel) {
+            batches = batches.parallel();
+        }
+        batches.forEach(batch -> computeBatch(windowExtractor, frames, first + batch * batchSize,
+                Math.min(batchSize, count - batch * batchSize), startMs,
+                windowDurationMs, fileDurationMs, audioSampleRate, fftParameters));
+    }
+
+    /**
+     * Computes a single batch of consecutive frames
+     * @param windowExtractor extractor from which the sample window of each frame is taken
+     * @param frames array to be filled with computed frames
+     * @param first index of first frame in batch
+     * @param count number of frames in batch
+     * @param startMs timestamp in the audio file at which the window of frame 0 begins
+     * @param windowDurationMs duration of sample window in milliseconds
+     * @param fileDurationMs duration of entire audio file in milliseconds
+     * @param audioSampleRate sample rate of audio file
+     * @param fftParameters parameters used for this FFT
+     */
+    private static void computeBatch(SampleWindowExtractor windowExtractor, FFTFrame[] frames, int first, int count,
+                                     double startMs, double windowDurationMs, double fileDurationMs,
+                                     float audioSampleRate, FFTParameters fftParameters) {
+        double frameSpacingMs = windowDurationMs * (1 - fftParameters.windowOverlap);
+
+        if(count == 1) {
+            frames[first] = FFTComputationWrapper.doFFT(windowExtractor.extractWindow(first),
+                    startMs + first * frameSpacingMs, windowDurationMs, fileDurationMs, audioSampleRate, fftParameters);
+            return;
+        }
+
+        int[][] windows = new int[count][];
+        double[] startTimesMs = new double[count];
+        for(int b = 0; b < count; b++) {
+            windows[b] = windowExtractor.extractWindow(first + b);
+            startTimesMs[b] = startMs + (first + b) * frameSpacingMs;
+        }
+
+        FFTComputationWrapper.doFFTBatch(windows, count, startTimesMs, windowDurationMs, fileDurationMs,
+                audioSampleRate, fftParameters, frames, first);
+    }
+
+    /**
+     * Chooses the number of frames per batch
+     * <p>Batches are only used with the default engine, double precision and no target frequencies or zoom band,
+     * since the other settings ask for a specific algorithm.  Windows zero-padded to at least twice their length aren't
+     * batched either, since a pruned transform of a single window (see {@link PrunedFFT}) skips more work than a batch
+     * saves.</p>
+     * @param fftParameters parameters used for this FFT
+     * @param frameCount total number of frames
+     * @return number of frames per batch (1 if frames can't be batched)
+     */
+    private static int batchSize(FFTParameters fftParameters, int frameCount) {
+        int length = fftParameters.totalWindowLength();
+        if(fftParameters.engine != FFTEngineType.AUTO || fftParameters.precision != Precision.DOUBLE
+                || fftParameters.targetFrequencies != null || fftParameters.zoomBins != null
+                || !BatchFFT.supports(length)
+                || PrunedFFT.pruningFactor(length / 2, (fftParameters.windowSize + 1) / 2) > 1) {
+            return 1;
+        }
+
+        // real and imaginary buffers of N/2 doubles per frame
+        int bytesPerFrame = (length / 2) * 2 * Double.BYTES;
+        int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, BATCH_BYTES / bytesPerFrame));
+        return Math.max(1, Math.min(batchSize, frameCount));
+    }
+
+}
@@ -0,0 +1,605 @@
+package org.quifft.fft;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed tables for FFTs of a single transform size
+ * <p>A plan holds everything about a transform that doesn't depend on the signal being transformed: for powers of 2,
+ * the twiddle factors of every butterfly stage and the list of swaps that make up the bit reversal permutation; for
+ * other sizes, the factorization used by {@link MixedRadixFFT} and its twiddle factors, or the chirp tables used by
+ * {@link BluesteinFFT}.  It also holds the twiddle factors used by {@link RealFFT}, single precision copies of the
+ * tables used by {@link FloatFFT}, and per-thread scratch buffers.  Building a plan costs about as much as a single
+ * FFT, so plans are built once per size and kept in a bounded cache; every subsequent FFT of that size only computes
+ * butterflies.</p>
+ * @see DoubleFFT
+ */
+public class FFTPlan {
+
+    // maximum number of plans kept in cache; least recently used plans are evicted first
+    private static final int MAX_CACHED_PLANS = 16;
+
+    // radices with specialized butterflies in MixedRadixFFT, in the order they are applied
+    private static final int[] RADICES = {4, 2, 3, 5};
+
+    // plans cached by transform size, in access order
+    private static final Map<Integer, FFTPlan> planCache = new LinkedHashMap<Integer, FFTPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, FFTPlan> eldest) {
+            return size() > MAX_CACHED_PLANS;
+        }
+    };
+
+    // number of points in transform
+    private final int n;
+
+    // twiddle factors of each butterfly stage, stored contiguously: stage with half-length h begins at index h - 1
+    // (only for powers of 2)
+    private double[] twiddleRe;
+    private double[] twiddleIm;
+
+    // pairs of indices (i, j) to be swapped for bit reversal permutation, flattened into a single array
+    // (only for powers of 2)
+    private int[] bitReversalSwaps;
+
+    // radices whose product is n, or null if n has a prime factor without a specialized butterfly
+    private int[] factors;
+
+    // twiddle factors e^(-2*pi*i*j/n) for 0 <= j < n (built on first use by MixedRadixFFT or PrunedFFT)
+    private volatile double[] rootsRe;
+    private double[] rootsIm;
+
+    // twiddle factors e^(-2*pi*i*k/2n) used to unpack the transform of a real signal of length 2n
+    private final double[] realTwiddleRe;
+    private final double[] realTwiddleIm;
+
+    // chirp e^(-pi*i*k^2/n), FFT of its conjugate, and plan for the power of 2 convolution length
+    // (built on first use by BluesteinFFT)
+    private volatile double[] chirpRe;
+    private double[] chirpIm;
+    private double[] kernelRe;
+    private double[] kernelIm;
+    private FFTPlan convolutionPlan;
+
+    // number of rows n1 of the matrix a four-step transform is split into, and twiddle factors e^(-2*pi*i*j/n) for
+    // j < n1 and e^(-2*pi*i*j*n1/n) for j < n / n1 (built on first use by FourStepFFT)
+    private volatile double[] fourStepLowRe;
+    private double[] fourStepLowIm;
+    private double[] fourStepHighRe;
+    private double[] fourStepHighIm;
+
+    // single precision copies of the radix 2 and real signal twiddle factors (built on first use by FloatFFT)
+    private volatile float[] floatRealTwiddleRe;
+    private float[] floatRealTwiddleIm;
+    private float[] floatTwiddleRe;
+    private float[] floatTwiddleIm;
+
+    // scratch buffers of length n, one pair per thread
+    private final ThreadLocal<double[][]> scratch;
+
+    // single precision scratch buffers of length n, one pair per thread
+    private final ThreadLocal<float[][]> floatScratch;
+
+    // scratch buffers for batches of signals (see BatchFFT), one pair per thread
+    private final ThreadLocal<double[][]> batchScratch = new ThreadLocal<double[][]>();
+
+    // working buffers used internally by the transforms, one pair per thread
+    private final ThreadLocal<double[][]> work = new ThreadLocal<double[][]>();
+
+    /**
+     * Gets the plan for transforms of a given size, building it if it isn't already cached
+     * @param n number of points in transform
+     * @return plan for transforms of size n
+     */
+    public static FFTPlan forSize(int n) {
+        synchronized(planCache) {
+            FFTPlan plan = planCache.get(n);
+            if(plan == null) {
+                plan = new FFTPlan(n);
+                planCache.put(n, plan);
+            }
+            return plan;
+        }
+    }
+
+    private FFTPlan(final int n) {
+        this.n = n;
+
+        if(isPowerOfTwo(n)) {
+            createRadix2Tables();
+        }
+        factors = factor(n);
+
+        // twiddle factors for real signals of length 2n (see RealFFT)
+        realTwiddleRe = new double[n];
+        realTwiddleIm = new double[n];
+        for(int k = 0; k < n; k++) {
+            double kth = -Math.PI * k / n;
+            realTwiddleRe[k] = Math.cos(kth);
+            realTwiddleIm[k] = Math.sin(kth);
+        }
+
+        scratch = new ThreadLocal<double[][]>() {
+            @Override
+            protected double[][] initialValue() {
+                return new double[2][n];
+            }
+        };
+        floatScratch = new ThreadLocal<float[][]>() {
+            @Override
+            protected float[][] initialValue() {
+                return new float[2][n];
+            }
+        };
+    }
+
+    private void createRadix2Tables() {
+        // twiddle factors w = e^(-2*pi*i*k/L) for each stage of length L = 2h
+        twiddleRe = new double[Math.max(n - 1, 0)];
+        twiddleIm = new double[twiddleRe.length];
+        for(int h = 1; h < n; h *= 2) {
+            for(int k = 0; k < h; k++) {
+                double kth = -Math.PI * k / h;
+                twiddleRe[h - 1 + k] = Math.cos(kth);
+                twiddleIm[h - 1 + k] = Math.sin(kth);
+            }
+        }
+
+        // bit reversal swaps
+        int shift = 1 + Integer.numberOfLeadingZeros(n);
+        int swapCount = 0;
+        int[] swaps = new int[n];
+        for(int k = 0; k < n; k++) {
+            int j = Integer.reverse(k) >>> shift;
+            if(j > k) {
+                swaps[swapCount++] = k;
+                swaps[swapCount++] = j;
+            }
+        }
+        bitReversalSwaps = new int[swapCount];
+        System.arraycopy(swaps, 0, bitReversalSwaps, 0, swapCount);
+    }
+
+    /**
+     * Builds the tables used by {@link MixedRadixFFT}, if they haven't been built already
+     */
+    private synchronized void createMixedRadixTables() {
+        if(rootsRe != null) return;
+
+        double[] wRe = new double[n];
+        double[] wIm = new double[n];
+        for(int j = 0; j < n; j++) {
+            double jth = -2 * Math.PI * j / n;
+            wRe[j] = Math.cos(jth);
+            wIm[j] = Math.sin(jth);
+        }
+
+        rootsIm = wIm;
+        rootsRe = wRe; // written last; volatile write publishes the other table
+    }
+
+    /**
+     * Builds the tables used by {@link BluesteinFFT}, if they haven't been built already
+     */
+    private synchronized void createBluesteinTables() {
+        if(chirpRe != null) return;
+
+        int m = Integer.highestOneBit(Math.max(2 * n - 1, 1));
+        if(m < 2 * n - 1) m *= 2;
+
+        // chirp w[k] = e^(-pi*i*k^2/n); k^2 is reduced mod 2n to keep the angle (and its rounding error) small
+        double[] wRe = new double[n];
+        double[] wIm = new double[n];
+        for(int k = 0; k < n; k++) {
+            long kSquared = ((long) k * k) % (2L * n);
+            double kth = -Math.PI * kSquared / n;
+            wRe[k] = Math.cos(kth);
+            wIm[k] = Math.sin(kth);
+        }
+
+        // convolution kernel is the conjugate chirp, wrapped around so negative indices sit at the end
+        FFTPlan plan = FFTPlan.forSize(m);
+        double[] bRe = new double[m];
+        double[] bIm = new double[m];
+        bRe[0] = wRe[0];
+        bIm[0] = -wIm[0];
+        for(int k = 1; k < n; k++) {
+            bRe[k] = bRe[m - k] = wRe[k];
+            bIm[k] = bIm[m - k] = -wIm[k];
+        }
+        DoubleFFT.fft(bRe, bIm, plan);
+
+        chirpIm = wIm;
+        kernelRe = bRe;
+        kernelIm = bIm;
+        convolutionPlan = plan;
+        chirpRe = wRe; // written last; volatile write publishes the other tables
+    }
+
+    /**
+     * Builds the tables used by {@link FourStepFFT}, if they haven't been built already
+     */
+    private synchronized void createFourStepTables() {
+        if(fourStepLowRe != null) return;
+
+        int n1 = fourStepRows();
+        int n2 = n / n1;
+
+        double[] lowRe = new double[n1];
+        double[] lowIm = new double[n1];
+        for(int j = 0; j < n1; j++) {
+            double jth = -2 * Math.PI * j / n;
+            lowRe[j] = Math.cos(jth);
+            lowIm[j] = Math.sin(jth);
+        }
+
+        double[] highRe = new double[n2];
+        double[] highIm = new double[n2];
+        for(int j = 0; j < n2; j++) {
+            double jth = -2 * Math.PI * ((long) j * n1) / n;
+            highRe[j] = Math.cos(jth);
+            highIm[j] = Math.sin(jth);
+        }
+
+        fourStepLowIm = lowIm;
+        fourStepHighRe = highRe;
+        fourStepHighIm = highIm;
+        fourStepLowRe = lowRe; // written last; volatile write publishes the other tables
+    }
+
+    /**
+     * Builds the single precision tables used by {@link FloatFFT}, if they haven't been built already
+     */
+    private synchronized void createFloatTables() {
+        if(floatRealTwiddleRe != null) return;
+
+        if(twiddleRe != null) {
+            floatTwiddleRe = toFloat(twiddleRe);
+            floatTwiddleIm = toFloat(twiddleIm);
+        }
+        floatRealTwiddleIm = toFloat(realTwiddleIm);
+        floatRealTwiddleRe = toFloat(realTwiddleRe); // written last; volatile write publishes the other tables
+    }
+
+    /**
+     * Rounds every value of an array to single precision
+     * @param values double precision values
+     * @return single precision copy of values
+     */
+    private static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for(int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    /**
+     * Splits n into the radices of {@link MixedRadixFFT}
+     * @param n number of points in transform
+     * @return radices whose product is n, or null if n has any other prime factor
+     */
+    private static int[] factor(int n) {
+        int[] factors = new int[32];
+        int count = 0;
+        for(int radix : RADICES) {
+            while(n % radix == 0 && n > 1) {
+                factors[count++] = radix;
+                n /= radix;
+            }
+        }
+        if(n != 1) return null;
+
+        int[] result = new int[count];
+        System.arraycopy(factors, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Checks whether a number is a product of the radices of {@link MixedRadixFFT}
+     * @param n number to check
+     * @return true if n is a product of 2, 3 and 5
+     */
+    static boolean isMixedRadixSize(int n) {
+        return n > 0 && factor(n) != null;
+    }
+
+    /**
+     * Checks whether a number is a power of 2 (including 1)
+     * @param n number to check
+     * @return true if n is a power of 2
+     */
+    static boolean isPowerOfTwo(int n) {
+        return n > 0 && (n & (n - 1)) == 0;
+    }
+
+    /**
+     * Get number of points in transforms computed with this plan
+     * @return number of points in transform
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Check whether this plan's size can be computed with the radix 2 butterflies of {@link DoubleFFT}
+     * @return true if size is a power of 2
+     */
+    boolean isRadix2() {
+        return bitReversalSwaps != null;
+    }
+
+    /**
+     * Check whether this plan's size can be computed with the butterflies of {@link MixedRadixFFT}
+     * @return true if size is a product of 2, 3, 4 and 5 (including powers of 2)
+     */
+    boolean isMixedRadix() {
+        return factors != null;
+    }
+
+    /**
+     * Get real parts of twiddle factors, stored stage by stage (stage with half-length h begins at index h - 1)
+     * @return real parts of twiddle factors
+     */
+    double[] twiddleRe() {
+        return twiddleRe;
+    }
+
+    /**
+     * Get imaginary parts of twiddle factors, stored stage by stage (stage with half-length h begins at index h - 1)
+     * @return imaginary parts of twiddle factors
+     */
+    double[] twiddleIm() {
+        return twiddleIm;
+    }
+
+    /**
+     * Get pairs of indices to be swapped for bit reversal permutation
+     * @return flattened array of index pairs
+     */
+    int[] bitReversalSwaps() {
+        return bitReversalSwaps;
+    }
+
+    /**
+     * Get radices used by {@link MixedRadixFFT}, in the order they are applied
+     * @return radices whose product is n
+     */
+    int[] factors() {
+        return factors;
+    }
+
+    /**
+     * Get real parts of twiddle factors e^(-2*pi*i*j/n) used by {@link MixedRadixFFT} and {@link PrunedFFT}
+     * @return real parts of twiddle factors
+     */
+    double[] rootsRe() {
+        if(rootsRe == null) createMixedRadixTables();
+        return rootsRe;
+    }
+
+    /**
+     * Get imaginary parts of twiddle factors e^(-2*pi*i*j/n) used by {@link MixedRadixFFT} and {@link PrunedFFT}
+     * @return imaginary parts of twiddle factors
+     */
+    double[] rootsIm() {
+        if(rootsRe == null) createMixedRadixTables();
+        return rootsIm;
+    }
+
+    /**
+     * Get real parts of twiddle factors used to unpack the transform of a real signal of length 2n
+     * @return real parts of twiddle factors e^(-2*pi*i*k/2n)
+     */
+    double[] realTwiddleRe() {
+        return realTwiddleRe;
+    }
+
+    /**
+     * Get imaginary parts of twiddle factors used to unpack the transform of a real signal of length 2n
+     * @return imaginary parts of twiddle factors e^(-2*pi*i*k/2n)
+     */
+    double[] realTwiddleIm() {
+        return realTwiddleIm;
+    }
+
+    /**
+     * Get number of rows of the matrix a four-step transform of this plan's size is split into
+     * @return smallest power of 2 whose square is at least n
+     */
+    int fourStepRows() {
+        int log = Integer.numberOfTrailingZeros(n);
+        return 1 << ((log + 1) / 2);
+    }
+
+    /**
+     * Get real parts of the fine four-step twiddle factors e^(-2*pi*i*j/n) for j less than the number of rows
+     * @return real parts of fine twiddle factors
+     */
+    double[] fourStepLowRe() {
+        if(fourStepLowRe == null) createFourStepTables();
+        return fourStepLowRe;
+    }
+
+    /**
+     * Get imaginary parts of the fine four-step twiddle factors e^(-2*pi*i*j/n) for j less than the number of rows
+     * @return imaginary parts of fine twiddle factors
+     */
+    double[] fourStepLowIm() {
+        if(fourStepLowRe == null) createFourStepTables();
+        return fourStepLowIm;
+    }
+
+    /**
+     * Get real parts of the coarse four-step twiddle factors e^(-2*pi*i*j*n1/n), where n1 is the number of rows
+     * @return real parts of coarse twiddle factors
+     */
+    double[] fourStepHighRe() {
+        if(fourStepLowRe == null) createFourStepTables();
+        return fourStepHighRe;
+    }
+
+    /**
+     * Get imaginary parts of the coarse four-step twiddle factors e^(-2*pi*i*j*n1/n), where n1 is the number of rows
+     * @return imaginary parts of coarse twiddle factors
+     */
+    double[] fourStepHighIm() {
+        if(fourStepLowRe == null) createFourStepTables();
+        return fourStepHighIm;
+    }
+
+    /**
+     * Get single precision real parts of radix 2 twiddle factors (see {@link #twiddleRe()})
+     * @return real parts of twiddle factors, or null if size isn't a power of 2
+     */
+    float[] floatTwiddleRe() {
+        if(floatRealTwiddleRe == null) createFloatTables();
+        return floatTwiddleRe;
+    }
+
+    /**
+     * Get single precision imaginary parts of radix 2 twiddle factors (see {@link #twiddleIm()})
+     * @return imaginary parts of twiddle factors, or null if size isn't a power of 2
+     */
+    float[] floatTwiddleIm() {
+        if(floatRealTwiddleRe == null) createFloatTables();
+        return floatTwiddleIm;
+    }
+
+    /**
+     * Get single precision real parts of twiddle factors used to unpack the transform of a real signal of length 2n
+     * @return real parts of twiddle factors e^(-2*pi*i*k/2n)
+     */
+    float[] floatRealTwiddleRe() {
+        if(floatRealTwiddleRe == null) createFloatTables();
+        return floatRealTwiddleRe;
+    }
+
+    /**
+     * Get single precision imaginary parts of twiddle factors used to unpack the transform of a real signal of
+     * length 2n
+     * @return imaginary parts of twiddle factors e^(-2*pi*i*k/2n)
+     */
+    float[] floatRealTwiddleIm() {
+        if(floatRealTwiddleRe == null) createFloatTables();
+        return floatRealTwiddleIm;
+    }
+
+    /**
+     * Get real parts of chirp e^(-pi*i*k^2/n) used by {@link BluesteinFFT}
+     * @return real parts of chirp
+     */
+    double[] chirpRe() {
+        if(chirpRe == null) createBluesteinTables();
+        return chirpRe;
+    }
+
+    /**
+     * Get imaginary parts of chirp e^(-pi*i*k^2/n) used by {@link BluesteinFFT}
+     * @return imaginary parts of chirp
+     */
+    double[] chirpIm() {
+        if(chirpRe == null) createBluesteinTables();
+        return chirpIm;
+    }
+
+    /**
+     * Get real parts of FFT of convolution kernel used by {@link BluesteinFFT}
+     * @return real parts of transformed kernel
+     */
+    double[] kernelRe() {
+        if(chirpRe == null) createBluesteinTables();
+        return kernelRe;
+    }
+
+    /**
+     * Get imaginary parts of FFT of convolution kernel used by {@link BluesteinFFT}
+     * @return imaginary parts of transformed kernel
+     */
+    double[] kernelIm() {
+        if(chirpRe == null) createBluesteinTables();
+        return kernelIm;
+    }
+
+    /**
+     * Get plan for the power of 2 convolution computed by {@link BluesteinFFT}
+     * @return plan whose size is at least 2n - 1
+     */
+    FFTPlan convolutionPlan() {
+        if(chirpRe == null) createBluesteinTables();
+        return convolutionPlan;
+    }
+
+    /**
+     * Get real scratch buffer of length n belonging to the current thread
+     * <p>The buffer is reused by every call from the same thread, so its contents are only valid until the next
+     * computation on this thread that uses it.</p>
+     * @return real scratch buffer
+     */
+    public double[] scratchRe() {
+        return scratch.get()[0];
+    }
+
+    /**
+     * Get imaginary scratch buffer of length n belonging to the current thread
+     * <p>The buffer is reused by every call from the same thread, so its contents are only valid until the next
+     * computation on this thread that uses it.</p>
+     * @return imaginary scratch buffer
+     */
+    public double[] scratchIm() {
+        return scratch.get()[1];
+    }
+
+    /**
+     * Get single precision real scratch buffer of length n belonging to the current thread
+     * <p>The buffer is reused by every call from the same thread, so its contents are only valid until the next
+     * computation on this thread that uses it.</p>
+     * @return real scratch buffer
+     */
+    public float[] floatScratchRe() {
+        return floatScratch.get()[0];
+    }
+
+    /**
+     * Get single precision imaginary scratch buffer of length n belonging to the current thread
+     * <p>The buffer is reused by every call from the same thread, so its contents are only valid until the next
+     * computation on this thread that uses it.</p>
+     * @return imaginary scratch buffer
+     */
+    public float[] floatScratchIm() {
+        return floatScratch.get()[1];
+    }
+
+    /**
+     * Get pair of scratch buffers large enough to hold a batch of signals of length n, belonging to the current thread
+     * <p>The buffers are reused by every call from the same thread, so their contents are only valid until the next
+     * computation on this thread that uses them.</p>
+     * @param count number of signals in batch
+     * @return real and imaginary scratch buffers of length at least {@code n * count}
+     */
+    public double[][] batchScratch(int count) {
+        double[][] buffers = batchScratch.get();
+        if(buffers == null || buffers[0].length < n * count) {
+            buffers = new double[2][n * count];
+            batchScratch.set(buffers);
+        }
+        return buffers;
+    }
+
+    /**
+     * Get pair of working buffers of at least a given length belonging to the current thread
+     * <p>Unlike the scratch buffers, these are only used inside the transforms themselves, so a caller may pass
+     * the scratch buffers to a transform that uses the working buffers.</p>
+     * @param length minimum length of buffers
+     * @return real and imaginary working buffers
+     */
+    double[][] work(int length) {
+        double[][] buffers = work.get();
+        if(buffers == null || buffers[0].length < length) {
+            buffers = new double[2][length];
+            work.set(buffers);
+        }
+        return buffers;
+    }
+
+}
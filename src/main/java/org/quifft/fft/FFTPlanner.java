@@ -0,0 +1,284 @@
+package org.quifft.fft;
+
+import org.quifft.params.FFTEngineType;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Chooses which {@link FFTEngine} computes transforms of a given size
+ * <p>With {@link FFTEngineType#CALIBRATED}, the planner benchmarks every engine that supports a transform size the
+ * first time that size is requested and remembers the fastest one ("wisdom").  The best engine for a size depends on
+ * the CPU, so wisdom can be persisted to a wisdom file: it is read when the file is set and rewritten whenever a new
+ * size is calibrated.  The wisdom file can be set with {@link #setWisdomFile(File)} or with the
+ * {@code quifft.wisdom} system property.</p>
+ */
+public class FFTPlanner {
+
+    // system property that can be used to set the wisdom file
+    private static final String WISDOM_FILE_PROPERTY = "quifft.wisdom";
+
+    // minimum total time spent timing each engine during calibration
+    private static final long CALIBRATION_TIME_NS = 20_000_000;
+
+    // number of timed trials per engine; the fastest trial is used
+    private static final int CALIBRATION_TRIALS = 3;
+
+    // smallest transform for which AUTO prefers the vector engine; shorter transforms are mostly scalar stages
+    private static final int VECTOR_MIN_SIZE = 64;
+
+    // smallest transform for which AUTO prefers the four-step engine; below this, radix 2 transforms fit in cache
+    private static final int FOUR_STEP_MIN_SIZE = 1 << 22;
+
+    /**
+     * Default smallest number of points in an FFT for which {@link FFTEngineType#AUTO} computes each transform on
+     * multiple threads
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 19;
+
+    // fastest engine found for each calibrated transform size
+    private static final Map<Integer, FFTEngine> wisdom = new ConcurrentHashMap<>();
+
+    // file wisdom is loaded from and saved to, or null if wisdom is only kept in memory
+    private static File wisdomFile;
+
+    static {
+        String wisdomFileName = System.getProperty(WISDOM_FILE_PROPERTY);
+        if(wisdomFileName != null) {
+            setWisdomFile(new File(wisdomFileName));
+        }
+    }
+
+    /**
+     * Gets the engine that should compute transforms of a given size, using the default parallel threshold
+     * @param n number of points in transform
+     * @param engineType engine requested by FFT parameters
+     * @return engine for transforms of size n
+     * @throws IllegalArgumentException if requested engine doesn't support transforms of size n
+     */
+    public static FFTEngine engineFor(int n, FFTEngineType engineType) {
+        return engineFor(n, engineType, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Gets the engine that should compute transforms of a given size
+     * @param n number of points in transform
+     * @param engineType engine requested by FFT parameters
+     * @param parallelThreshold smallest transform size for which {@link FFTEngineType#AUTO} chooses the parallel
+     *                          engine
+     * @return engine for transforms of size n
+     * @throws IllegalArgumentException if requested engine doesn't support transforms of size n
+     */
+    public static FFTEngine engineFor(int n, FFTEngineType engineType, int parallelThreshold) {
+        switch(engineType) {
+            case CALIBRATED:
+                return calibratedEngineFor(n);
+            case RADIX_2:
+                return requireSupport(FFTEngines.RADIX_2, n);
+            case MIXED_RADIX:
+                return requireSupport(FFTEngines.MIXED_RADIX, n);
+            case BLUESTEIN:
+                return requireSupport(FFTEngines.BLUESTEIN, n);
+            case FOUR_STEP:
+                return requireSupport(FFTEngines.FOUR_STEP, n);
+            case PARALLEL_FOUR_STEP:
+                return requireSupport(FFTEngines.PARALLEL_FOUR_STEP, n);
+            case VECTOR:
+                if(!FFTEngines.isVectorAvailable())
+                    throw new IllegalArgumentException("Vector FFT engine requires Java 17 or later with the " +
+                            "jdk.incubator.vector module");
+                return requireSupport(FFTEngines.VECTOR, n);
+            case AUTO:
+            default:
+                if(n >= parallelThreshold && FFTEngines.PARALLEL_FOUR_STEP.supports(n)
+                        && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                    return FFTEngines.PARALLEL_FOUR_STEP;
+                }
+                return estimatedEngineFor(n);
+        }
+    }
+
+    /**
+     * Sets file from which wisdom is loaded and to which it is saved, and loads any wisdom it already contains
+     * <p>Entries for engines that aren't available are ignored.  If the file can't be read, calibration simply
+     * starts from scratch.</p>
+     * @param file wisdom file, or null to only keep wisdom in memory
+     */
+    public static synchronized void setWisdomFile(File file) {
+        wisdomFile = file;
+        if(file == null || !file.isFile()) return;
+
+        Properties properties = new Properties();
+        try(InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch(IOException e) {
+            System.err.println("Could not read FFT wisdom file " + file + ": " + e.getMessage());
+            return;
+        }
+
+        for(String size : properties.stringPropertyNames()) {
+            FFTEngine engine = FFTEngines.forName(properties.getProperty(size));
+            try {
+                int n = Integer.parseInt(size);
+                if(engine != null && engine.supports(n)) {
+                    wisdom.put(n, engine);
+                }
+            } catch(NumberFormatException e) {
+                // ignore malformed entry
+            }
+        }
+    }
+
+    /**
+     * Discards all wisdom kept in memory (the wisdom file, if any, is left untouched)
+     */
+    public static void forgetWisdom() {
+        wisdom.clear();
+    }
+
+    /**
+     * Chooses an engine from the transform size alone, without benchmarking
+     * @param n number of points in transform
+     * @return engine for transforms of size n
+     */
+    private static FFTEngine estimatedEngineFor(int n) {
+        if(FFTEngines.FOUR_STEP.supports(n) && n >= FOUR_STEP_MIN_SIZE) return FFTEngines.FOUR_STEP;
+        if(FFTEngines.isVectorAvailable() && FFTEngines.VECTOR.supports(n) && n >= VECTOR_MIN_SIZE)
+            return FFTEngines.VECTOR;
+        if(FFTEngines.RADIX_2.supports(n)) return FFTEngines.RADIX_2;
+        if(FFTEngines.MIXED_RADIX.supports(n)) return FFTEngines.MIXED_RADIX;
+        return FFTEngines.BLUESTEIN;
+    }
+
+    /**
+     * Gets fastest engine for a transform size, benchmarking every engine that supports it if this is the first time
+     * @param n number of points in transform
+     * @return fastest engine for transforms of size n
+     */
+    private static FFTEngine calibratedEngineFor(int n) {
+        FFTEngine engine = wisdom.get(n);
+        if(engine != null) return engine;
+
+        synchronized(FFTPlanner.class) {
+            engine = wisdom.get(n);
+            if(engine == null) {
+                engine = calibrate(n);
+                wisdom.put(n, engine);
+                saveWisdom();
+            }
+            return engine;
+        }
+    }
+
+    /**
+     * Benchmarks every engine that supports a transform size
+     * @param n number of points in transform
+     * @return engine that computed transforms of size n fastest
+     */
+    private static FFTEngine calibrate(int n) {
+        FFTPlan plan = FFTPlan.forSize(n);
+        double[] re = new double[n];
+        double[] im = new double[n];
+
+        FFTEngine fastestEngine = estimatedEngineFor(n);
+        double fastestTime = Double.MAX_VALUE;
+        for(FFTEngine engine : FFTEngines.all()) {
+            if(!engine.supports(n)) continue;
+
+            double time = timeEngine(engine, plan, re, im);
+            if(time < fastestTime) {
+                fastestTime = time;
+                fastestEngine = engine;
+            }
+        }
+
+        return fastestEngine;
+    }
+
+    /**
+     * Measures the time an engine takes to compute one transform
+     * @param engine engine to be timed
+     * @param plan plan for transform size
+     * @param re real buffer of transform size
+     * @param im imaginary buffer of transform size
+     * @return fastest time measured for a single transform, in nanoseconds
+     */
+    private static double timeEngine(FFTEngine engine, FFTPlan plan, double[] re, double[] im) {
+        // warm up (also builds any tables the engine needs) and estimate how many repetitions fill a trial
+        long start = System.nanoTime();
+        int warmups = 0;
+        do {
+            fillSignal(re, im);
+            engine.fft(re, im, plan);
+            warmups++;
+        } while(System.nanoTime() - start < CALIBRATION_TIME_NS / (2 * CALIBRATION_TRIALS));
+        long estimate = Math.max(1, (System.nanoTime() - start) / warmups);
+        long repetitions = Math.max(1, CALIBRATION_TIME_NS / CALIBRATION_TRIALS / estimate);
+
+        double fastest = Double.MAX_VALUE;
+        for(int trial = 0; trial < CALIBRATION_TRIALS; trial++) {
+            long trialStart = System.nanoTime();
+            for(long i = 0; i < repetitions; i++) {
+                fillSignal(re, im);
+                engine.fft(re, im, plan);
+            }
+            fastest = Math.min(fastest, (double) (System.nanoTime() - trialStart) / repetitions);
+        }
+
+        return fastest;
+    }
+
+    /**
+     * Fills benchmark buffers with a signal that keeps values bounded across repeated transforms
+     * @param re real buffer
+     * @param im imaginary buffer
+     */
+    private static void fillSignal(double[] re, double[] im) {
+        for(int i = 0; i < re.length; i++) {
+            re[i] = i % 7;
+            im[i] = 0;
+        }
+    }
+
+    /**
+     * Writes all wisdom kept in memory to the wisdom file, if one is set
+     */
+    private static synchronized void saveWisdom() {
+        if(wisdomFile == null) return;
+
+        Properties properties = new Properties();
+        for(Map.Entry<Integer, FFTEngine> entry : wisdom.entrySet()) {
+            properties.setProperty(entry.getKey().toString(), entry.getValue().getName());
+        }
+
+        try(OutputStream out = new FileOutputStream(wisdomFile)) {
+            properties.store(out, "QuiFFT wisdom: fastest FFT engine for each transform size");
+        } catch(IOException e) {
+            System.err.println("Could not write FFT wisdom file " + wisdomFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that an explicitly requested engine supports a transform size
+     * @param engine requested engine
+     * @param n number of points in transform
+     * @return the requested engine
+     * @throws IllegalArgumentException if engine doesn't support transforms of size n
+     */
+    private static FFTEngine requireSupport(FFTEngine engine, int n) {
+        if(!engine.supports(n))
+            throw new IllegalArgumentException(String.format("FFT engine %s doesn't support transforms of size %d",
+                    engine.getName(), n));
+
+        return engine;
+    }
+
+}
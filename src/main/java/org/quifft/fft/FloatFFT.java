@@ -0,0 +1,147 @@
+package org.quifft.fft;
+
+/**
+ * Class to perform FFT computation on real signals in single precision
+ * <p>This is the {@code float} counterpart of {@link RealFFT} combined with the radix 2 butterflies of
+ * {@link DoubleFFT}: the real signal of length N is packed into an N/2-point complex signal, transformed and
+ * unpacked, all in {@code float} arrays with single precision twiddle factors from the {@link FFTPlan}.
+ * Halving the width of every value halves the memory traffic of each butterfly stage.</p>
+ * <p>Only power of 2 half-lengths have a single precision kernel; see {@link #supports(int)}.</p>
+ */
+public class FloatFFT {
+
+    /**
+     * Checks whether a real signal of a given length can be transformed in single precision
+     * @param n length of real signal
+     * @return true if n is twice a power of 2
+     */
+    public static boolean supports(int n) {
+        return n % 2 == 0 && FFTPlan.isPowerOfTwo(n / 2);
+    }
+
+    /**
+     * Computes the first N/2 bins of the FFT of a real signal of length N in single precision
+     * @param signal real signal whose length N is twice a power of 2
+     * @param re array of length at least N/2 to hold real parts of FFT result
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result
+     * @param plan plan for complex transforms of length N/2
+     */
+    public static void fft(int[] signal, float[] re, float[] im, FFTPlan plan) {
+        fft(signal, 0, plan.size() - 1, re, im, plan);
+    }
+
+    /**
+     * Computes a band of the first N/2 bins of the FFT of a real signal of length N in single precision, skipping
+     * the unpacking of bins outside of the band
+     * @param signal real signal whose length N is twice a power of 2
+     * @param firstBin index of first bin of band
+     * @param lastBin index of last bin of band, less than N/2
+     * @param re array of length at least N/2 to hold real parts of FFT result; only bins in the band are computed
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result; only bins in the band are computed
+     * @param plan plan for complex transforms of length N/2
+     */
+    public static void fft(int[] signal, int firstBin, int lastBin, float[] re, float[] im, FFTPlan plan) {
+        int half = plan.size();
+
+        // pack even samples into real parts and odd samples into imaginary parts
+        for(int j = 0; j < half; j++) {
+            re[j] = signal[2 * j];
+            im[j] = signal[2 * j + 1];
+        }
+
+        radix2(re, im, plan);
+
+        unpack(re, im, plan, firstBin, lastBin);
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose length is a power of 2 in place, in single precision
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    static void radix2(float[] re, float[] im, FFTPlan plan) {
+        int n = plan.size();
+
+        // bit reversal permutation
+        int[] swaps = plan.bitReversalSwaps();
+        for(int s = 0; s < swaps.length; s += 2) {
+            int k = swaps[s];
+            int j = swaps[s + 1];
+
+            float temp = re[j];
+            re[j] = re[k];
+            re[k] = temp;
+
+            temp = im[j];
+            im[j] = im[k];
+            im[k] = temp;
+        }
+
+        // butterfly updates
+        float[] twiddleRe = plan.floatTwiddleRe();
+        float[] twiddleIm = plan.floatTwiddleIm();
+        for(int halfL = 1; halfL < n; halfL += halfL) {
+            int L = halfL + halfL;
+            for(int block = 0; block < n; block += L) {
+                for(int k = 0; k < halfL; k++) {
+                    float wRe = twiddleRe[halfL - 1 + k];
+                    float wIm = twiddleIm[halfL - 1 + k];
+                    int j = block + k;
+                    int m = j + halfL;
+                    float taoRe = wRe * re[m] - wIm * im[m];
+                    float taoIm = wRe * im[m] + wIm * re[m];
+                    re[m] = re[j] - taoRe;
+                    im[m] = im[j] - taoIm;
+                    re[j] += taoRe;
+                    im[j] += taoIm;
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the N/2-point transform of a packed real signal into a band of the first N/2 bins of its N-point
+     * transform, skipping the pairs of bins that are both outside of the band
+     * (see {@link RealFFT#unpack(double[], double[], FFTPlan, int, int)})
+     * @param re real parts of packed transform; replaced by real parts of result within the band
+     * @param im imaginary parts of packed transform; replaced by imaginary parts of result within the band
+     * @param plan plan for complex transforms of length N/2
+     * @param firstBin index of first bin of band
+     * @param lastBin index of last bin of band, less than N/2
+     */
+    static void unpack(float[] re, float[] im, FFTPlan plan, int firstBin, int lastBin) {
+        int half = plan.size();
+        float[] twiddleRe = plan.floatRealTwiddleRe();
+        float[] twiddleIm = plan.floatRealTwiddleIm();
+
+        // DC bin only depends on Z[0]
+        if(firstBin == 0) {
+            re[0] = re[0] + im[0];
+            im[0] = 0;
+        }
+
+        // pair k holds bins k and N/2-k, so only the pairs between the band and its mirror image are needed
+        int firstPair = Math.max(1, Math.min(firstBin, half - lastBin));
+        int lastPair = Math.min(half / 2, Math.max(lastBin, half - firstBin));
+        for(int k = firstPair; k <= lastPair; k++) {
+            int j = half - k;
+
+            float eRe = (re[k] + re[j]) / 2;
+            float eIm = (im[k] - im[j]) / 2;
+            float oRe = (im[k] + im[j]) / 2;
+            float oIm = (re[j] - re[k]) / 2;
+
+            float tRe = twiddleRe[k] * oRe - twiddleIm[k] * oIm;
+            float tIm = twiddleRe[k] * oIm + twiddleIm[k] * oRe;
+
+            // X[N/2-k] = conj(E[k] - t)
+            re[j] = eRe - tRe;
+            im[j] = tIm - eIm;
+
+            re[k] = eRe + tRe;
+            im[k] = eIm + tIm;
+        }
+    }
+
+}
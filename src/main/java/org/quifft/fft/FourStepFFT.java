@@ -0,0 +1,276 @@
+package org.quifft.fft;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Class to perform FFT computation on very long signals whose length is a power of 2 using the four-step
+ * (Bailey's) algorithm
+ * <p>The radix 2 algorithm of {@link DoubleFFT} makes log2(n) passes over the whole signal, starting with a bit
+ * reversal permutation that swaps values far apart in memory.  Once a transform no longer fits in cache, nearly every
+ * access of every pass misses the cache.  Here a transform of length n = n1 * n2 is computed on the signal viewed as
+ * a matrix of n1 rows and n2 columns instead:</p>
+ * <ol>
+ *     <li>each column is transformed and multiplied by the twiddle factors e^(-2*pi*i*row*col/n)</li>
+ *     <li>each row is transformed</li>
+ *     <li>the matrix is transposed, which puts the result in natural order</li>
+ * </ol>
+ * <p>n1 and n2 are both about the square root of n, so every column and row transform runs entirely in cache.
+ * Columns are gathered a few at a time into a small buffer, which is laid out exactly as a {@link BatchFFT} batch,
+ * and the transposition is done in small blocks, so the whole transform only streams through memory a handful of
+ * times however long it is.</p>
+ * <p>For transforms that fit in cache, this extra data movement makes it slower than {@link DoubleFFT}.</p>
+ */
+public class FourStepFFT {
+
+    // number of columns gathered and transformed together
+    private static final int COLUMN_BLOCK = 16;
+
+    // side length of the square blocks in which matrices are transposed
+    private static final int TRANSPOSE_BLOCK = 32;
+
+    /**
+     * Computes the FFT of a complex signal whose length is a power of 2 in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    static void fft(double[] re, double[] im, FFTPlan plan) {
+        fft(re, im, plan, false);
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose length is a power of 2 in place, spreading the column transforms,
+     * row transforms and transposition over the threads of the common {@link ForkJoinPool}
+     * <p>Every column block, row and transposition block is independent of the others within its step, so the
+     * steps parallelize without any locking; each worker thread uses its own scratch buffers.</p>
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     */
+    static void parallelFFT(double[] re, double[] im, FFTPlan plan) {
+        fft(re, im, plan, true);
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose length is a power of 2 in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     * @param parallel true if each step should be computed on the common {@link ForkJoinPool}
+     */
+    private static void fft(double[] re, double[] im, FFTPlan plan, boolean parallel) {
+        int n = plan.size();
+        int n1 = plan.fourStepRows();
+        int n2 = n / n1;
+
+        // transform columns (length n1) in blocks, and multiply by twiddle factors
+        FFTPlan columnPlan = FFTPlan.forSize(n1);
+        int columnBlocks = (n2 + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+        forEach(columnBlocks, parallel, block -> {
+            int col = block * COLUMN_BLOCK;
+            transformColumns(re, im, col, Math.min(COLUMN_BLOCK, n2 - col), n2, columnPlan, plan);
+        });
+
+        // transform rows (length n2)
+        FFTPlan rowPlan = FFTPlan.forSize(n2);
+        FFTEngine rowEngine = rowEngine();
+        forEach(n1, parallel, row -> transformRow(re, im, row, rowPlan, rowEngine));
+
+        // element (k1, k2) holds bin k1 + n1 * k2, so transposing puts bins in natural order
+        if(n1 == n2) {
+            int blocks = (n1 + TRANSPOSE_BLOCK - 1) / TRANSPOSE_BLOCK;
+            forEach(blocks, parallel, block -> {
+                transposeSquare(re, n1, block * TRANSPOSE_BLOCK);
+                transposeSquare(im, n1, block * TRANSPOSE_BLOCK);
+            });
+        } else {
+            double[][] work = plan.work(n);
+            int blocks = (n1 + TRANSPOSE_BLOCK - 1) / TRANSPOSE_BLOCK;
+            forEach(blocks, parallel, block -> {
+                transpose(re, work[0], n1, n2, block * TRANSPOSE_BLOCK);
+                transpose(im, work[1], n1, n2, block * TRANSPOSE_BLOCK);
+            });
+            System.arraycopy(work[0], 0, re, 0, n);
+            System.arraycopy(work[1], 0, im, 0, n);
+        }
+    }
+
+    /**
+     * Runs an action for every index from 0 to count - 1
+     * @param count number of indices
+     * @param parallel true if indices should be processed on the common {@link ForkJoinPool}
+     * @param action action to be run for each index
+     */
+    private static void forEach(int count, boolean parallel, IntConsumer action) {
+        if(parallel) {
+            ForkJoinPool.commonPool().invoke(new RangeAction(0, count, action));
+        } else {
+            for(int i = 0; i < count; i++) {
+                action.accept(i);
+            }
+        }
+    }
+
+    /**
+     * Fork/join task that runs an action for every index in a range, splitting the range in half until it's small
+     * enough to run on one thread
+     */
+    private static class RangeAction extends RecursiveAction {
+
+        // largest range run by a single task
+        private static final int MAX_RANGE = 4;
+
+        // first index (inclusive) and last index (exclusive) of range
+        private final int start;
+        private final int end;
+
+        // action run for each index
+        private final IntConsumer action;
+
+        RangeAction(int start, int end, IntConsumer action) {
+            this.start = start;
+            this.end = end;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if(end - start <= MAX_RANGE) {
+                for(int i = start; i < end; i++) {
+                    action.accept(i);
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new RangeAction(start, middle, action), new RangeAction(middle, end, action));
+            }
+        }
+    }
+
+    /**
+     * Transforms a block of adjacent columns of a matrix and multiplies the results by the four-step twiddle factors
+     * @param re real parts of matrix
+     * @param im imaginary parts of matrix
+     * @param firstCol index of first column in block
+     * @param count number of columns in block
+     * @param cols number of columns in matrix
+     * @param columnPlan plan for transforms of column length
+     * @param plan plan of the full transform, whose twiddle factors e^(-2*pi*i*row*col/n) are applied
+     */
+    static void transformColumns(double[] re, double[] im, int firstCol, int count, int cols,
+                                 FFTPlan columnPlan, FFTPlan plan) {
+        int rows = columnPlan.size();
+
+        // gather columns into batch layout: row j of column b at index j * count + b
+        double[][] buffer = columnPlan.batchScratch(count);
+        double[] blockRe = buffer[0];
+        double[] blockIm = buffer[1];
+        for(int j = 0; j < rows; j++) {
+            System.arraycopy(re, j * cols + firstCol, blockRe, j * count, count);
+            System.arraycopy(im, j * cols + firstCol, blockIm, j * count, count);
+        }
+
+        BatchFFT.radix2(blockRe, blockIm, count, columnPlan);
+
+        // e^(-2*pi*i*e/n) for e = row * col is split into a coarse factor for the high bits of e and a fine factor
+        // for its low bits, so that two small tables cover every exponent
+        double[] lowRe = plan.fourStepLowRe();
+        double[] lowIm = plan.fourStepLowIm();
+        double[] highRe = plan.fourStepHighRe();
+        double[] highIm = plan.fourStepHighIm();
+        int shift = Integer.numberOfTrailingZeros(lowRe.length);
+        int mask = lowRe.length - 1;
+        for(int j = 0; j < rows; j++) {
+            int out = j * cols + firstCol;
+            for(int b = 0; b < count; b++) {
+                int e = j * (firstCol + b);
+                int high = e >>> shift;
+                int low = e & mask;
+                double wRe = highRe[high] * lowRe[low] - highIm[high] * lowIm[low];
+                double wIm = highRe[high] * lowIm[low] + highIm[high] * lowRe[low];
+
+                double xRe = blockRe[j * count + b];
+                double xIm = blockIm[j * count + b];
+                re[out + b] = xRe * wRe - xIm * wIm;
+                im[out + b] = xRe * wIm + xIm * wRe;
+            }
+        }
+    }
+
+    /**
+     * Get engine used to transform rows, which always fit in cache
+     * @return vector engine if available, otherwise radix 2 engine
+     */
+    static FFTEngine rowEngine() {
+        return FFTEngines.isVectorAvailable() ? FFTEngines.VECTOR : FFTEngines.RADIX_2;
+    }
+
+    /**
+     * Transforms one row of a matrix in place
+     * @param re real parts of matrix
+     * @param im imaginary parts of matrix
+     * @param row index of row to be transformed
+     * @param rowPlan plan for transforms of row length
+     * @param rowEngine engine used to transform row
+     */
+    static void transformRow(double[] re, double[] im, int row, FFTPlan rowPlan, FFTEngine rowEngine) {
+        int length = rowPlan.size();
+        int offset = row * length;
+
+        // engines transform whole arrays, so each row is copied into a buffer the length of the row
+        double[] rowRe = rowPlan.scratchRe();
+        double[] rowIm = rowPlan.scratchIm();
+        System.arraycopy(re, offset, rowRe, 0, length);
+        System.arraycopy(im, offset, rowIm, 0, length);
+
+        rowEngine.fft(rowRe, rowIm, rowPlan);
+
+        System.arraycopy(rowRe, 0, re, offset, length);
+        System.arraycopy(rowIm, 0, im, offset, length);
+    }
+
+    /**
+     * Transposes one band of block rows of a square matrix in place, in blocks small enough to stay in cache
+     * <p>The band starting at row r swaps the blocks right of the diagonal in rows r to r + TRANSPOSE_BLOCK with
+     * the blocks below the diagonal in the same columns, so different bands never touch the same elements.</p>
+     * @param matrix matrix stored in row-major order
+     * @param size number of rows and columns of matrix
+     * @param blockRow first row of band, a multiple of TRANSPOSE_BLOCK
+     */
+    static void transposeSquare(double[] matrix, int size, int blockRow) {
+        int rowEnd = Math.min(blockRow + TRANSPOSE_BLOCK, size);
+        for(int blockCol = blockRow; blockCol < size; blockCol += TRANSPOSE_BLOCK) {
+            int colEnd = Math.min(blockCol + TRANSPOSE_BLOCK, size);
+            for(int r = blockRow; r < rowEnd; r++) {
+                // blocks on the diagonal only swap the elements above it
+                for(int c = Math.max(blockCol, r + 1); c < colEnd; c++) {
+                    double temp = matrix[r * size + c];
+                    matrix[r * size + c] = matrix[c * size + r];
+                    matrix[c * size + r] = temp;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transposes one band of block rows of a matrix, in blocks small enough to stay in cache
+     * @param src matrix stored in row-major order
+     * @param dst array to hold transposed matrix in row-major order
+     * @param rows number of rows of src
+     * @param cols number of columns of src
+     * @param blockRow first row of band, a multiple of TRANSPOSE_BLOCK
+     */
+    static void transpose(double[] src, double[] dst, int rows, int cols, int blockRow) {
+        int rowEnd = Math.min(blockRow + TRANSPOSE_BLOCK, rows);
+        for(int blockCol = 0; blockCol < cols; blockCol += TRANSPOSE_BLOCK) {
+            int colEnd = Math.min(blockCol + TRANSPOSE_BLOCK, cols);
+            for(int r = blockRow; r < rowEnd; r++) {
+                for(int c = blockCol; c < colEnd; c++) {
+                    dst[c * rows + r] = src[r * cols + c];
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package org.quifft.fft;
+
+/**
+ * Computes the amplitudes of a small set of frequencies with a bank of Goertzel filters
+ * <p>A Goertzel filter evaluates a single DFT term with a second-order recursion
+ * s[n] = x[n] + 2*cos(w)*s[n-1] - s[n-2], which costs one multiplication and two additions per sample.  Amplitudes of
+ * k frequencies therefore cost O(N * k) operations and need no FFT buffers, which beats an O(N log N) FFT whenever k is
+ * small.  The frequencies don't have to be multiples of the frequency resolution: each filter evaluates the spectrum
+ * exactly at its frequency, and matches the FFT bin of that frequency when it is one.</p>
+ */
+public class GoertzelFilterBank {
+
+    /**
+     * Computes the magnitude of the DFT of a window at each of a set of frequencies
+     * <p>Samples of the window beyond {@code sampleCount} (such as zero-padding) are assumed to be 0 and are skipped,
+     * since they don't change the result.</p>
+     * @param window samples of window
+     * @param sampleCount number of samples at the start of window that can be non-zero
+     * @param frequencies frequencies in Hz whose magnitudes are computed
+     * @param sampleRate sample rate of window in Hz
+     * @param magnitudes array of length at least {@code frequencies.length} to hold the magnitude of each frequency
+     * @param scale factor by which each magnitude is multiplied
+     */
+    public static void magnitudes(int[] window, int sampleCount, double[] frequencies, float sampleRate,
+                                  double[] magnitudes, double scale) {
+        int count = frequencies.length;
+        double[] coefficients = new double[count];
+        for(int f = 0; f < count; f++) {
+            coefficients[f] = 2 * Math.cos(2 * Math.PI * frequencies[f] / sampleRate);
+        }
+
+        // run every filter over each sample in turn, so the window is only read once however many filters there are
+        double[] s1 = new double[count];
+        double[] s2 = new double[count];
+        for(int n = 0; n < sampleCount; n++) {
+            double x = window[n];
+            for(int f = 0; f < count; f++) {
+                double s = x + coefficients[f] * s1[f] - s2[f];
+                s2[f] = s1[f];
+                s1[f] = s;
+            }
+        }
+
+        // |X(w)|^2 = s1^2 + s2^2 - 2*cos(w)*s1*s2
+        for(int f = 0; f < count; f++) {
+            double power = s1[f] * s1[f] + s2[f] * s2[f] - coefficients[f] * s1[f] * s2[f];
+            magnitudes[f] = scale * Math.sqrt(Math.max(0, power));
+        }
+    }
+
+}
@@ -21,7 +21,8 @@ package org.quifft.fft;
  ******************************************************************************/
 
 /**
- * Class to perform FFT computation
+ * Class to perform FFT computation on {@link Complex} objects
+ * <p>QuiFFT computes its transforms with {@link DoubleFFT}; this class is kept as a reference implementation.</p>
  * @author Robert Sedgewick
  * @author Kevin Wayne
  */
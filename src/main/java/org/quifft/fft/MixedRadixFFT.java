@@ -0,0 +1,242 @@
+package org.quifft.fft;
+
+/**
+ * Class to perform FFT computation on signals whose length is a product of 2, 3, 4 and 5
+ * <p>This is a recursive decimation in time Cooley-Tukey FFT: a transform of length n = p * m is split into p
+ * transforms of length m over every p-th sample, whose results are combined by length p butterflies.  Each radix
+ * (2, 3, 4 and 5) has a specialized butterfly, and the factorization and twiddle factors are looked up from a
+ * cached {@link FFTPlan}.</p>
+ * <p>This lets QuiFFT compute windows that aren't a power of 2 (such as a 3000 sample window) without zero-padding
+ * them up to the next power of 2.</p>
+ */
+public class MixedRadixFFT {
+
+    // sin(pi/3), used by radix 3 butterflies
+    private static final double SIN_60 = Math.sqrt(3) / 2;
+
+    // cos(2pi/5), cos(4pi/5), sin(2pi/5), sin(4pi/5), used by radix 5 butterflies
+    private static final double COS_72 = Math.cos(2 * Math.PI / 5);
+    private static final double COS_144 = Math.cos(4 * Math.PI / 5);
+    private static final double SIN_72 = Math.sin(2 * Math.PI / 5);
+    private static final double SIN_144 = Math.sin(4 * Math.PI / 5);
+
+    /**
+     * Computes the FFT of a complex signal in place
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}; must have a mixed radix factorization
+     */
+    static void fft(double[] re, double[] im, FFTPlan plan) {
+        int n = plan.size();
+        if(n == 1) return;
+
+        // sub-transforms read from a copy of the signal and write their results into re and im
+        double[][] work = plan.work(n);
+        System.arraycopy(re, 0, work[0], 0, n);
+        System.arraycopy(im, 0, work[1], 0, n);
+
+        transform(work[0], work[1], 0, 1, re, im, 0, n, 0, plan);
+    }
+
+    /**
+     * Computes the FFT of every {@code stride}-th input value into a contiguous section of output
+     * @param inRe real parts of input signal
+     * @param inIm imaginary parts of input signal
+     * @param inOffset index of first input value
+     * @param stride distance between consecutive input values
+     * @param outRe real parts of output
+     * @param outIm imaginary parts of output
+     * @param outOffset index of first output value
+     * @param n length of this transform
+     * @param factorIndex index into plan's factors of the radix to split this transform by
+     * @param plan plan for full length transform
+     */
+    private static void transform(double[] inRe, double[] inIm, int inOffset, int stride,
+                                  double[] outRe, double[] outIm, int outOffset,
+                                  int n, int factorIndex, FFTPlan plan) {
+        int p = plan.factors()[factorIndex];
+        int m = n / p;
+
+        if(m == 1) {
+            // copy input values into place for a single butterfly
+            for(int q = 0; q < p; q++) {
+                outRe[outOffset + q] = inRe[inOffset + q * stride];
+                outIm[outOffset + q] = inIm[inOffset + q * stride];
+            }
+        } else {
+            // transform each of the p decimated sequences into consecutive sections of length m
+            for(int q = 0; q < p; q++) {
+                transform(inRe, inIm, inOffset + q * stride, stride * p,
+                        outRe, outIm, outOffset + q * m, m, factorIndex + 1, plan);
+            }
+        }
+
+        // twiddle factor e^(-2*pi*i*j/n) is entry j * (N / n) of the plan's table
+        int rootStride = plan.size() / n;
+        switch(p) {
+            case 2:
+                radix2(outRe, outIm, outOffset, m, rootStride, plan);
+                break;
+            case 3:
+                radix3(outRe, outIm, outOffset, m, rootStride, plan);
+                break;
+            case 4:
+                radix4(outRe, outIm, outOffset, m, rootStride, plan);
+                break;
+            default:
+                radix5(outRe, outIm, outOffset, m, rootStride, plan);
+                break;
+        }
+    }
+
+    private static void radix2(double[] re, double[] im, int offset, int m, int rootStride, FFTPlan plan) {
+        double[] wRe = plan.rootsRe();
+        double[] wIm = plan.rootsIm();
+        for(int k = 0; k < m; k++) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int w = k * rootStride;
+
+            double t1Re = re[i1] * wRe[w] - im[i1] * wIm[w];
+            double t1Im = re[i1] * wIm[w] + im[i1] * wRe[w];
+
+            re[i1] = re[i0] - t1Re;
+            im[i1] = im[i0] - t1Im;
+            re[i0] += t1Re;
+            im[i0] += t1Im;
+        }
+    }
+
+    private static void radix3(double[] re, double[] im, int offset, int m, int rootStride, FFTPlan plan) {
+        double[] wRe = plan.rootsRe();
+        double[] wIm = plan.rootsIm();
+        for(int k = 0; k < m; k++) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int i2 = i1 + m;
+            int w1 = k * rootStride;
+            int w2 = 2 * w1;
+
+            double t0Re = re[i0];
+            double t0Im = im[i0];
+            double t1Re = re[i1] * wRe[w1] - im[i1] * wIm[w1];
+            double t1Im = re[i1] * wIm[w1] + im[i1] * wRe[w1];
+            double t2Re = re[i2] * wRe[w2] - im[i2] * wIm[w2];
+            double t2Im = re[i2] * wIm[w2] + im[i2] * wRe[w2];
+
+            double sRe = t1Re + t2Re;
+            double sIm = t1Im + t2Im;
+            double dRe = SIN_60 * (t1Re - t2Re);
+            double dIm = SIN_60 * (t1Im - t2Im);
+            double mRe = t0Re - sRe / 2;
+            double mIm = t0Im - sIm / 2;
+
+            re[i0] = t0Re + sRe;
+            im[i0] = t0Im + sIm;
+            re[i1] = mRe + dIm;
+            im[i1] = mIm - dRe;
+            re[i2] = mRe - dIm;
+            im[i2] = mIm + dRe;
+        }
+    }
+
+    private static void radix4(double[] re, double[] im, int offset, int m, int rootStride, FFTPlan plan) {
+        double[] wRe = plan.rootsRe();
+        double[] wIm = plan.rootsIm();
+        for(int k = 0; k < m; k++) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int i2 = i1 + m;
+            int i3 = i2 + m;
+            int w1 = k * rootStride;
+            int w2 = 2 * w1;
+            int w3 = 3 * w1;
+
+            double t0Re = re[i0];
+            double t0Im = im[i0];
+            double t1Re = re[i1] * wRe[w1] - im[i1] * wIm[w1];
+            double t1Im = re[i1] * wIm[w1] + im[i1] * wRe[w1];
+            double t2Re = re[i2] * wRe[w2] - im[i2] * wIm[w2];
+            double t2Im = re[i2] * wIm[w2] + im[i2] * wRe[w2];
+            double t3Re = re[i3] * wRe[w3] - im[i3] * wIm[w3];
+            double t3Im = re[i3] * wIm[w3] + im[i3] * wRe[w3];
+
+            double a0Re = t0Re + t2Re;
+            double a0Im = t0Im + t2Im;
+            double a1Re = t0Re - t2Re;
+            double a1Im = t0Im - t2Im;
+            double a2Re = t1Re + t3Re;
+            double a2Im = t1Im + t3Im;
+            double a3Re = t1Re - t3Re;
+            double a3Im = t1Im - t3Im;
+
+            // multiplying a3 by -i gives (a3Im, -a3Re)
+            re[i0] = a0Re + a2Re;
+            im[i0] = a0Im + a2Im;
+            re[i1] = a1Re + a3Im;
+            im[i1] = a1Im - a3Re;
+            re[i2] = a0Re - a2Re;
+            im[i2] = a0Im - a2Im;
+            re[i3] = a1Re - a3Im;
+            im[i3] = a1Im + a3Re;
+        }
+    }
+
+    private static void radix5(double[] re, double[] im, int offset, int m, int rootStride, FFTPlan plan) {
+        double[] wRe = plan.rootsRe();
+        double[] wIm = plan.rootsIm();
+        for(int k = 0; k < m; k++) {
+            int i0 = offset + k;
+            int i1 = i0 + m;
+            int i2 = i1 + m;
+            int i3 = i2 + m;
+            int i4 = i3 + m;
+            int w1 = k * rootStride;
+            int w2 = 2 * w1;
+            int w3 = 3 * w1;
+            int w4 = 4 * w1;
+
+            double t0Re = re[i0];
+            double t0Im = im[i0];
+            double t1Re = re[i1] * wRe[w1] - im[i1] * wIm[w1];
+            double t1Im = re[i1] * wIm[w1] + im[i1] * wRe[w1];
+            double t2Re = re[i2] * wRe[w2] - im[i2] * wIm[w2];
+            double t2Im = re[i2] * wIm[w2] + im[i2] * wRe[w2];
+            double t3Re = re[i3] * wRe[w3] - im[i3] * wIm[w3];
+            double t3Im = re[i3] * wIm[w3] + im[i3] * wRe[w3];
+            double t4Re = re[i4] * wRe[w4] - im[i4] * wIm[w4];
+            double t4Im = re[i4] * wIm[w4] + im[i4] * wRe[w4];
+
+            double a1Re = t1Re + t4Re;
+            double a1Im = t1Im + t4Im;
+            double b1Re = t1Re - t4Re;
+            double b1Im = t1Im - t4Im;
+            double a2Re = t2Re + t3Re;
+            double a2Im = t2Im + t3Im;
+            double b2Re = t2Re - t3Re;
+            double b2Im = t2Im - t3Im;
+
+            double m1Re = t0Re + COS_72 * a1Re + COS_144 * a2Re;
+            double m1Im = t0Im + COS_72 * a1Im + COS_144 * a2Im;
+            double m2Re = t0Re + COS_144 * a1Re + COS_72 * a2Re;
+            double m2Im = t0Im + COS_144 * a1Im + COS_72 * a2Im;
+            double n1Re = SIN_72 * b1Re + SIN_144 * b2Re;
+            double n1Im = SIN_72 * b1Im + SIN_144 * b2Im;
+            double n2Re = SIN_144 * b1Re - SIN_72 * b2Re;
+            double n2Im = SIN_144 * b1Im - SIN_72 * b2Im;
+
+            // y1 = m1 - i*n1, y4 = m1 + i*n1, y2 = m2 - i*n2, y3 = m2 + i*n2
+            re[i0] = t0Re + a1Re + a2Re;
+            im[i0] = t0Im + a1Im + a2Im;
+            re[i1] = m1Re + n1Im;
+            im[i1] = m1Im - n1Re;
+            re[i4] = m1Re - n1Im;
+            im[i4] = m1Im + n1Re;
+            re[i2] = m2Re + n2Im;
+            im[i2] = m2Im - n2Re;
+            re[i3] = m2Re - n2Im;
+            im[i3] = m2Im + n2Re;
+        }
+    }
+
+}
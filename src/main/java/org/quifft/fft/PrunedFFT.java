@@ -0,0 +1,154 @@
+package org.quifft.fft;
+
+/**
+ * Class to perform FFT computation on zero-padded signals, skipping the arithmetic on the padding
+ * <p>When only the first L values of a signal of length n can be non-zero, let P be the largest power of 2 dividing
+ * n with m = n / P &gt;= L.  Radix 2 transforms are pruned at their input: after the bit reversal permutation, each
+ * block of P consecutive values holds one value of the signal followed by P - 1 padding zeros, and the first log2(P)
+ * butterfly stages only copy that value across its block.  These stages are replaced by a permutation of the first
+ * m values followed by a fill (see {@link #bitReverse}), so a radix 2 transform zero-padded by a factor P costs
+ * log2(m) butterfly stages instead of log2(n).</p>
+ * <p>Bluestein transforms are pruned by splitting the transform: every bin k = P*q + r is
+ * X[P*q + r] = sum over j &lt; L of (x[j] * e^(-2*pi*i*j*r/n)) * e^(-2*pi*i*j*q/m), so the n-point transform is made
+ * of P transforms of length m, one per residue r (see {@link #fft}).  Each of them convolves at a quarter or less of
+ * the original convolution length.  Splitting doesn't pay off for engines whose cost is close to n log n, such as
+ * the mixed radix and four-step engines, which compute zero-padded signals in full.</p>
+ * <p>Radix 2 transforms are also pruned at their output when only some bins are needed.  Output k of the transform
+ * only depends on value k mod L of each block of L values after the stage with block length L, so a stage only needs
+ * the butterflies that produce values congruent to a needed output.  For a band of W bins, every stage whose blocks
+ * are longer than W skips most of its butterflies.</p>
+ */
+public class PrunedFFT {
+
+    /**
+     * Gets the factor P by which a zero-padded transform can be pruned
+     * @param n number of points in transform
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     * @return largest power of 2 P dividing n with n / P &gt;= nonZeroLength (1 if the signal can't be pruned)
+     */
+    public static int pruningFactor(int n, int nonZeroLength) {
+        int factor = 1;
+        while(n % (2 * factor) == 0 && n / (2 * factor) >= Math.max(1, nonZeroLength)) {
+            factor *= 2;
+        }
+        return factor;
+    }
+
+    /**
+     * Gets the circular range of outputs of an n-point transform that covers a band of bins and its mirror image, as
+     * needed to unpack the spectrum of a real signal
+     * <p>Outputs k and n - k (mod n) are needed for every bin k of the band.  They are covered either by the range from
+     * the lower to the higher of the two, or by the range from n - lastBin to lastBin wrapping around; the shorter of
+     * the two is returned.</p>
+     * @param n number of points in transform
+     * @param firstBin index of first bin of band
+     * @param lastBin index of last bin of band, less than n
+     * @return index of first output and number of outputs (at most n) of the range
+     */
+    public static int[] mirroredOutputRange(int n, int firstBin, int lastBin) {
+        int firstOutput = Math.min(firstBin, n - lastBin);
+        int outputCount = Math.max(lastBin, n - firstBin) - firstOutput + 1;
+        if(2 * lastBin + 1 < outputCount) {
+            firstOutput = n - lastBin;
+            outputCount = 2 * lastBin + 1;
+        }
+        return new int[]{firstOutput % n, Math.min(n, outputCount)};
+    }
+
+    /**
+     * Applies the bit reversal permutation of a radix 2 transform together with its first log2(factor) butterfly
+     * stages, which only copy each non-zero value across a block of {@code factor} values
+     * <p>With a factor of 1, this is the plain bit reversal permutation.</p>
+     * @param re real parts of signal, zero after its first {@code n / factor} values
+     * @param im imaginary parts of signal, zero after its first {@code n / factor} values
+     * @param plan plan for transforms of length n, a power of 2
+     * @param factor pruning factor returned by {@link #pruningFactor}
+     */
+    static void bitReverse(double[] re, double[] im, FFTPlan plan, int factor) {
+        int m = plan.size() / factor;
+
+        // value p of a bit reversed signal of length n with p < m is value p of a bit reversed signal of length m,
+        // spread out to index p * factor
+        int[] swaps = factor == 1 ? plan.bitReversalSwaps() : FFTPlan.forSize(m).bitReversalSwaps();
+        for(int s = 0; s < swaps.length; s += 2) {
+            int k = swaps[s];
+            int j = swaps[s + 1];
+
+            double temp = re[j];
+            re[j] = re[k];
+            re[k] = temp;
+
+            temp = im[j];
+            im[j] = im[k];
+            im[k] = temp;
+        }
+        if(factor == 1) return;
+
+        // fill each block from the back, so that no value is overwritten before it has been copied
+        for(int p = m - 1; p >= 0; p--) {
+            double valueRe = re[p];
+            double valueIm = im[p];
+            int block = p * factor;
+            for(int t = 0; t < factor; t++) {
+                re[block + t] = valueRe;
+                im[block + t] = valueIm;
+            }
+        }
+    }
+
+    /**
+     * Computes the FFT of a complex signal whose values after the first {@code nonZeroLength} are 0 in place by
+     * splitting it into shorter transforms
+     * @param engine engine used to compute each short transform
+     * @param re real parts of signal; replaced by real parts of FFT result
+     * @param im imaginary parts of signal; replaced by imaginary parts of FFT result
+     * @param plan plan for transforms of length {@code re.length}
+     * @param nonZeroLength number of values at the start of the signal that can be non-zero
+     */
+    static void fft(FFTEngine engine, double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+        int n = plan.size();
+        int factor = pruningFactor(n, nonZeroLength);
+        int m = n / factor;
+        if(factor == 1 || !engine.supports(m)) {
+            engine.fft(re, im, plan);
+            return;
+        }
+
+        // the non-zero values are overwritten by the results, so they are saved first
+        double[][] work = plan.work(nonZeroLength);
+        double[] xRe = work[0];
+        double[] xIm = work[1];
+        System.arraycopy(re, 0, xRe, 0, nonZeroLength);
+        System.arraycopy(im, 0, xIm, 0, nonZeroLength);
+
+        FFTPlan subPlan = FFTPlan.forSize(m);
+        double[] yRe = subPlan.scratchRe();
+        double[] yIm = subPlan.scratchIm();
+        double[] rootsRe = plan.rootsRe();
+        double[] rootsIm = plan.rootsIm();
+
+        for(int r = 0; r < factor; r++) {
+            // multiply by e^(-2*pi*i*j*r/n), stepping through the table of n-th roots of unity r at a time
+            int root = 0;
+            for(int j = 0; j < nonZeroLength; j++) {
+                yRe[j] = xRe[j] * rootsRe[root] - xIm[j] * rootsIm[root];
+                yIm[j] = xRe[j] * rootsIm[root] + xIm[j] * rootsRe[root];
+                root += r;
+                if(root >= n) root -= n;
+            }
+            for(int j = nonZeroLength; j < m; j++) {
+                yRe[j] = 0;
+                yIm[j] = 0;
+            }
+
+            engine.fft(yRe, yIm, subPlan, nonZeroLength);
+
+            // bin q of short transform r is bin P*q + r of the full transform
+            for(int q = 0; q < m; q++) {
+                re[q * factor + r] = yRe[q];
+                im[q * factor + r] = yIm[q];
+            }
+        }
+    }
+
+}
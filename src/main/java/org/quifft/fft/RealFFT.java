@@ -0,0 +1,158 @@
+package org.quifft.fft;
+
+import org.quifft.params.FFTEngineType;
+
+/**
+ * Class to perform FFT computation on purely real signals (such as audio samples)
+ * <p>A real signal of length N is packed into a complex signal of length N/2 (even samples as real parts, odd
+ * samples as imaginary parts), which is transformed with an N/2-point {@link DoubleFFT}.  The first N/2 bins of
+ * the N-point transform are then unpacked from the result.  This takes roughly half the work and half the memory
+ * of running an N-point complex FFT on a signal whose imaginary parts are all zero.  N may be any even length.</p>
+ * <p>The remaining N/2 bins aren't computed because the FFT of a real signal is symmetrical.</p>
+ */
+public class RealFFT {
+
+    /**
+     * Computes the first N/2 bins of the FFT of a real signal of length N
+     * @param signal real signal whose length N is even
+     * @param re array of length at least N/2 to hold real parts of FFT result
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result
+     */
+    public static void fft(int[] signal, double[] re, double[] im) {
+        fft(signal, re, im, FFTPlan.forSize(signal.length / 2));
+    }
+
+    /**
+     * Computes the first N/2 bins of the FFT of a real signal of length N using a precomputed plan
+     * @param signal real signal whose length N is even
+     * @param re array of length at least N/2 to hold real parts of FFT result
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result
+     * @param plan plan for complex transforms of length N/2
+     */
+    public static void fft(int[] signal, double[] re, double[] im, FFTPlan plan) {
+        fft(signal, re, im, plan, FFTPlanner.engineFor(plan.size(), FFTEngineType.AUTO));
+    }
+
+    /**
+     * Computes the first N/2 bins of the FFT of a real signal of length N using a precomputed plan and a given engine
+     * @param signal real signal whose length N is even
+     * @param re array of length at least N/2 to hold real parts of FFT result
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result
+     * @param plan plan for complex transforms of length N/2
+     * @param engine engine used for the N/2-point complex transform; must support size N/2
+     */
+    public static void fft(int[] signal, double[] re, double[] im, FFTPlan plan, FFTEngine engine) {
+        fft(signal, signal.length, re, im, plan, engine);
+    }
+
+    /**
+     * Computes the first N/2 bins of the FFT of a zero-padded real signal of length N using a precomputed plan and a
+     * given engine, skipping arithmetic on the zero-padding
+     * @param signal real signal whose length N is even
+     * @param nonZeroLength number of samples at the start of signal that can be non-zero; the rest must be 0
+     * @param re array of length at least N/2 to hold real parts of FFT result
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result
+     * @param plan plan for complex transforms of length N/2
+     * @param engine engine used for the N/2-point complex transform; must support size N/2
+     */
+    public static void fft(int[] signal, int nonZeroLength, double[] re, double[] im, FFTPlan plan,
+                           FFTEngine engine) {
+        fft(signal, nonZeroLength, 0, plan.size() - 1, re, im, plan, engine);
+    }
+
+    /**
+     * Computes a band of the first N/2 bins of the FFT of a zero-padded real signal of length N using a precomputed
+     * plan and a given engine, skipping arithmetic on the zero-padding and, where the engine can, on the other bins
+     * @param signal real signal whose length N is even
+     * @param nonZeroLength number of samples at the start of signal that can be non-zero; the rest must be 0
+     * @param firstBin index of first bin of band
+     * @param lastBin index of last bin of band, less than N/2
+     * @param re array of length at least N/2 to hold real parts of FFT result; only bins in the band are computed
+     * @param im array of length at least N/2 to hold imaginary parts of FFT result; only bins in the band are computed
+     * @param plan plan for complex transforms of length N/2
+     * @param engine engine used for the N/2-point complex transform; must support size N/2
+     */
+    public static void fft(int[] signal, int nonZeroLength, int firstBin, int lastBin, double[] re, double[] im,
+                           FFTPlan plan, FFTEngine engine) {
+        int half = plan.size();
+
+        // pack even samples into real parts and odd samples into imaginary parts
+        for(int j = 0; j < half; j++) {
+            re[j] = signal[2 * j];
+            im[j] = signal[2 * j + 1];
+        }
+
+        // the packed signal is zero after (nonZeroLength + 1) / 2 values
+        int packedLength = Math.min(half, (nonZeroLength + 1) / 2);
+
+        // bins firstBin to lastBin need Z[k] and Z[N/2-k] for each k in the band
+        int[] outputs = PrunedFFT.mirroredOutputRange(half, firstBin, lastBin);
+        if(outputs[1] < half) {
+            engine.fft(re, im, plan, packedLength, outputs[0], outputs[1]);
+        } else if(packedLength < half) {
+            engine.fft(re, im, plan, packedLength);
+        } else {
+            engine.fft(re, im, plan);
+        }
+
+        unpack(re, im, plan, firstBin, lastBin);
+    }
+
+    /**
+     * Converts the N/2-point transform Z of a packed real signal into the first N/2 bins of its N-point transform X
+     * <p>With E and O the transforms of the even and odd samples, E[k] = (Z[k] + conj(Z[N/2-k])) / 2,
+     * O[k] = (Z[k] - conj(Z[N/2-k])) / 2i and X[k] = E[k] + e^(-2*pi*i*k/N) * O[k].  Bins k and N/2-k depend on the
+     * same pair of values, so they are computed together in place.</p>
+     * @param re real parts of Z; replaced by real parts of X
+     * @param im imaginary parts of Z; replaced by imaginary parts of X
+     * @param plan plan for complex transforms of length N/2
+     */
+    static void unpack(double[] re, double[] im, FFTPlan plan) {
+        unpack(re, im, plan, 0, plan.size() - 1);
+    }
+
+    /**
+     * Converts the N/2-point transform Z of a packed real signal into a band of the first N/2 bins of its N-point
+     * transform X, skipping the pairs of bins that are both outside of the band
+     * @param re real parts of Z; replaced by real parts of X within the band
+     * @param im imaginary parts of Z; replaced by imaginary parts of X within the band
+     * @param plan plan for complex transforms of length N/2
+     * @param firstBin index of first bin of band
+     * @param lastBin index of last bin of band, less than N/2
+     */
+    static void unpack(double[] re, double[] im, FFTPlan plan, int firstBin, int lastBin) {
+        int half = plan.size();
+        double[] twiddleRe = plan.realTwiddleRe();
+        double[] twiddleIm = plan.realTwiddleIm();
+
+        // DC bin only depends on Z[0]
+        if(firstBin == 0) {
+            re[0] = re[0] + im[0];
+            im[0] = 0;
+        }
+
+        // pair k holds bins k and N/2-k, so the pairs of the band run from the nearer of firstBin and N/2-lastBin to
+        // the nearer of lastBin and N/2-firstBin (pairs in between are computed too, which is harmless)
+        int firstPair = Math.max(1, Math.min(firstBin, half - lastBin));
+        int lastPair = Math.min(half / 2, Math.max(lastBin, half - firstBin));
+        for(int k = firstPair; k <= lastPair; k++) {
+            int j = half - k;
+
+            double eRe = (re[k] + re[j]) / 2;
+            double eIm = (im[k] - im[j]) / 2;
+            double oRe = (im[k] + im[j]) / 2;
+            double oIm = (re[j] - re[k]) / 2;
+
+            double tRe = twiddleRe[k] * oRe - twiddleIm[k] * oIm;
+            double tIm = twiddleRe[k] * oIm + twiddleIm[k] * oRe;
+
+            // X[N/2-k] = conj(E[k] - t)
+            re[j] = eRe - tRe;
+            im[j] = tIm - eIm;
+
+            re[k] = eRe + tRe;
+            im[k] = eIm + tIm;
+        }
+    }
+
+}
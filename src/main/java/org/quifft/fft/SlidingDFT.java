@@ -0,0 +1,312 @@
+package org.quifft.fft;
+
+import org.quifft.params.FFTEngineType;
+import org.quifft.params.WindowFunction;
+
+/**
+ * Keeps the spectrum of a window that slides through a signal up to date one sample at a time (sliding DFT)
+ * <p>When a window of M samples moves forward by one sample, bin k of its N-point DFT changes by
+ * X'[k] = e^(2*pi*i*k/N) * (X[k] - x_out) + x_in * e^(-2*pi*i*k*(M-1)/N), which takes O(N) operations for all bins
+ * instead of the O(N log N) operations of a new FFT.  Windows that hop forward by only a few samples at a time are
+ * therefore much cheaper to update than to transform.</p>
+ * <p>Rectangular, Hanning, Hamming and Blackman windows are sums of cosines with period M - 1, so their windowed
+ * spectrum is a weighted sum of unwindowed spectra evaluated at frequencies shifted by multiples of 1/(M - 1).  Each
+ * of these shifted spectra slides exactly like the unwindowed one, so the window is applied in the frequency domain
+ * with a small kernel of 1, 3 or 5 terms per bin.  Triangular and Bartlett windows aren't sums of cosines and can't be
+ * used.</p>
+ * <p>Every update adds a little rounding error that is never removed, so the spectrum is periodically re-anchored:
+ * recomputed from the current window with FFTs after at most {@code anchorInterval} samples have slid in.  It is also
+ * recomputed whenever a hop is so long that transforming the window is cheaper than sliding it.</p>
+ */
+public class SlidingDFT {
+
+    /**
+     * Default maximum number of samples slid into the window between two re-anchors
+     */
+    public static final int DEFAULT_ANCHOR_INTERVAL = 1 << 14;
+
+    // number of samples in window (M)
+    private final int windowSize;
+
+    // number of points in DFT (N), at least windowSize; the window is zero-padded to this length
+    private final int transformLength;
+
+    // index of first bin kept up to date
+    private final int firstBin;
+
+    // number of bins kept up to date, from firstBin on
+    private final int bins;
+
+    // highest cosine harmonic of window function; the kernel has 2 * harmonics + 1 terms
+    private final int harmonics;
+
+    // weight of each kernel term, from harmonic -harmonics to +harmonics
+    private final double[] weights;
+
+    // maximum number of samples slid into the window between two re-anchors
+    private final int anchorInterval;
+
+    // engine and plan used to re-anchor
+    private final FFTEngine engine;
+    private final FFTPlan plan;
+
+    // spectrum of each kernel term; bin firstBin + k of term t is stored at index t * bins + k
+    private final double[] spectrumRe;
+    private final double[] spectrumIm;
+
+    // rotation e^(2*pi*i*f) applied to each term and bin on every slide, where f is the term's shifted frequency
+    private final double[] rotationRe;
+    private final double[] rotationIm;
+
+    // factor e^(-2*pi*i*f*(M-1)) by which the sample entering the window is multiplied
+    private final double[] entryRe;
+    private final double[] entryIm;
+
+    // window currently represented by the spectrum, or null before the first window
+    private int[] window;
+
+    // number of samples slid into the window since the last re-anchor
+    private int samplesSinceAnchor;
+
+    /**
+     * Checks whether the sliding DFT can apply a window function in the frequency domain
+     * @param windowFunction window function to be applied to each window
+     * @return true if the window function is a sum of cosines (rectangular, Hanning, Hamming or Blackman)
+     */
+    public static boolean supports(WindowFunction windowFunction) {
+        return cosineCoefficients(windowFunction) != null;
+    }
+
+    /**
+     * Constructs a sliding DFT for windows of a given size
+     * @param windowSize number of samples in each window
+     * @param transformLength number of points in DFT; must be at least windowSize
+     * @param windowFunction window function applied to each window; must be supported (see {@link #supports})
+     * @param anchorInterval maximum number of samples slid into the window between two re-anchors
+     * @param engineType engine used to compute the FFTs of each re-anchor
+     * @param parallelThreshold smallest number of points for which the FFTs of each re-anchor are computed in parallel
+     */
+    public SlidingDFT(int windowSize, int transformLength, WindowFunction windowFunction, int anchorInterval,
+                      FFTEngineType engineType, int parallelThreshold) {
+        this(windowSize, transformLength, windowFunction, anchorInterval, engineType, parallelThreshold, 0,
+                transformLength / 2 - 1);
+    }
+
+    /**
+     * Constructs a sliding DFT for windows of a given size that only keeps a band of bins up to date
+     * <p>Each slide costs time proportional to the number of bins in the band.</p>
+     * @param windowSize number of samples in each window
+     * @param transformLength number of points in DFT; must be at least windowSize
+     * @param windowFunction window function applied to each window; must be supported (see {@link #supports})
+     * @param anchorInterval maximum number of samples slid into the window between two re-anchors
+     * @param engineType engine used to compute the FFTs of each re-anchor
+     * @param parallelThreshold smallest number of points for which the FFTs of each re-anchor are computed in parallel
+     * @param firstBin index of first bin of band
+     * @param lastBin index of last bin of band, less than {@code transformLength / 2}
+     */
+    public SlidingDFT(int windowSize, int transformLength, WindowFunction windowFunction, int anchorInterval,
+                      FFTEngineType engineType, int parallelThreshold, int firstBin, int lastBin) {
+        double[] coefficients = cosineCoefficients(windowFunction);
+        if(coefficients == null)
+            throw new IllegalArgumentException("Sliding DFT doesn't support " + windowFunction + " windows");
+
+        this.windowSize = windowSize;
+        this.transformLength = transformLength;
+        this.firstBin = firstBin;
+        this.bins = Math.max(0, lastBin - firstBin + 1);
+        this.harmonics = coefficients.length - 1;
+        this.anchorInterval = anchorInterval;
+        this.plan = FFTPlan.forSize(transformLength);
+        this.engine = FFTPlanner.engineFor(transformLength, engineType, parallelThreshold);
+
+        // cos(x) = (e^(ix) + e^(-ix)) / 2, so each harmonic contributes half its coefficient at +c and at -c
+        int terms = 2 * harmonics + 1;
+        weights = new double[terms];
+        weights[harmonics] = coefficients[0];
+        for(int c = 1; c <= harmonics; c++) {
+            weights[harmonics + c] = coefficients[c] / 2;
+            weights[harmonics - c] = coefficients[c] / 2;
+        }
+
+        spectrumRe = new double[terms * bins];
+        spectrumIm = new double[terms * bins];
+        rotationRe = new double[terms * bins];
+        rotationIm = new double[terms * bins];
+        entryRe = new double[terms * bins];
+        entryIm = new double[terms * bins];
+
+        // term c holds the DFT of x[m] * e^(2*pi*i*c*m/P), i.e. the unwindowed DFT at frequency k/N - c/P, with the
+        // exponents reduced modulo N and P so that the angles stay accurate for long windows
+        int period = Math.max(1, windowSize - 1);
+        for(int t = 0; t < terms; t++) {
+            int c = t - harmonics;
+            for(int b = 0; b < bins; b++) {
+                int k = firstBin + b;
+                double rotation = 2 * Math.PI * ((double) k / transformLength - (double) c / period);
+                int index = t * bins + b;
+                rotationRe[index] = Math.cos(rotation);
+                rotationIm[index] = Math.sin(rotation);
+
+                long binExponent = (long) k * (windowSize - 1) % transformLength;
+                long harmonicExponent = Math.floorMod((long) c * (windowSize - 1), (long) period);
+                double entry = -2 * Math.PI * ((double) binExponent / transformLength
+                        - (double) harmonicExponent / period);
+                entryRe[index] = Math.cos(entry);
+                entryIm[index] = Math.sin(entry);
+            }
+        }
+    }
+
+    /**
+     * Moves the window forward and updates the spectrum
+     * <p>The first call (and any call after which sliding would cost more than transforming) computes the spectrum
+     * of the window from scratch.</p>
+     * @param nextWindow the {@code windowSize} samples of the window after moving it, without window function
+     * @param hop number of samples by which the window moved; the first {@code windowSize - hop} samples of
+     *            nextWindow must be the last samples of the previous window
+     */
+    public void slide(int[] nextWindow, int hop) {
+        if(window == null || hop >= windowSize || samplesSinceAnchor + hop > anchorInterval
+                || !isSlidingCheaper(hop)) {
+            anchor(nextWindow);
+            return;
+        }
+
+        int terms = weights.length;
+        int length = terms * bins;
+        for(int j = 0; j < hop; j++) {
+            double out = window[j];
+            double in = nextWindow[windowSize - hop + j];
+            for(int i = 0; i < length; i++) {
+                double dRe = spectrumRe[i] - out;
+                double dIm = spectrumIm[i];
+                spectrumRe[i] = rotationRe[i] * dRe - rotationIm[i] * dIm + in * entryRe[i];
+                spectrumIm[i] = rotationRe[i] * dIm + rotationIm[i] * dRe + in * entryIm[i];
+            }
+        }
+
+        System.arraycopy(nextWindow, 0, window, 0, windowSize);
+        samplesSinceAnchor += hop;
+    }
+
+    /**
+     * Computes the scaled magnitude of each bin of the windowed spectrum
+     * @param magnitudes array of length at least {@link #bins()} to hold the magnitude of each bin of the band
+     * @param scale factor by which each magnitude is multiplied
+     */
+    public void magnitudes(double[] magnitudes, double scale) {
+        for(int k = 0; k < bins; k++) {
+            magnitudes[k] = magnitude(k, scale);
+        }
+    }
+
+    /**
+     * Computes the scaled magnitude of a single bin of the windowed spectrum
+     * @param k index of bin within the band
+     * @param scale factor by which the magnitude is multiplied
+     * @return scaled magnitude of bin
+     */
+    public double magnitude(int k, double scale) {
+        double re = 0;
+        double im = 0;
+        for(int t = 0; t < weights.length; t++) {
+            re += weights[t] * spectrumRe[t * bins + k];
+            im += weights[t] * spectrumIm[t * bins + k];
+        }
+        return scale * Math.sqrt(re * re + im * im);
+    }
+
+    /**
+     * Get number of bins kept up to date
+     * @return number of bins in band
+     */
+    public int bins() {
+        return bins;
+    }
+
+    /**
+     * Estimates whether sliding the window by a number of samples is cheaper than computing its spectrum from scratch
+     * @param hop number of samples by which the window moves
+     * @return true if sliding is cheaper
+     */
+    private boolean isSlidingCheaper(int hop) {
+        // each slide updates every term of every bin; a re-anchor computes one N-point FFT per non-negative harmonic,
+        // at roughly 2 * N * log2(N) multiply-adds each
+        long slideCost = (long) hop * weights.length * bins;
+        long anchorCost = (long) (harmonics + 1) * 2 * transformLength
+                * (32 - Integer.numberOfLeadingZeros(transformLength));
+        return slideCost < anchorCost;
+    }
+
+    /**
+     * Recomputes the spectrum of every kernel term from a window
+     * @param nextWindow the {@code windowSize} samples of the window, without window function
+     */
+    private void anchor(int[] nextWindow) {
+        double[] re = plan.scratchRe();
+        double[] im = plan.scratchIm();
+        int period = Math.max(1, windowSize - 1);
+
+        // the negative terms are read from the mirror image of the band, so only the band and its mirror are needed
+        int[] outputs = PrunedFFT.mirroredOutputRange(transformLength, firstBin, firstBin + bins - 1);
+
+        // x is real, so the term for -c is the conjugate mirror of the term for +c: one FFT per harmonic c >= 0
+        for(int c = 0; bins > 0 && c <= harmonics; c++) {
+            for(int m = 0; m < windowSize; m++) {
+                double angle = 2 * Math.PI * Math.floorMod((long) c * m, (long) period) / period;
+                re[m] = nextWindow[m] * Math.cos(angle);
+                im[m] = nextWindow[m] * Math.sin(angle);
+            }
+            for(int m = windowSize; m < transformLength; m++) {
+                re[m] = 0;
+                im[m] = 0;
+            }
+
+            engine.fft(re, im, plan, windowSize, outputs[0], outputs[1]);
+
+            int positive = (harmonics + c) * bins;
+            int negative = (harmonics - c) * bins;
+            for(int b = 0; b < bins; b++) {
+                spectrumRe[positive + b] = re[firstBin + b];
+                spectrumIm[positive + b] = im[firstBin + b];
+            }
+            if(c > 0) {
+                for(int b = 0; b < bins; b++) {
+                    int mirror = (transformLength - firstBin - b) % transformLength;
+                    spectrumRe[negative + b] = re[mirror];
+                    spectrumIm[negative + b] = -im[mirror];
+                }
+            }
+        }
+
+        if(window == null) {
+            window = new int[windowSize];
+        }
+        System.arraycopy(nextWindow, 0, window, 0, windowSize);
+        samplesSinceAnchor = 0;
+    }
+
+    /**
+     * Gets the coefficients a_c of a window function written as w[m] = sum of a_c * cos(2*pi*c*m/(M-1))
+     * <p>These match the formulas of {@link org.quifft.params.WindowFunctionGenerator}.</p>
+     * @param windowFunction window function
+     * @return cosine coefficients, or null if the window function isn't a sum of cosines
+     */
+    private static double[] cosineCoefficients(WindowFunction windowFunction) {
+        if(windowFunction == null) return null;
+
+        switch(windowFunction) {
+            case RECTANGULAR:
+                return new double[]{1};
+            case HANNING:
+                return new double[]{0.5, -0.5};
+            case HAMMING:
+                return new double[]{0.54, -0.46};
+            case BLACKMAN:
+                return new double[]{0.42, -0.5, 0.08};
+            default:
+                return null;
+        }
+    }
+
+}
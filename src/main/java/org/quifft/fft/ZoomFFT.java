@@ -0,0 +1,175 @@
+package org.quifft.fft;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the spectrum of a window over a narrow band of frequencies at an arbitrary density with the chirp-z
+ * transform
+ * <p>The chirp-z transform evaluates X(f) = sum of x[n] * e^(-2*pi*i*f*n/fs) at the K equally spaced frequencies
+ * f = f0 + k*df.  Writing nk = (n^2 + k^2 - (k - n)^2) / 2, as {@link BluesteinFFT} does, turns it into a convolution
+ * of the signal multiplied by a chirp with the conjugate chirp, computed with power of 2 FFTs of length at least
+ * M + K - 1 for a window of M samples.  A band of K bins therefore costs O((M + K) log(M + K)) operations and K
+ * outputs, however fine its spacing, instead of the O(N log N) operations and N / 2 outputs of an FFT zero-padded to
+ * N points to reach the same spacing.</p>
+ * <p>Only magnitudes are computed, so the final chirp, which only changes the phase of each bin, is skipped.  Tables
+ * are built once per band and kept in a small cache, like {@link FFTPlan}s.</p>
+ */
+public class ZoomFFT {
+
+    // maximum number of bands kept in cache; least recently used bands are evicted first
+    private static final int MAX_CACHED_BANDS = 4;
+
+    // bands cached by window size, first frequency, last frequency, number of bins and sample rate, in access order
+    private static final Map<List<Object>, ZoomFFT> bandCache = new LinkedHashMap<List<Object>, ZoomFFT>(16, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, ZoomFFT> eldest) {
+            return size() > MAX_CACHED_BANDS;
+        }
+    };
+
+    // number of samples in window (M)
+    private final int windowSize;
+
+    // number of bins in band (K)
+    private final int bins;
+
+    // chirp e^(-2*pi*i*(f0*n + df*n^2/2)/fs) that each sample is multiplied by
+    private final double[] chirpRe;
+    private final double[] chirpIm;
+
+    // FFT of convolution kernel e^(pi*i*df*m^2/fs) for -M < m < K, wrapped around so negative m sit at the end
+    private final double[] kernelRe;
+    private final double[] kernelIm;
+
+    // plan for the power of 2 convolution length
+    private final FFTPlan convolutionPlan;
+
+    /**
+     * Gets the chirp-z transform of a band, building its tables if it isn't already cached
+     * @param windowSize number of samples in each window
+     * @param minFrequency frequency of first bin in Hz
+     * @param maxFrequency frequency of last bin in Hz
+     * @param bins number of equally spaced bins from minFrequency to maxFrequency (inclusive)
+     * @param sampleRate sample rate of windows in Hz
+     * @return chirp-z transform of band
+     */
+    public static ZoomFFT forBand(int windowSize, double minFrequency, double maxFrequency, int bins,
+                                  float sampleRate) {
+        List<Object> key = Arrays.<Object>asList(windowSize, minFrequency, maxFrequency, bins, sampleRate);
+        synchronized(bandCache) {
+            ZoomFFT zoomFFT = bandCache.get(key);
+            if(zoomFFT == null) {
+                zoomFFT = new ZoomFFT(windowSize, minFrequency, maxFrequency, bins, sampleRate);
+                bandCache.put(key, zoomFFT);
+            }
+            return zoomFFT;
+        }
+    }
+
+    /**
+     * Gets the frequency of each bin of a band
+     * @param minFrequency frequency of first bin in Hz
+     * @param maxFrequency frequency of last bin in Hz
+     * @param bins number of equally spaced bins from minFrequency to maxFrequency (inclusive)
+     * @param index index of bin
+     * @return frequency of bin in Hz
+     */
+    public static double binFrequency(double minFrequency, double maxFrequency, int bins, int index) {
+        if(bins == 1) return minFrequency;
+
+        return minFrequency + index * (maxFrequency - minFrequency) / (bins - 1);
+    }
+
+    private ZoomFFT(int windowSize, double minFrequency, double maxFrequency, int bins, float sampleRate) {
+        this.windowSize = windowSize;
+        this.bins = bins;
+
+        int m = Integer.highestOneBit(windowSize + bins - 1);
+        if(m < windowSize + bins - 1) m *= 2;
+        convolutionPlan = FFTPlan.forSize(m);
+
+        // frequencies in cycles per sample; angles are reduced to a single turn before being multiplied by 2*pi
+        double start = minFrequency / sampleRate;
+        double spacing = bins == 1 ? 0 : (maxFrequency - minFrequency) / (bins - 1) / sampleRate;
+
+        chirpRe = new double[windowSize];
+        chirpIm = new double[windowSize];
+        for(int n = 0; n < windowSize; n++) {
+            double turns = fraction(start * n + spacing * n * (double) n / 2);
+            chirpRe[n] = Math.cos(-2 * Math.PI * turns);
+            chirpIm[n] = Math.sin(-2 * Math.PI * turns);
+        }
+
+        kernelRe = new double[m];
+        kernelIm = new double[m];
+        for(int j = -(windowSize - 1); j < bins; j++) {
+            double turns = fraction(spacing * j * (double) j / 2);
+            int index = j < 0 ? m + j : j;
+            kernelRe[index] = Math.cos(2 * Math.PI * turns);
+            kernelIm[index] = Math.sin(2 * Math.PI * turns);
+        }
+        DoubleFFT.fft(kernelRe, kernelIm, convolutionPlan);
+    }
+
+    /**
+     * Computes the scaled magnitude of each bin of the band for a window
+     * @param window samples of window; only the first {@code windowSize} are used, so zero-padding is ignored
+     * @param magnitudes array of length at least {@code bins} to hold the magnitude of each bin
+     * @param scale factor by which each magnitude is multiplied
+     */
+    public void magnitudes(int[] window, double[] magnitudes, double scale) {
+        int m = convolutionPlan.size();
+        double[][] work = convolutionPlan.work(m);
+        double[] aRe = work[0];
+        double[] aIm = work[1];
+
+        // multiply signal by chirp and zero-pad to convolution length
+        for(int n = 0; n < windowSize; n++) {
+            aRe[n] = window[n] * chirpRe[n];
+            aIm[n] = window[n] * chirpIm[n];
+        }
+        for(int n = windowSize; n < m; n++) {
+            aRe[n] = 0;
+            aIm[n] = 0;
+        }
+
+        DoubleFFT.radix2(aRe, aIm, convolutionPlan, windowSize);
+
+        // multiply by transformed kernel, conjugating the product so that the next forward FFT is an inverse FFT
+        for(int k = 0; k < m; k++) {
+            double productRe = aRe[k] * kernelRe[k] - aIm[k] * kernelIm[k];
+            double productIm = aRe[k] * kernelIm[k] + aIm[k] * kernelRe[k];
+            aRe[k] = productRe;
+            aIm[k] = -productIm;
+        }
+
+        DoubleFFT.fft(aRe, aIm, convolutionPlan);
+
+        // the final chirp has magnitude 1, so each bin's magnitude is that of the (1/m scaled) convolution
+        for(int k = 0; k < bins; k++) {
+            magnitudes[k] = scale / m * Math.sqrt(aRe[k] * aRe[k] + aIm[k] * aIm[k]);
+        }
+    }
+
+    /**
+     * Get number of bins in band
+     * @return number of bins in band
+     */
+    public int bins() {
+        return bins;
+    }
+
+    /**
+     * Gets the fractional part of a number of turns, which keeps angles (and their rounding error) small
+     * @param turns angle in turns
+     * @return turns minus its floor
+     */
+    private static double fraction(double turns) {
+        return turns - Math.floor(turns);
+    }
+
+}
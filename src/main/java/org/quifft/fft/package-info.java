@@ -1,5 +1,7 @@
 /**
- * FFT workhorse, algorithm implemented by Princeton University (Robert Sedgewick and Kevin Wayne)
+ * FFT workhorse; {@link org.quifft.fft.DoubleFFT} computes transforms on primitive arrays, based on the
+ * algorithm implemented by Princeton University (Robert Sedgewick and Kevin Wayne)
+ * <p>{@link org.quifft.fft.InplaceFFT} and {@link org.quifft.fft.Complex} are kept as a reference implementation.</p>
  * @author Robert Sedgewick
  * @author Kevin Wayne
  */
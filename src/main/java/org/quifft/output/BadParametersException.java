@@ -7,13 +7,34 @@ import org.quifft.params.FFTParameters;
  * <p>This exception will be raised in the following cases: </p>
  * <ul>
  *     <li>{@code windowSize} is less than or equal to 0</li>
- *     <li>{@code numPoints} is not set and {@code windowSize} is not a power of 2</li>
  *     <li>{@code windowFunction} is null</li>
  *     <li>{@code windowOverlap} is negative</li>
  *     <li>{@code windowOverlap} is 1.00 or greater</li>
  *     <li>{@code numPoints} is negative</li>
  *     <li>{@code numPoints} is set to be less than {@code windowSize}</li>
- *     <li>{@code numPoints} is set to a value that is not a power of 2</li>
+ *     <li>{@code engine} is null</li>
+ *     <li>{@code engine} is radix 2, four-step or parallel four-step and the total window length isn't a power of 2</li>
+ *     <li>{@code engine} is mixed radix and the total window length has a prime factor other than 2, 3 and 5</li>
+ *     <li>{@code engine} is vector and the Vector API isn't available or the total window length isn't a power
+ *     of 2</li>
+ *     <li>{@code parallelThreshold} is less than or equal to 0</li>
+ *     <li>{@code useSlidingDFT} is set to true and {@code windowFunction} is triangular or Bartlett</li>
+ *     <li>{@code anchorInterval} is less than or equal to 0</li>
+ *     <li>{@code readAheadBlocks} is negative</li>
+ *     <li>{@code decoderThreads} is less than or equal to 0</li>
+ *     <li>{@code targetFrequencies} is empty or contains a negative or non-finite frequency</li>
+ *     <li>{@code minFrequency} or {@code maxFrequency} is negative or infinite</li>
+ *     <li>{@code maxFrequency} is less than {@code minFrequency}</li>
+ *     <li>{@code zoomBins} is set and {@code minFrequency} or {@code maxFrequency} is null</li>
+ *     <li>{@code zoomBins} is less than or equal to 0, or greater than 1 and {@code maxFrequency} equals
+ *     {@code minFrequency}</li>
+ *     <li>{@code useSlidingDFT} is set to true and {@code targetFrequencies} or {@code zoomBins} is set</li>
+ *     <li>{@code targetFrequencies} and {@code zoomBins} are both set</li>
+ *     <li>{@code targetFrequencies} and {@code minFrequency} or {@code maxFrequency} are both set</li>
+ *     <li>only one of {@code rangeStartMs} and {@code rangeEndMs} is set</li>
+ *     <li>{@code rangeStartMs} is negative or infinite, or {@code rangeEndMs} isn't greater than it</li>
+ *     <li>{@code precision} is null</li>
+ *     <li>{@code precision} is single and {@code engine} isn't auto</li>
  *     <li>{@code useDecibelScale} is set to false and {@code isNormalzed} is set to true when using an {@link FFTStream}</li>
  *  </ul>
  * @see FFTParameters
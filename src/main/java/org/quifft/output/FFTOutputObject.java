@@ -12,7 +12,7 @@ import java.text.DecimalFormat;
 public abstract class FFTOutputObject {
 
     /**
-     * Name of file for which the FFT operation was performed
+     * Name of file for which the FFT operation was performed, or null if audio was read from memory
      */
     public String fileName;
 
@@ -36,6 +36,13 @@ public abstract class FFTOutputObject {
      */
     public double windowDurationMs;
 
+    /**
+     * Timestamp in milliseconds at which the window of the first frame begins
+     * <p>This is 0 unless a time range was set, in which case it's the timestamp of the first sample of the range.
+     * Frame timestamps are relative to the start of the file either way.</p>
+     */
+    public double rangeStartMs;
+
     /**
      * The parameters used to compute this FFT
      */
@@ -50,7 +57,7 @@ public abstract class FFTOutputObject {
      * @param params parameters for FFT
      */
     public void setMetadata(AudioReader reader, FFTParameters params) {
-        this.fileName = reader.getFile().getName();
+        this.fileName = reader.getFile() != null ? reader.getFile().getName() : null;
 
         this.fileDurationMs = reader.getFileDurationMs();
 
@@ -60,6 +67,7 @@ public abstract class FFTOutputObject {
 
         double sampleLengthMs = 1 / format.getSampleRate() * 1000;
         this.windowDurationMs = sampleLengthMs * params.windowSize;
+        this.rangeStartMs = params.firstSample(format.getSampleRate()) * sampleLengthMs;
 
         this.fftParameters = params;
     }
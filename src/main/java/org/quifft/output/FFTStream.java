@@ -2,6 +2,7 @@ package org.quifft.output;
 
 import org.quifft.audioread.AudioReader;
 import org.quifft.fft.FFTComputationWrapper;
+import org.quifft.fft.SlidingDFT;
 import org.quifft.params.FFTParameters;
 import org.quifft.params.WindowFunction;
 import org.quifft.sampling.SampleWindowExtractor;
@@ -21,6 +22,15 @@ public class FFTStream extends FFTOutputObject implements Iterator<FFTFrame> {
     // Counter for how many samples have been computed so far (how many times next() has been called)
     private int samplesTakenCount;
 
+    // Sliding DFT holding the spectrum of the previous window, or null if each frame is computed with a new FFT
+    private SlidingDFT slidingDFT;
+
+    // Extractor applying zero-padding and window function (or neither, for the sliding DFT) to each window
+    private SampleWindowExtractor windowExtractor;
+
+    // Reused array holding the window passed to the FFT
+    private int[] fullWindow;
+
     /**
      * Checks whether another FFTFrame exists
      * @return true if another FFTFrame exists
@@ -34,24 +44,22 @@ public class FFTStream extends FFTOutputObject implements Iterator<FFTFrame> {
      * @return next computed FFTFrame
      */
     public FFTFrame next() {
-        int[] nextWindow = audioReader.next();
+        int[] nextWindow = windowExtractor.convertSamplesToWindow(audioReader.next(), fullWindow);
         boolean isStereo = audioReader.getAudioFormat().getChannels() == 2;
-        int windowSize = fftParameters.windowSize;
-        WindowFunction windowFunction = fftParameters.windowFunction;
-        double overlap = fftParameters.windowOverlap;
-        int zeroPadLength = fftParameters.zeroPadLength();
 
-        double startTimeMs = samplesTakenCount * windowDurationMs * (1 - fftParameters.windowOverlap);
+        double startTimeMs = rangeStartMs + samplesTakenCount * windowDurationMs * (1 - fftParameters.windowOverlap);
         float sampleRate = audioReader.getAudioFormat().getSampleRate();
 
-        SampleWindowExtractor windowExtractor = new SampleWindowExtractor(nextWindow, isStereo, windowSize,
-                windowFunction, overlap, zeroPadLength);
-        nextWindow = windowExtractor.convertSamplesToWindow(nextWindow);
-
         samplesTakenCount++;
 
-        FFTFrame nextFrame = FFTComputationWrapper.doFFT(nextWindow, startTimeMs,
-                windowDurationMs, fileDurationMs, sampleRate, fftParameters);
+        FFTFrame nextFrame;
+        if(slidingDFT != null) {
+            nextFrame = FFTComputationWrapper.doSlidingDFT(slidingDFT, nextWindow, hopSize(isStereo), startTimeMs,
+                    windowDurationMs, fileDurationMs, sampleRate, fftParameters);
+        } else {
+            nextFrame = FFTComputationWrapper.doFFT(nextWindow, startTimeMs,
+                    windowDurationMs, fileDurationMs, sampleRate, fftParameters);
+        }
         if(fftParameters.useDecibelScale) {
             FFTComputationWrapper.scaleLogarithmically(nextFrame);
         }
@@ -59,6 +67,22 @@ public class FFTStream extends FFTOutputObject implements Iterator<FFTFrame> {
         return nextFrame;
     }
 
+    /**
+     * Gets the number of mono samples by which each window moves forward, matching how {@link AudioReader} overlaps
+     * the windows it reads
+     * @param isStereo true if audio file is stereo
+     * @return number of samples between the starts of consecutive windows; windowSize if stereo windows move by an
+     * odd number of interleaved samples, which the sliding DFT can't follow
+     */
+    private int hopSize(boolean isStereo) {
+        int channels = isStereo ? 2 : 1;
+        int windowLength = fftParameters.windowSize * channels;
+        int shift = windowLength - (int) Math.round(windowLength * fftParameters.windowOverlap);
+        if(shift % channels != 0) return fftParameters.windowSize;
+
+        return shift / channels;
+    }
+
     @Override
     public void setMetadata(AudioReader reader, FFTParameters params) {
         super.setMetadata(reader, params);
@@ -66,5 +90,22 @@ public class FFTStream extends FFTOutputObject implements Iterator<FFTFrame> {
         // capture AudioReader object after setting metadata
         audioReader = reader;
         audioReader.setFFTParameters(params);
+
+        boolean isStereo = reader.getAudioFormat().getChannels() == 2;
+        if(params.useSlidingDFT) {
+            float sampleRate = reader.getAudioFormat().getSampleRate();
+            slidingDFT = new SlidingDFT(params.windowSize, params.totalWindowLength(), params.windowFunction,
+                    params.anchorInterval, params.engine, params.parallelThreshold, params.firstBin(sampleRate),
+                    params.lastBin(sampleRate));
+
+            // the sliding DFT applies the window function itself, so it takes the plain mono samples
+            windowExtractor = new SampleWindowExtractor(new int[0], isStereo, params.windowSize,
+                    WindowFunction.RECTANGULAR, params.windowOverlap, 0);
+            fullWindow = new int[params.windowSize];
+        } else {
+            windowExtractor = new SampleWindowExtractor(new int[0], isStereo, params.windowSize,
+                    params.windowFunction, params.windowOverlap, params.zeroPadLength());
+            fullWindow = new int[params.totalWindowLength()];
+        }
     }
 }
@@ -0,0 +1,73 @@
+package org.quifft.params;
+
+/**
+ * The algorithm used to compute each FFT
+ * <p>Every engine computes the same result; they only differ in speed, which depends on the transform size and on
+ * the CPU the FFT runs on.</p>
+ */
+public enum FFTEngineType {
+
+    /**
+     * Chooses an engine from the transform size alone: radix 2 for powers of 2 (using the Vector API engine when it
+     * is available, and four-step for transforms too large to fit in cache), mixed radix for products of 2, 3 and 5,
+     * and Bluestein for all other sizes
+     * <p>Power of 2 transforms of at least {@code parallelThreshold} points are computed with the parallel four-step
+     * engine, as long as more than one processor is available.</p>
+     */
+    AUTO("Auto"),
+
+    /**
+     * Benchmarks every engine that supports the transform size the first time that size is used, and uses the
+     * fastest one from then on
+     * <p>Results are cached for the lifetime of the JVM, and can also be persisted to a wisdom file so that
+     * later runs on the same machine don't need to benchmark again.</p>
+     */
+    CALIBRATED("Calibrated"),
+
+    /**
+     * Iterative radix 2 Cooley-Tukey FFT; transform size must be a power of 2
+     */
+    RADIX_2("Radix 2"),
+
+    /**
+     * Recursive mixed radix Cooley-Tukey FFT with radix 2, 3, 4 and 5 butterflies; transform size must be a product
+     * of 2, 3 and 5
+     */
+    MIXED_RADIX("Mixed radix"),
+
+    /**
+     * Bluestein's (chirp-z) algorithm, which supports any transform size
+     */
+    BLUESTEIN("Bluestein"),
+
+    /**
+     * Four-step FFT, which splits a transform into many short transforms that fit in cache; transform size must be
+     * a power of 2
+     * <p>Only faster than radix 2 for very large transforms (millions of points).</p>
+     */
+    FOUR_STEP("Four-step"),
+
+    /**
+     * Four-step FFT whose column transforms, row transforms and transposition run on all threads of the common
+     * fork-join pool; transform size must be a power of 2
+     */
+    PARALLEL_FOUR_STEP("Parallel four-step"),
+
+    /**
+     * Radix 2 FFT built on the JDK Vector API; transform size must be a power of 2
+     * <p>Requires Java 17 or later with the {@code jdk.incubator.vector} module resolved
+     * ({@code --add-modules jdk.incubator.vector}).</p>
+     */
+    VECTOR("Vector");
+
+    private final String name;
+
+    FFTEngineType(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -1,5 +1,8 @@
 package org.quifft.params;
 
+import org.quifft.fft.FFTPlanner;
+import org.quifft.fft.SlidingDFT;
+
 /**
  * A config object containing the parameters of a Fourier transform
  * <p>These parameters are used while performing the FFT, and can be accessed
@@ -9,7 +12,7 @@ public class FFTParameters {
 
     /**
      * Number of samples taken from audio waveform for use in FFT
-     * <p>If numPoints is not defined, this must be a power of 2.
+     * <p>Any positive window size can be used, but powers of 2 and products of 2, 3 and 5 are fastest.
      * If numPoints is defined to be greater than window size, the signal will be
      * padded with (numPoints - windowSize) zeroes.</p>
      */
@@ -32,7 +35,7 @@ public class FFTParameters {
     /**
      * Number of points in the N-point FFT
      * <p>If not defined, will default to the window size.
-     * If defined, must be greater than window size and be a power of 2.</p>
+     * If defined, must be greater than or equal to window size.</p>
      */
     public Integer numPoints = null;
 
@@ -55,6 +58,123 @@ public class FFTParameters {
      */
     public boolean isNormalized = false;
 
+    /**
+     * Algorithm used to compute each FFT
+     * <p>By default, an engine is chosen from the transform size alone.  {@link FFTEngineType#CALIBRATED} benchmarks
+     * the available engines on this machine instead.  An explicitly chosen engine must support the transform size:
+     * radix 2, four-step and vector require a power of 2 and mixed radix requires a product of 2, 3 and 5.</p>
+     */
+    public FFTEngineType engine = FFTEngineType.AUTO;
+
+    /**
+     * Floating point precision in which each FFT is computed
+     * <p>With single precision, the transform and bin magnitudes of windows whose total length is twice a power of 2
+     * are computed in {@code float} arrays; other lengths are still computed in double precision by {@code engine}.
+     * Either way, the resulting frequency bins hold {@code double} values.  Single precision can only be used with
+     * the {@link FFTEngineType#AUTO} engine.</p>
+     */
+    public Precision precision = Precision.DOUBLE;
+
+    /**
+     * If true, the frames of a full FFT will be computed in parallel on the common fork-join pool
+     * <p>Only applies to full FFTs; an FFTStream computes one frame at a time.</p>
+     */
+    public boolean isParallel = false;
+
+    /**
+     * Smallest number of points in an FFT for which a single transform is split up and computed on multiple threads
+     * <p>Only applies when {@code engine} is {@link FFTEngineType#AUTO}, the number of points is a power of 2 and
+     * more than one processor is available.  Splitting a transform only pays off once it takes milliseconds to
+     * compute, so this is meant for very large {@code numPoints}.</p>
+     */
+    public int parallelThreshold = FFTPlanner.DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * If true, an FFTStream updates the spectrum of its previous frame with a sliding DFT instead of computing a new FFT
+     * for every frame
+     * <p>Sliding the spectrum costs O(N) operations per new sample instead of O(N log N) per frame, so this is much
+     * faster when {@code windowOverlap} is close to 1 and consecutive windows are only a few samples apart.  Longer
+     * hops fall back to full transforms automatically.  Only rectangular, Hanning, Hamming and Blackman windows can
+     * be used, and the spectrum is always computed in double precision.  Only applies to FFTStreams.</p>
+     */
+    public boolean useSlidingDFT = false;
+
+    /**
+     * Maximum number of samples slid into a sliding DFT before its spectrum is recomputed from scratch, which
+     * discards the rounding error accumulated by sliding
+     */
+    public int anchorInterval = SlidingDFT.DEFAULT_ANCHOR_INTERVAL;
+
+    /**
+     * Number of blocks of samples that may be decoded ahead of the FFT on a background thread, or 0 to decode samples
+     * on the thread computing the FFT
+     * <p>With read-ahead, decoding the file (which is costly for MP3s) overlaps with windowing and transforming its
+     * samples.  The decoding thread waits whenever this many blocks are waiting to be transformed, so memory use stays
+     * bounded.</p>
+     */
+    public int readAheadBlocks = 0;
+
+    /**
+     * Number of threads on which MP3 files are decoded
+     * <p>With more than one thread, an MP3 is split into segments of consecutive frames that are decoded at the same
+     * time and put back together in order, giving exactly the samples of decoding it on a single thread.</p>
+     */
+    public int decoderThreads = 1;
+
+    /**
+     * Frequencies in Hz whose amplitudes are computed, or null to compute every frequency bin
+     * <p>If set, each frame holds exactly one bin per target frequency, in the same order.  Their amplitudes are
+     * computed with a bank of Goertzel filters in O(N) time per frequency, which is much faster than an FFT when only
+     * a few frequencies are needed (e.g. for tone detection).  Target frequencies don't need to be multiples of the
+     * frequency resolution.</p>
+     */
+    public double[] targetFrequencies = null;
+
+    /**
+     * Lowest frequency in Hz kept in each frame, or null to start at 0 Hz
+     * <p>Only the frequency bins from {@code minFrequency} to {@code maxFrequency} are created, so memory and the
+     * decibel and normalization passes scale with this band instead of the whole spectrum.  Radix 2 transforms also
+     * skip most of the butterflies that only contribute to bins outside of the band.  If {@code zoomBins} is set,
+     * this is instead the frequency of the first bin of the zoom band.</p>
+     * @see #zoomBins
+     */
+    public Double minFrequency = null;
+
+    /**
+     * Highest frequency in Hz kept in each frame, or null to end at the last bin below the Nyquist frequency
+     * <p>If {@code zoomBins} is set, this is instead the frequency of the last bin of the zoom band.</p>
+     * @see #minFrequency
+     * @see #zoomBins
+     */
+    public Double maxFrequency = null;
+
+    /**
+     * Number of equally spaced bins from {@code minFrequency} to {@code maxFrequency} (inclusive) computed for each
+     * frame, or null to compute the whole spectrum
+     * <p>If set, only this band is computed, with a chirp-z transform whose cost and output size are proportional to
+     * the window size plus the number of bins.  The bins can be spaced much more finely than the frequency resolution
+     * (the spectrum is interpolated exactly as zero-padding would), without zero-padding the whole spectrum.</p>
+     */
+    public Integer zoomBins = null;
+
+    /**
+     * Timestamp in milliseconds of the start of the part of the audio file that's transformed, or null to transform
+     * the whole file
+     * <p>Samples before {@code rangeStartMs} and from {@code rangeEndMs} on aren't decoded at all (an MP3 is decoded
+     * from a few frames before the start), so the cost of an FFT is proportional to the length of the range rather than
+     * that of the file.  Frames are timestamped relative to the start of the file, and the last windows of the range
+     * are zero-padded just as the last windows of a file are.</p>
+     * @see #rangeEndMs
+     */
+    public Double rangeStartMs = null;
+
+    /**
+     * Timestamp in milliseconds of the end of the part of the audio file that's transformed, or null to transform
+     * the whole file; a range ending after the end of the file ends with the file
+     * @see #rangeStartMs
+     */
+    public Double rangeEndMs = null;
+
     /**
      * Get zero padding length (# of zeroes that should be appended to input signal before taking FFT)
      * based on numPoints and windowSize parameters
@@ -80,4 +200,63 @@ public class FFTParameters {
         return numPoints;
     }
 
+    /**
+     * Get position of the first sample transformed, which is the sample nearest to rangeStartMs
+     * @param sampleRate sample rate of audio in Hz
+     * @return number of samples per channel before the first sample transformed (0 if rangeStartMs isn't set)
+     */
+    public long firstSample(float sampleRate) {
+        if(rangeStartMs == null) {
+            return 0;
+        }
+
+        return Math.round(rangeStartMs * sampleRate / 1000);
+    }
+
+    /**
+     * Get position of the end of the samples transformed, which is the sample nearest to rangeEndMs
+     * @param sampleRate sample rate of audio in Hz
+     * @return number of samples per channel before the first sample that isn't transformed (Long.MAX_VALUE if
+     * rangeEndMs isn't set)
+     */
+    public long endSample(float sampleRate) {
+        if(rangeEndMs == null) {
+            return Long.MAX_VALUE;
+        }
+
+        return Math.round(rangeEndMs * sampleRate / 1000);
+    }
+
+    /**
+     * Get index of the first frequency bin kept in each frame, which is the first bin at or above minFrequency
+     * @param sampleRate sample rate of audio in Hz
+     * @return index of first bin kept (0 if minFrequency isn't set)
+     */
+    public int firstBin(float sampleRate) {
+        if(minFrequency == null) {
+            return 0;
+        }
+
+        // bins are multiples of the frequency resolution; the tolerance keeps a bin whose frequency equals
+        // minFrequency despite rounding error
+        double bin = Math.ceil(minFrequency * totalWindowLength() / sampleRate - 1e-9);
+        return (int) Math.min(totalWindowLength() / 2, bin);
+    }
+
+    /**
+     * Get index of the last frequency bin kept in each frame, which is the last bin at or below maxFrequency
+     * @param sampleRate sample rate of audio in Hz
+     * @return index of last bin kept (the last bin below the Nyquist frequency if maxFrequency isn't set); less than
+     * {@link #firstBin} if no bin is kept
+     */
+    public int lastBin(float sampleRate) {
+        int lastBin = totalWindowLength() / 2 - 1;
+        if(maxFrequency == null) {
+            return lastBin;
+        }
+
+        double bin = Math.floor(maxFrequency * totalWindowLength() / sampleRate + 1e-9);
+        return (int) Math.min(lastBin, bin);
+    }
+
 }
@@ -1,5 +1,7 @@
 package org.quifft.params;
 
+import org.quifft.fft.FFTEngines;
+import org.quifft.fft.SlidingDFT;
 import org.quifft.output.BadParametersException;
 
 /**
@@ -20,13 +22,6 @@ public class ParameterValidator {
             throw new BadParametersException(String.format("Window size must be positive; " +
                     "was set to %d", params.windowSize));
 
-        // window size must be a power of 2 if num points is not set
-        if(params.numPoints == null && !isPow2(params.windowSize))
-            throw new BadParametersException(String.format("If number of points is not set, window size must be a " +
-                    "power of 2; was set to %1$d. \nIf you'd like to use a window of size %1$d, " +
-                    "set numPoints to the next power of 2 greater than %1$d so the signal will " +
-                    "be zero-padded up to that length.", params.windowSize));
-
         // window function cannot be null
         if(params.windowFunction == null)
             throw new BadParametersException("Window function cannot be null");
@@ -47,10 +42,131 @@ public class ParameterValidator {
                     "window size; window size was %d but numPoints was only %d",
                     params.windowSize, params.numPoints));
 
-        // num points, if set, must be a power of 2
-        if(params.numPoints != null && !isPow2(params.numPoints))
-            throw new BadParametersException(String.format("Number of points in FFT must be a power of two; " +
-                    "was set to %d", params.numPoints));
+        // engine cannot be null
+        if(params.engine == null)
+            throw new BadParametersException("FFT engine cannot be null");
+
+        // radix 2 engine requires a power of 2 transform
+        if(params.engine == FFTEngineType.RADIX_2 && !FFTEngines.RADIX_2.supports(params.totalWindowLength()))
+            throw new BadParametersException(String.format("Radix 2 engine requires a total window length that " +
+                    "is a power of 2; was %d", params.totalWindowLength()));
+
+        // four-step engine requires a power of 2 transform
+        if(params.engine == FFTEngineType.FOUR_STEP && !FFTEngines.FOUR_STEP.supports(params.totalWindowLength()))
+            throw new BadParametersException(String.format("Four-step engine requires a total window length that " +
+                    "is a power of 2; was %d", params.totalWindowLength()));
+
+        // parallel four-step engine requires a power of 2 transform
+        if(params.engine == FFTEngineType.PARALLEL_FOUR_STEP
+                && !FFTEngines.PARALLEL_FOUR_STEP.supports(params.totalWindowLength()))
+            throw new BadParametersException(String.format("Parallel four-step engine requires a total window " +
+                    "length that is a power of 2; was %d", params.totalWindowLength()));
+
+        // parallel threshold must be positive
+        if(params.parallelThreshold <= 0)
+            throw new BadParametersException(String.format("Parallel threshold must be positive; " +
+                    "was set to %d", params.parallelThreshold));
+
+        // mixed radix engine requires a transform whose only prime factors are 2, 3 and 5
+        if(params.engine == FFTEngineType.MIXED_RADIX && !FFTEngines.MIXED_RADIX.supports(params.totalWindowLength()))
+            throw new BadParametersException(String.format("Mixed radix engine requires a total window length " +
+                    "whose only prime factors are 2, 3 and 5; was %d", params.totalWindowLength()));
+
+        // vector engine requires the Vector API and a power of 2 transform
+        if(params.engine == FFTEngineType.VECTOR && !FFTEngines.isVectorAvailable())
+            throw new BadParametersException("Vector engine requires Java 17 or later with the " +
+                    "jdk.incubator.vector module (--add-modules jdk.incubator.vector)");
+        if(params.engine == FFTEngineType.VECTOR && !FFTEngines.VECTOR.supports(params.totalWindowLength()))
+            throw new BadParametersException(String.format("Vector engine requires a total window length that " +
+                    "is a power of 2; was %d", params.totalWindowLength()));
+
+        // sliding DFT can only apply windows that are sums of cosines
+        if(params.useSlidingDFT && !SlidingDFT.supports(params.windowFunction))
+            throw new BadParametersException(String.format("Sliding DFT can only be used with rectangular, Hanning, " +
+                    "Hamming and Blackman windows; window function was %s", params.windowFunction));
+
+        // anchor interval must be positive
+        if(params.anchorInterval <= 0)
+            throw new BadParametersException(String.format("Anchor interval must be positive; " +
+                    "was set to %d", params.anchorInterval));
+
+        // read-ahead depth can't be negative
+        if(params.readAheadBlocks < 0)
+            throw new BadParametersException(String.format("Read-ahead blocks must be non-negative; " +
+                    "was set to %d", params.readAheadBlocks));
+
+        // at least one thread must decode
+        if(params.decoderThreads <= 0)
+            throw new BadParametersException(String.format("Decoder threads must be positive; " +
+                    "was set to %d", params.decoderThreads));
+
+        // target frequencies, if set, must be non-empty and non-negative
+        if(params.targetFrequencies != null) {
+            if(params.targetFrequencies.length == 0)
+                throw new BadParametersException("Target frequencies must contain at least one frequency");
+            for(double frequency : params.targetFrequencies) {
+                if(!(frequency >= 0) || Double.isInfinite(frequency))
+                    throw new BadParametersException(String.format("Target frequencies must be non-negative; " +
+                            "included %f", frequency));
+            }
+        }
+
+        // minimum and maximum frequencies, if set, must be non-negative and finite, with a maximum no lower than the
+        // minimum
+        if(params.minFrequency != null && (!(params.minFrequency >= 0) || Double.isInfinite(params.minFrequency)))
+            throw new BadParametersException(String.format("Minimum frequency must be non-negative and finite; " +
+                    "was set to %f", params.minFrequency));
+        if(params.maxFrequency != null && (!(params.maxFrequency >= 0) || Double.isInfinite(params.maxFrequency)))
+            throw new BadParametersException(String.format("Maximum frequency must be non-negative and finite; " +
+                    "was set to %f", params.maxFrequency));
+        if(params.minFrequency != null && params.maxFrequency != null && params.maxFrequency < params.minFrequency)
+            throw new BadParametersException(String.format("Maximum frequency must be no lower than the minimum " +
+                    "frequency; band was %f to %f Hz", params.minFrequency, params.maxFrequency));
+
+        // zoom band, if set, must have both a first and a last frequency and at least one bin; a band of several bins
+        // must have a last frequency above its first
+        if(params.zoomBins != null) {
+            if(params.minFrequency == null || params.maxFrequency == null)
+                throw new BadParametersException("Zoom band requires both a minimum and a maximum frequency");
+            if(params.zoomBins <= 0)
+                throw new BadParametersException(String.format("Zoom band must have a positive number of bins; " +
+                        "was set to %d", params.zoomBins));
+            if(params.zoomBins > 1 && params.maxFrequency.equals(params.minFrequency))
+                throw new BadParametersException(String.format("Maximum frequency of zoom band must be greater than " +
+                        "its minimum frequency; band was %f to %f Hz", params.minFrequency, params.maxFrequency));
+        }
+
+        // sliding DFT computes every bin, so it can't be combined with target frequencies or a zoom band
+        if(params.useSlidingDFT && (params.targetFrequencies != null || params.zoomBins != null))
+            throw new BadParametersException("Sliding DFT can't be used with target frequencies or a zoom band");
+
+        // target frequencies, a zoom band and a frequency band each select the bins of a frame, so target frequencies
+        // can't be combined with either of the others
+        if(params.targetFrequencies != null && params.zoomBins != null)
+            throw new BadParametersException("Target frequencies and a zoom band can't be used together");
+        if(params.targetFrequencies != null && (params.minFrequency != null || params.maxFrequency != null))
+            throw new BadParametersException("Target frequencies can't be used with a minimum or maximum frequency");
+
+        // time range, if set, must start at a non-negative finite time and end after it
+        if(params.rangeStartMs != null || params.rangeEndMs != null) {
+            if(params.rangeStartMs == null || params.rangeEndMs == null)
+                throw new BadParametersException("Time range requires both a start and an end");
+            if(!(params.rangeStartMs >= 0) || Double.isInfinite(params.rangeStartMs))
+                throw new BadParametersException(String.format("Start of time range must be non-negative and finite; " +
+                        "was set to %f", params.rangeStartMs));
+            if(!(params.rangeEndMs > params.rangeStartMs))
+                throw new BadParametersException(String.format("End of time range must be after its start; " +
+                        "range was %f to %f ms", params.rangeStartMs, params.rangeEndMs));
+        }
+
+        // precision cannot be null
+        if(params.precision == null)
+            throw new BadParametersException("Precision cannot be null");
+
+        // single precision has its own transform, so it can't be combined with an engine chosen explicitly
+        if(params.precision == Precision.FLOAT && params.engine != FFTEngineType.AUTO)
+            throw new BadParametersException(String.format("Single precision can only be used with the AUTO engine; " +
+                    "engine was set to %s", params.engine));
 
         // normalization without dB scale can't be on for an FFTStream
         if(isFFTStream && !params.useDecibelScale && params.isNormalized)
@@ -61,8 +177,4 @@ public class ParameterValidator {
                     "implement this yourself");
     }
 
-    private static boolean isPow2(int n) {
-        return n > 1 && ((n & (n - 1)) == 0);
-    }
-
 }
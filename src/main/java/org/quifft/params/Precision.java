@@ -0,0 +1,30 @@
+package org.quifft.params;
+
+/**
+ * The floating point precision in which each FFT is computed
+ */
+public enum Precision {
+
+    /**
+     * 64-bit double precision
+     */
+    DOUBLE("Double"),
+
+    /**
+     * 32-bit single precision
+     * <p>16-bit samples and amplitudes on a decibel scale with a -100 dB floor need far fewer significant digits
+     * than a float carries, so for audio this gives the same result while moving half as much memory.</p>
+     */
+    FLOAT("Float");
+
+    private final String name;
+
+    Precision(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -3,6 +3,8 @@ package org.quifft.sampling;
 import org.quifft.params.WindowFunction;
 import org.quifft.params.WindowFunctionGenerator;
 
+import java.util.Arrays;
+
 /**
  * Applies zero-padding and smoothing functions to extract sample windows from a longer waveform
  * @see org.quifft.params.FFTParameters
@@ -10,9 +12,15 @@ import org.quifft.params.WindowFunctionGenerator;
  */
 public class SampleWindowExtractor {
 
-    // full-length waveform of original audio file
+    // full-length waveform of original audio file, or the segment of it currently being extracted from
     private int[] wave;
 
+    // number of values of wave that hold samples
+    private int waveLength;
+
+    // index of window that starts at the beginning of wave
+    private int firstWindow;
+
     // true if signal is stereo (2 channels), false if mono
     private boolean isStereo;
 
@@ -22,6 +30,9 @@ public class SampleWindowExtractor {
     // windowing function to be applied to input signal
     private WindowFunction windowFunction;
 
+    // coefficients of windowing function, generated once and reused for every window (null if rectangular)
+    private double[] coefficients;
+
     // number of zeroes to be appended to windowed signal
     private int zeroPadLength;
 
@@ -40,12 +51,40 @@ public class SampleWindowExtractor {
     public SampleWindowExtractor(int[] wave, boolean isStereo, int windowSize, WindowFunction windowFunction,
                                  double windowOverlap, int zeroPadLength) {
         this.wave = wave;
+        this.waveLength = wave.length;
         this.isStereo = isStereo;
         this.windowSize = windowSize;
         this.windowFunction = windowFunction;
         this.zeroPadLength = zeroPadLength;
 
         this.ds = (int) Math.floor(windowSize * (1 - windowOverlap));
+
+        if(windowFunction != WindowFunction.RECTANGULAR) {
+            this.coefficients = WindowFunctionGenerator.generateWindow(windowSize, windowFunction);
+        }
+    }
+
+    /**
+     * Replaces the waveform with a segment of it, so that windows can be extracted from a waveform that is read in
+     * chunks
+     * <p>Windows that extend past the end of the segment are zero-padded, just like windows that extend past the end
+     * of a full-length waveform.</p>
+     * @param segment array holding segment of waveform (interleaved if stereo)
+     * @param segmentLength number of values at the start of segment that hold samples
+     * @param firstWindow index of the window that starts at the beginning of segment
+     */
+    public void setSegment(int[] segment, int segmentLength, int firstWindow) {
+        this.wave = segment;
+        this.waveLength = segmentLength;
+        this.firstWindow = firstWindow;
+    }
+
+    /**
+     * Get the distance between the start indices of consecutive windows
+     * @return number of samples (per channel) between the starts of consecutive windows
+     */
+    public int getWindowSpacing() {
+        return ds;
     }
 
     /**
@@ -58,10 +97,10 @@ public class SampleWindowExtractor {
         // copy section of original waveform into sample array
         int[] window = new int[windowSize + zeroPadLength];
 
-        int j = i * ds * (isStereo ? 2 : 1); // index into source waveform array
+        int j = (i - firstWindow) * ds * (isStereo ? 2 : 1); // index into source waveform array
         int samplesCopied = 0; // count samples copied to terminate loop once window size has been reached
 
-        while(samplesCopied < windowSize && j < wave.length) {
+        while(samplesCopied < windowSize && j < waveLength) {
             if(isStereo) {
                 window[samplesCopied++] = (int) Math.round((wave[j] + wave[j + 1]) / 2.0);
                 j += 2;
@@ -82,8 +121,17 @@ public class SampleWindowExtractor {
      * @return sampling window with smoothing function applied
      */
     public int[] convertSamplesToWindow(int[] window) {
-        int[] fullWindow = new int[windowSize + zeroPadLength];
+        return convertSamplesToWindow(window, new int[windowSize + zeroPadLength]);
+    }
 
+    /**
+     * Applies zero-padding and the selected smoothing function to a given window, writing the result into a reusable
+     * array; used with FFTStream
+     * @param window sampling window to which smoothing function should be applied
+     * @param fullWindow array of length {@code windowSize + zeroPadLength} to hold the result
+     * @return fullWindow, holding sampling window with smoothing function applied
+     */
+    public int[] convertSamplesToWindow(int[] window, int[] fullWindow) {
         int j = 0;
         int samplesCopied = 0;
 
@@ -95,6 +143,7 @@ public class SampleWindowExtractor {
                 fullWindow[samplesCopied++] = window[j++];
             }
         }
+        Arrays.fill(fullWindow, windowSize, fullWindow.length, 0);
 
         applyWindowingFunction(fullWindow);
 
@@ -106,8 +155,7 @@ public class SampleWindowExtractor {
      * @param window sample window to which windowing function should be applied
      */
     private void applyWindowingFunction(int[] window) {
-        if(windowFunction != WindowFunction.RECTANGULAR) {
-            double[] coefficients = WindowFunctionGenerator.generateWindow(windowSize, windowFunction);
+        if(coefficients != null) {
             for(int i = 0; i < windowSize; i++) {
                 window[i] = (int) Math.round(window[i] * coefficients[i]);
             }
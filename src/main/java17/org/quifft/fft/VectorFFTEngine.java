@@ -0,0 +1,155 @@
+package org.quifft.fft;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Radix 2 FFT engine whose butterflies and magnitude computation use the JDK Vector API
+ * <p>This class is compiled against Java 17 and shipped in the multi-release layer of the QuiFFT jar.
+ * {@link FFTEngines} loads it reflectively, so on older JVMs, or when the {@code jdk.incubator.vector} module isn't
+ * resolved ({@code --add-modules jdk.incubator.vector}), QuiFFT simply falls back to its scalar engines.</p>
+ * <p>The butterflies are the same as those of {@link DoubleFFT}.  Because a plan stores each stage's twiddle factors
+ * contiguously, every stage whose half-length is at least the vector length can process a full vector of
+ * butterflies at once; the first few stages are computed with scalar code.</p>
+ */
+class VectorFFTEngine implements FFTEngine {
+
+    /**
+     * Creates the engine if the Vector API is available to this JVM
+     * @return vector engine, or null if the {@code jdk.incubator.vector} module isn't resolved
+     */
+    static FFTEngine create() {
+        if(!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) return null;
+
+        return new VectorFFTEngine();
+    }
+
+    private VectorFFTEngine() {
+    }
+
+    @Override
+    public String getName() {
+        return "vector-radix-2";
+    }
+
+    @Override
+    public boolean supports(int n) {
+        return FFTPlan.isPowerOfTwo(n);
+    }
+
+    @Override
+    public void fft(double[] re, double[] im, FFTPlan plan) {
+        Kernels.radix2(re, im, plan, plan.size(), 0, plan.size());
+    }
+
+    @Override
+    public void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength) {
+        Kernels.radix2(re, im, plan, nonZeroLength, 0, plan.size());
+    }
+
+    @Override
+    public void fft(double[] re, double[] im, FFTPlan plan, int nonZeroLength, int firstOutput, int outputCount) {
+        Kernels.radix2(re, im, plan, nonZeroLength, firstOutput, outputCount);
+    }
+
+    @Override
+    public void magnitudes(double[] re, double[] im, double[] magnitudes, int offset, int length, double scale) {
+        Kernels.magnitudes(re, im, magnitudes, offset, length, scale);
+    }
+
+    /**
+     * Vector kernels, kept in their own class so that {@link VectorFFTEngine} can be loaded (and report that it's
+     * unavailable) without touching any class of the incubator module
+     */
+    private static class Kernels {
+
+        // widest vector shape supported by this CPU
+        private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+        static void radix2(double[] re, double[] im, FFTPlan plan, int nonZeroLength, int firstOutput,
+                           int outputCount) {
+            int n = plan.size();
+
+            // bit reversal permutation, which also does the work of the first log2(factor) stages (see PrunedFFT)
+            int factor = PrunedFFT.pruningFactor(n, nonZeroLength);
+            PrunedFFT.bitReverse(re, im, plan, factor);
+
+            // butterfly updates, limited to the butterflies whose results reach a needed output (see PrunedFFT)
+            int lanes = SPECIES.length();
+            for(int halfL = factor; halfL < n; halfL += halfL) {
+                int from = outputCount >= halfL ? 0 : firstOutput % halfL;
+                int to = from + Math.min(outputCount, halfL);
+                if(halfL >= lanes) {
+                    // widen the range to whole vectors, which only computes a few unneeded values
+                    from -= from % lanes;
+                    to = from + Math.min(halfL, (to - from + lanes - 1) / lanes * lanes);
+                }
+                butterflies(re, im, plan, halfL, from, Math.min(to, halfL));
+                if(to > halfL) {
+                    butterflies(re, im, plan, halfL, 0, to - halfL);
+                }
+            }
+        }
+
+        private static void butterflies(double[] re, double[] im, FFTPlan plan, int halfL, int from, int to) {
+            int n = plan.size();
+            double[] twiddleRe = plan.twiddleRe();
+            double[] twiddleIm = plan.twiddleIm();
+            int lanes = SPECIES.length();
+            int L = halfL + halfL;
+            if(halfL < lanes) {
+                // stages narrower than a vector
+                for(int block = 0; block < n; block += L) {
+                    for(int k = from; k < to; k++) {
+                        double wRe = twiddleRe[halfL - 1 + k];
+                        double wIm = twiddleIm[halfL - 1 + k];
+                        int j = block + k;
+                        int m = j + halfL;
+                        double taoRe = wRe * re[m] - wIm * im[m];
+                        double taoIm = wRe * im[m] + wIm * re[m];
+                        re[m] = re[j] - taoRe;
+                        im[m] = im[j] - taoIm;
+                        re[j] += taoRe;
+                        im[j] += taoIm;
+                    }
+                }
+            } else {
+                // halfL is a power of 2 at least as large as the vector length, so vectors never straddle blocks
+                for(int block = 0; block < n; block += L) {
+                    for(int k = from; k < to; k += lanes) {
+                        DoubleVector wRe = DoubleVector.fromArray(SPECIES, twiddleRe, halfL - 1 + k);
+                        DoubleVector wIm = DoubleVector.fromArray(SPECIES, twiddleIm, halfL - 1 + k);
+                        int j = block + k;
+                        int m = j + halfL;
+                        DoubleVector jRe = DoubleVector.fromArray(SPECIES, re, j);
+                        DoubleVector jIm = DoubleVector.fromArray(SPECIES, im, j);
+                        DoubleVector mRe = DoubleVector.fromArray(SPECIES, re, m);
+                        DoubleVector mIm = DoubleVector.fromArray(SPECIES, im, m);
+
+                        DoubleVector taoRe = wRe.mul(mRe).sub(wIm.mul(mIm));
+                        DoubleVector taoIm = wRe.mul(mIm).add(wIm.mul(mRe));
+
+                        jRe.sub(taoRe).intoArray(re, m);
+                        jIm.sub(taoIm).intoArray(im, m);
+                        jRe.add(taoRe).intoArray(re, j);
+                        jIm.add(taoIm).intoArray(im, j);
+                    }
+                }
+            }
+        }
+
+        static void magnitudes(double[] re, double[] im, double[] magnitudes, int offset, int length, double scale) {
+            int i = offset;
+            for(int bound = offset + SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+                DoubleVector vRe = DoubleVector.fromArray(SPECIES, re, i);
+                DoubleVector vIm = DoubleVector.fromArray(SPECIES, im, i);
+                vRe.mul(vRe).add(vIm.mul(vIm)).sqrt().mul(scale).intoArray(magnitudes, i);
+            }
+            for(; i < offset + length; i++) {
+                magnitudes[i] = scale * Math.sqrt(re[i] * re[i] + im[i] * im[i]);
+            }
+        }
+
+    }
+
+}
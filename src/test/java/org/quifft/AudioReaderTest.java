@@ -1,13 +1,37 @@
 package org.quifft;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.quifft.audioread.AudioReader;
 import org.quifft.audioread.AudioReaderFactory;
+import org.quifft.audioread.DirectPCMReader;
+import org.quifft.audioread.MP3FrameIndex;
+import org.quifft.audioread.MP3Reader;
+import org.quifft.audioread.PCMCache;
+import org.quifft.audioread.PCMDecoder;
 import org.quifft.audioread.PCMReader;
+import org.quifft.audioread.ParallelMP3Reader;
+import org.quifft.audioread.TimeRangeReader;
+import org.quifft.params.FFTParameters;
 
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -15,6 +39,9 @@ public class AudioReaderTest {
 
     private static File testAudio = TestUtils.getAudioFile("600hz-tone-3secs-mono.wav");
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void Should_Extract_Correct_Number_Of_Samples_From_WAV() throws IOException, UnsupportedAudioFileException {
         int SAMPLE_RATE = 44100;
@@ -31,4 +58,560 @@ public class AudioReaderTest {
     public void Instantiate_AudioReaderFactory_To_Make_Cobertura_Happy() {
         new AudioReaderFactory();
     }
+
+    @Test
+    public void Should_Extract_Same_Samples_As_AudioSystem_Conversion_To_16_Bits()
+            throws IOException, UnsupportedAudioFileException {
+        String[] fileNames = { "600hz-tone-3secs-mono.wav", "600hz-tone-3secs-stereo.wav",
+                "600hz-tone-3secs-mono-8bit.wav", "600hz-tone-500ms-stereo.wav" };
+        for(String fileName : fileNames) {
+            File audio = TestUtils.getAudioFile(fileName);
+            int[] expected = convertWithAudioSystem(audio);
+            AudioReader pcmReader = new PCMReader(audio);
+            AudioReader directReader = new DirectPCMReader(audio);
+
+            assertArrayEquals(fileName, expected, pcmReader.getWaveform());
+            assertArrayEquals(fileName, expected, directReader.getWaveform());
+            assertEquals(fileName, pcmReader.getAudioFormat().getChannels(),
+                    directReader.getAudioFormat().getChannels());
+            assertEquals(fileName, pcmReader.getAudioFormat().getSampleRate(),
+                    directReader.getAudioFormat().getSampleRate(), 0);
+        }
+    }
+
+    @Test
+    public void Should_Extract_Same_Samples_From_AIFF_As_From_WAV() throws IOException, UnsupportedAudioFileException {
+        String[] fileNames = { "600hz-tone-3secs-stereo", "600hz-tone-3secs-mono-8bit" };
+        for(String fileName : fileNames) {
+            File wav = TestUtils.getAudioFile(fileName + ".wav");
+            File aiff = temporaryFolder.newFile(fileName + ".aiff");
+            try(AudioInputStream in = AudioSystem.getAudioInputStream(wav)) {
+                AudioSystem.write(in, AudioFileFormat.Type.AIFF, aiff);
+            }
+
+            AudioReader wavReader = new DirectPCMReader(wav);
+            AudioReader aiffReader = AudioReaderFactory.audioReaderFor(aiff);
+
+            assertTrue(fileName, aiffReader instanceof DirectPCMReader);
+            assertArrayEquals(fileName, wavReader.getWaveform(), aiffReader.getWaveform());
+            assertEquals(fileName, wavReader.getAudioFormat().getChannels(), aiffReader.getAudioFormat().getChannels());
+            assertEquals(fileName, wavReader.getAudioFormat().getSampleRate(),
+                    aiffReader.getAudioFormat().getSampleRate(), 0);
+        }
+    }
+
+    @Test
+    public void Should_Stream_Same_Windows_With_Direct_Reader_As_With_AudioSystem()
+            throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("600hz-tone-500ms-stereo.wav");
+        FFTParameters parameters = new FFTParameters();
+        parameters.windowSize = 4096;
+        parameters.windowOverlap = 0.75;
+
+        AudioReader pcmReader = new PCMReader(audio);
+        AudioReader directReader = new DirectPCMReader(audio);
+        pcmReader.setFFTParameters(parameters);
+        directReader.setFFTParameters(parameters);
+
+        while(pcmReader.hasNext()) {
+            assertTrue(directReader.hasNext());
+            assertArrayEquals(pcmReader.next(), directReader.next());
+        }
+        assertFalse(directReader.hasNext());
+    }
+
+    @Test
+    public void Should_Read_Only_New_Samples_Of_Each_Overlapping_Window() throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("600hz-tone-500ms-stereo.wav");
+        int[] wave = new PCMReader(audio).getWaveform();
+
+        // stereo windows of 2 * 1000 interleaved samples keep 600 of them, so each window reads 1400 new samples
+        FFTParameters parameters = new FFTParameters();
+        parameters.windowSize = 1000;
+        parameters.windowOverlap = 0.3;
+        AudioReader reader = new PCMReader(audio);
+        reader.setFFTParameters(parameters);
+
+        int[] firstWindow = reader.next();
+        int[] expected = new int[2000];
+        System.arraycopy(wave, 0, expected, 0, 2000);
+        assertArrayEquals(expected, firstWindow);
+
+        for(int i = 1; reader.hasNext(); i++) {
+            int[] window = reader.next();
+            assertSame(firstWindow, window);
+
+            // windows past the end of the file are padded with zeros
+            Arrays.fill(expected, 0);
+            int start = i * 1400;
+            if(start < wave.length) {
+                System.arraycopy(wave, start, expected, 0, Math.min(2000, wave.length - start));
+            }
+            assertArrayEquals("window " + i, expected, window);
+        }
+    }
+
+    @Test
+    public void Should_Read_WAV_Files_Without_AudioSystem() throws IOException, UnsupportedAudioFileException {
+        AudioReader reader = AudioReaderFactory.audioReaderFor(testAudio);
+
+        assertTrue(reader instanceof DirectPCMReader);
+        assertEquals(new PCMReader(testAudio).getFileDurationMs(), reader.getFileDurationMs());
+    }
+
+    @Test
+    public void Should_Fall_Back_To_AudioSystem_For_Encodings_Direct_Reader_Does_Not_Decode()
+            throws IOException, UnsupportedAudioFileException {
+        // 8-bit mu-law WAV file (format tag 7) holding a single second of silence
+        File wav = temporaryFolder.newFile("mu-law.wav");
+        AudioFormat format = new AudioFormat(AudioFormat.Encoding.ULAW, 8000, 8, 1, 1, 8000, false);
+        byte[] silence = new byte[8000];
+        Arrays.fill(silence, (byte) 0xff);
+        writeWav(wav, 7, format, silence);
+
+        try {
+            new DirectPCMReader(wav);
+            fail("DirectPCMReader should not decode mu-law samples");
+        } catch(UnsupportedAudioFileException e) {
+            AudioReader reader = AudioReaderFactory.audioReaderFor(wav);
+            assertTrue(reader instanceof PCMReader);
+        }
+    }
+
+    @Test(expected = UnsupportedAudioFileException.class)
+    public void Should_Not_Read_Files_That_Are_Not_WAV_Or_AIFF() throws IOException, UnsupportedAudioFileException {
+        new DirectPCMReader(TestUtils.getAudioFile("text.txt"));
+    }
+
+    @Test
+    public void Should_Seek_To_Same_Samples_With_Every_Reader() throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("600hz-tone-3secs-stereo.wav");
+        int[] wave = new PCMReader(audio).getWaveform();
+        AudioReader[] readers = { new PCMReader(audio), new DirectPCMReader(audio) };
+        for(AudioReader reader : readers) {
+            reader.seek(12345);
+            int[] samples = new int[1000];
+            assertEquals(samples.length, reader.readSamples(samples, 0, samples.length));
+            assertArrayEquals(Arrays.copyOfRange(wave, 2 * 12345, 2 * 12345 + samples.length), samples);
+
+            // seeking past the end of the file leaves nothing to read
+            AudioReader pastEnd = reader instanceof PCMReader ? new PCMReader(audio) : new DirectPCMReader(audio);
+            pastEnd.seek(wave.length);
+            assertEquals(0, pastEnd.readSamples(samples, 0, samples.length));
+        }
+    }
+
+    @Test
+    public void Should_Seek_Within_Time_Range_Before_Reading() throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("600hz-tone-3secs-stereo.wav");
+        int[] wave = new PCMReader(audio).getWaveform();
+
+        AudioReader range = new TimeRangeReader(new DirectPCMReader(audio), 10000, 20000);
+        range.seek(2345);
+        assertArrayEquals(Arrays.copyOfRange(wave, 2 * 12345, 2 * 20000), range.getWaveform());
+
+        // seeking past the end of the range leaves nothing to read
+        AudioReader pastEnd = new TimeRangeReader(new DirectPCMReader(audio), 10000, 20000);
+        pastEnd.seek(20000);
+        assertEquals(0, pastEnd.getWaveform().length);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void Should_Not_Seek_Within_Time_Range_After_Reading() throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("600hz-tone-3secs-stereo.wav");
+        AudioReader range = new TimeRangeReader(new DirectPCMReader(audio), 10000, 20000);
+        range.readSamples(new int[100], 0, 100);
+        range.seek(2345);
+    }
+
+    @Test
+    public void Should_Read_Same_Samples_From_Buffer_As_From_File() throws IOException, UnsupportedAudioFileException {
+        String[] names = { "600hz-tone-3secs-mono.wav", "600hz-tone-3secs-stereo.wav", "600hz-tone-3secs-mono-8bit.wav",
+                "600hz-tone-3secs-mono.mp3", "500hz-tone-3secs-stereo.mp3" };
+        for(String name : names) {
+            File audio = TestUtils.getAudioFile(name);
+            AudioReader fileReader = AudioReaderFactory.audioReaderFor(audio);
+
+            // buffer starts after a few unrelated bytes, which the reader should ignore
+            byte[] bytes = Files.readAllBytes(audio.toPath());
+            ByteBuffer data = ByteBuffer.allocate(bytes.length + 5);
+            data.position(5);
+            data.put(bytes);
+            data.position(5);
+            AudioReader bufferReader = AudioReaderFactory.audioReaderFor(data);
+
+            assertEquals(name, fileReader.getClass(), bufferReader.getClass());
+            assertNull(name, bufferReader.getFile());
+            assertEquals(name, fileReader.getAudioFormat().toString(), bufferReader.getAudioFormat().toString());
+            assertEquals(name, fileReader.getFileDurationMs(), bufferReader.getFileDurationMs(), 50);
+            assertArrayEquals(name, fileReader.getWaveform(), bufferReader.getWaveform());
+            assertEquals(name, 5, data.position());
+        }
+    }
+
+    @Test
+    public void Should_Detect_Type_Of_File_From_Its_Bytes_Instead_Of_Its_Extension()
+            throws IOException, UnsupportedAudioFileException {
+        File wav = temporaryFolder.newFile("wav-named.mp3");
+        Files.copy(testAudio.toPath(), wav.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        File mp3 = temporaryFolder.newFile("mp3-named.wav");
+        Files.copy(TestUtils.getAudioFile("600hz-tone-3secs-mono.mp3").toPath(), mp3.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        assertTrue(AudioReaderFactory.audioReaderFor(wav) instanceof DirectPCMReader);
+        assertTrue(AudioReaderFactory.audioReaderFor(mp3) instanceof MP3Reader);
+    }
+
+    @Test(expected = UnsupportedAudioFileException.class)
+    public void Should_Not_Read_Buffers_That_Are_Not_Audio() throws IOException, UnsupportedAudioFileException {
+        byte[] text = Files.readAllBytes(TestUtils.getAudioFile("text.txt").toPath());
+        AudioReaderFactory.audioReaderFor(ByteBuffer.wrap(text));
+    }
+
+    @Test
+    public void Should_Read_Same_Samples_From_Streams_And_Channels_As_From_Buffer()
+            throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("500hz-tone-3secs-stereo.mp3");
+        int[] wave = AudioReaderFactory.audioReaderFor(ByteBuffer.wrap(Files.readAllBytes(audio.toPath())))
+                .getWaveform();
+
+        try(InputStream in = Files.newInputStream(audio.toPath())) {
+            assertArrayEquals(wave, AudioReaderFactory.audioReaderFor(in).getWaveform());
+        }
+        try(InputStream in = Files.newInputStream(audio.toPath())) {
+            assertArrayEquals(wave, AudioReaderFactory.audioReaderFor(Channels.newChannel(in)).getWaveform());
+        }
+        try(FileChannel channel = FileChannel.open(audio.toPath())) {
+            assertArrayEquals(wave, AudioReaderFactory.audioReaderFor(channel).getWaveform());
+        }
+    }
+
+    @Test
+    public void Should_Seek_To_Same_Samples_In_MP3_Buffer_As_In_MP3_File()
+            throws IOException, UnsupportedAudioFileException {
+        File audio = TestUtils.getAudioFile("500hz-tone-3secs-stereo.mp3");
+        AudioReader fileReader = new MP3Reader(audio);
+        AudioReader bufferReader = new MP3Reader(ByteBuffer.wrap(Files.readAllBytes(audio.toPath())));
+        fileReader.seek(54321);
+        bufferReader.seek(54321);
+
+        int[] fileSamples = new int[5000];
+        int[] bufferSamples = new int[5000];
+        assertEquals(fileSamples.length, fileReader.readSamples(fileSamples, 0, fileSamples.length));
+        assertEquals(bufferSamples.length, bufferReader.readSamples(bufferSamples, 0, bufferSamples.length));
+        assertArrayEquals(fileSamples, bufferSamples);
+    }
+
+    @Test
+    public void Should_Read_Same_Samples_From_PCM_Cache_As_From_MP3() throws IOException, UnsupportedAudioFileException {
+        File mp3 = TestUtils.getAudioFile("500hz-tone-3secs-stereo.mp3");
+        MP3Reader mp3Reader = new MP3Reader(mp3);
+        int[] wave = mp3Reader.getWaveform();
+
+        File cacheDirectory = new File(temporaryFolder.getRoot(), "pcm-cache");
+        PCMCache.setDirectory(cacheDirectory);
+        try {
+            // first reader decodes the MP3 into the cache, and the second one reads the cached samples
+            for(int i = 0; i < 2; i++) {
+                AudioReader reader = AudioReaderFactory.audioReaderFor(mp3);
+                assertTrue(reader instanceof DirectPCMReader);
+                assertEquals(mp3, reader.getFile());
+                assertEquals(mp3Reader.getFileDurationMs(), reader.getFileDurationMs());
+                assertEquals(mp3Reader.getAudioFormat().toString(), reader.getAudioFormat().toString());
+                assertArrayEquals(wave, reader.getWaveform());
+            }
+            assertEquals(1, cacheDirectory.listFiles().length);
+        } finally {
+            PCMCache.setDirectory(null);
+        }
+    }
+
+    @Test
+    public void Should_Evict_Least_Recently_Used_Entries_From_PCM_Cache()
+            throws IOException, UnsupportedAudioFileException {
+        File cacheDirectory = temporaryFolder.newFolder("pcm-cache");
+        File mono = TestUtils.getAudioFile("600hz-tone-3secs-mono.mp3");
+        File stereo = TestUtils.getAudioFile("500hz-tone-3secs-stereo.mp3");
+
+        // 3 seconds of 16-bit samples take up about 265 kB per channel, so only one of the files fits
+        PCMCache.setDirectory(cacheDirectory);
+        PCMCache.setMaxSize(600000);
+        try {
+            AudioReaderFactory.audioReaderFor(mono);
+            File monoEntry = cacheDirectory.listFiles()[0];
+            AudioReaderFactory.audioReaderFor(stereo);
+
+            File[] entries = cacheDirectory.listFiles();
+            assertEquals(1, entries.length);
+            assertNotEquals(monoEntry, entries[0]);
+
+            // files that don't fit at all are read without being cached
+            PCMCache.setMaxSize(1000);
+            assertTrue(AudioReaderFactory.audioReaderFor(mono) instanceof MP3Reader);
+        } finally {
+            PCMCache.setDirectory(null);
+            PCMCache.setMaxSize(PCMCache.DEFAULT_MAX_SIZE);
+        }
+    }
+
+    @Test
+    public void Should_Not_Use_PCM_Cache_Entry_Once_File_Changes() throws IOException, UnsupportedAudioFileException {
+        File cacheDirectory = temporaryFolder.newFolder("pcm-cache");
+        File mp3 = temporaryFolder.newFile("tone.mp3");
+        Files.copy(TestUtils.getAudioFile("600hz-tone-3secs-mono.mp3").toPath(), mp3.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+
+        PCMCache.setDirectory(cacheDirectory);
+        try {
+            AudioReaderFactory.audioReaderFor(mp3);
+            mp3.setLastModified(mp3.lastModified() - 60000);
+            AudioReaderFactory.audioReaderFor(mp3);
+            assertEquals(2, cacheDirectory.listFiles().length);
+        } finally {
+            PCMCache.setDirectory(null);
+        }
+    }
+
+    @Test
+    public void Should_Index_Every_Frame_Of_MP3() throws IOException, UnsupportedAudioFileException {
+        for(String fileName : new String[] { "600hz-tone-3secs-mono.mp3", "500hz-tone-3secs-stereo.mp3" }) {
+            File audio = TestUtils.getAudioFile(fileName);
+            int[] wave = new MP3Reader(audio).getWaveform();
+            MP3FrameIndex index = MP3FrameIndex.forFile(audio);
+
+            assertEquals(fileName, wave.length, index.sampleCount() * index.channels());
+            assertEquals(fileName, 44100, index.sampleRate());
+            for(int frame = 1; frame < index.frameCount(); frame++) {
+                assertTrue(fileName, index.frameOffset(frame) > index.frameOffset(frame - 1));
+                assertTrue(fileName, index.warmUpFrame(frame) < frame);
+            }
+
+            // index is only scanned once
+            assertSame(fileName, index, MP3FrameIndex.forFile(audio));
+        }
+    }
+
+    @Test
+    public void Should_Index_Same_Frames_As_Decoder_When_Tag_Is_Between_Frames() throws IOException, UnsupportedAudioFileException {
+        // the second copy's ID3v2 tag is junk between frames, which makes the decoder drop the frame before it
+        byte[] bytes = Files.readAllBytes(TestUtils.getAudioFile("500hz-tone-3secs-stereo.mp3").toPath());
+        File audio = temporaryFolder.newFile("twice.mp3");
+        try(FileOutputStream out = new FileOutputStream(audio)) {
+            out.write(bytes);
+            out.write(bytes);
+        }
+
+        int[] wave = new MP3Reader(audio).getWaveform();
+        MP3FrameIndex index = MP3FrameIndex.forFile(audio);
+        assertEquals(wave.length, index.sampleCount() * index.channels());
+
+        long samplePosition = index.sampleCount() / 2 + 100;
+        MP3Reader reader = new MP3Reader(audio);
+        reader.seek(samplePosition);
+        int[] samples = new int[10000];
+        assertEquals(samples.length, reader.readSamples(samples, 0, samples.length));
+        int start = (int) samplePosition * index.channels();
+        assertArrayEquals(Arrays.copyOfRange(wave, start, start + samples.length), samples);
+    }
+
+    @Test
+    public void Should_Seek_To_Same_Samples_As_Decoding_MP3_From_Start() throws IOException, UnsupportedAudioFileException {
+        for(String fileName : new String[] { "600hz-tone-3secs-mono.mp3", "500hz-tone-3secs-stereo.mp3" }) {
+            File audio = TestUtils.getAudioFile(fileName);
+            int[] wave = new MP3Reader(audio).getWaveform();
+            MP3FrameIndex index = MP3FrameIndex.forFile(audio);
+            int channels = index.channels();
+
+            // start of every frame, and a sample in the middle of a few of them
+            for(int frame = 0; frame < index.frameCount(); frame++) {
+                for(long samplePosition : new long[] { index.samplePosition(frame), index.samplePosition(frame) + 500 }) {
+                    if(samplePosition > index.samplePosition(frame) && frame % 10 != 0) continue;
+
+                    MP3Reader reader = new MP3Reader(audio);
+                    reader.seek(samplePosition);
+                    int[] samples = new int[3 * index.samplesPerFrame() * channels];
+                    int numSamplesRead = reader.readSamples(samples, 0, samples.length);
+
+                    int start = (int) samplePosition * channels;
+                    int[] expected = Arrays.copyOfRange(wave, start, Math.min(wave.length, start + samples.length));
+                    String message = fileName + " " + samplePosition;
+                    assertEquals(message, expected.length, numSamplesRead);
+                    assertArrayEquals(message, expected, Arrays.copyOf(samples, numSamplesRead));
+                }
+            }
+
+            // seeking past the end of the file leaves nothing to read
+            MP3Reader reader = new MP3Reader(audio);
+            reader.seek(index.sampleCount() + 1000);
+            assertEquals(fileName, 0, reader.readSamples(new int[100], 0, 100));
+        }
+    }
+
+    @Test
+    public void Should_Decode_Same_Samples_On_Several_Threads_As_On_One() throws IOException, UnsupportedAudioFileException {
+        // three copies hold enough frames for several segments, and the ID3v2 tags of the copies are junk between them
+        for(String name : new String[] { "500hz-tone-3secs-stereo.mp3", "600hz-tone-3secs-mono.mp3" }) {
+            byte[] bytes = Files.readAllBytes(TestUtils.getAudioFile(name).toPath());
+            File audio = temporaryFolder.newFile("thrice-" + name);
+            try(FileOutputStream out = new FileOutputStream(audio)) {
+                out.write(bytes);
+                out.write(bytes);
+                out.write(bytes);
+            }
+
+            int[] wave = new MP3Reader(audio).getWaveform();
+            for(int threads : new int[] { 1, 3 }) {
+                assertArrayEquals(name, wave, new ParallelMP3Reader(new MP3Reader(audio), threads).getWaveform());
+            }
+
+            int channels = new MP3Reader(audio).getAudioFormat().getChannels();
+            AudioReader reader = new ParallelMP3Reader(new MP3Reader(audio), 2);
+            reader.seek(200000);
+            int[] samples = new int[wave.length - 200000 * channels];
+            assertEquals(name, samples.length, reader.readSamples(samples, 0, samples.length + 1));
+            assertArrayEquals(name, Arrays.copyOfRange(wave, 200000 * channels, wave.length), samples);
+        }
+    }
+
+    @Test
+    public void Should_Decode_Every_Sample_Format_In_Both_Byte_Orders() throws UnsupportedAudioFileException {
+        int[] expected = { 0, 1, -1, 258, -256, 12345, -12345, 32767, -32768 };
+        AudioFormat.Encoding[] encodings = { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED,
+                AudioFormat.Encoding.PCM_FLOAT };
+        for(AudioFormat.Encoding encoding : encodings) {
+            for(int bits = 16; bits <= 32; bits += 8) {
+                if(encoding == AudioFormat.Encoding.PCM_FLOAT && bits != 32) continue;
+
+                for(boolean bigEndian : new boolean[] { false, true }) {
+                    AudioFormat format = new AudioFormat(encoding, 44100, bits, 1, bits / 8, 44100, bigEndian);
+                    ByteBuffer bytes = ByteBuffer.allocate(expected.length * bits / 8 + 3)
+                            .order(bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+                    bytes.position(3); // samples don't have to be aligned within buffer
+                    for(int sample : expected) {
+                        encodeSample(bytes, format, sample);
+                    }
+
+                    int[] samples = new int[expected.length + 1];
+                    PCMDecoder.forFormat(format).decode(bytes, 3, samples, 1, expected.length);
+                    assertArrayEquals(format.toString(), expected, Arrays.copyOfRange(samples, 1, samples.length));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Decode_8_Bit_Samples_As_AudioSystem_Does() throws UnsupportedAudioFileException {
+        // values AudioSystem converts the edge values of each encoding to when it converts them to 16 bits
+        int[] expected = { -32768, -256, 0, 258, 32767 };
+        byte[][] encodedSamples = {
+                { -128, -1, 0, 1, 127 },
+                { (byte) 0x00, (byte) 0x7f, (byte) 0x80, (byte) 0x81, (byte) 0xff }
+        };
+        AudioFormat.Encoding[] encodings = { AudioFormat.Encoding.PCM_SIGNED, AudioFormat.Encoding.PCM_UNSIGNED };
+        for(int e = 0; e < encodings.length; e++) {
+            AudioFormat format = new AudioFormat(encodings[e], 44100, 8, 1, 1, 44100, false);
+            ByteBuffer bytes = ByteBuffer.allocate(encodedSamples[e].length + 3);
+            bytes.position(3); // samples don't have to be aligned within buffer
+            bytes.put(encodedSamples[e]);
+
+            int[] samples = new int[expected.length + 1];
+            PCMDecoder.forFormat(format).decode(bytes, 3, samples, 1, expected.length);
+            assertArrayEquals(format.toString(), expected, Arrays.copyOfRange(samples, 1, samples.length));
+        }
+    }
+
+    @Test
+    public void Should_Read_24_Bit_And_Float_WAV_Files_Without_Conversion()
+            throws IOException, UnsupportedAudioFileException {
+        File wav = TestUtils.getAudioFile("600hz-tone-3secs-stereo.wav");
+        int[] expected = new DirectPCMReader(wav).getWaveform();
+
+        AudioFormat[] formats = {
+                new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 44100, 24, 2, 6, 44100, false),
+                new AudioFormat(AudioFormat.Encoding.PCM_FLOAT, 44100, 32, 2, 8, 44100, false)
+        };
+        for(AudioFormat format : formats) {
+            File file = temporaryFolder.newFile(format.getEncoding() + "-" + format.getSampleSizeInBits() + ".wav");
+            ByteBuffer data = ByteBuffer.allocate(expected.length * format.getSampleSizeInBits() / 8)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for(int sample : expected) {
+                encodeSample(data, format, sample);
+            }
+            int formatTag = format.getEncoding() == AudioFormat.Encoding.PCM_FLOAT ? 3 : 1;
+            writeWav(file, formatTag, format, data.array());
+
+            AudioReader directReader = AudioReaderFactory.audioReaderFor(file);
+            assertTrue(format.toString(), directReader instanceof DirectPCMReader);
+            assertArrayEquals(format.toString(), expected, directReader.getWaveform());
+            assertArrayEquals(format.toString(), expected, new PCMReader(file).getWaveform());
+        }
+    }
+
+    /**
+     * Encodes a 16-bit sample in a given format, filling any extra low-order bits with ones
+     */
+    private static void encodeSample(ByteBuffer buffer, AudioFormat format, int sample) {
+        boolean unsigned = format.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED;
+        switch(format.getEncoding() == AudioFormat.Encoding.PCM_FLOAT ? 0 : format.getSampleSizeInBits()) {
+            case 0:
+                buffer.putFloat(sample > 0 ? sample / 32767f : sample / 32768f);
+                break;
+            case 16:
+                buffer.putShort((short) (sample ^ (unsigned ? 0x8000 : 0)));
+                break;
+            case 24:
+                int value = (sample << 8 | 0xff) ^ (unsigned ? 0x800000 : 0);
+                if(buffer.order() == ByteOrder.BIG_ENDIAN) {
+                    buffer.put((byte) (value >> 16)).put((byte) (value >> 8)).put((byte) value);
+                } else {
+                    buffer.put((byte) value).put((byte) (value >> 8)).put((byte) (value >> 16));
+                }
+                break;
+            default:
+                buffer.putInt((sample << 16 | 0xffff) ^ (unsigned ? 0x80000000 : 0));
+        }
+    }
+
+    /**
+     * Reads the samples of an audio file as AudioSystem converts them to 16-bit little-endian signed samples
+     */
+    private static int[] convertWithAudioSystem(File audio) throws IOException, UnsupportedAudioFileException {
+        try(AudioInputStream source = AudioSystem.getAudioInputStream(audio)) {
+            AudioFormat sourceFormat = source.getFormat();
+            int channels = sourceFormat.getChannels();
+            float sampleRate = sourceFormat.getSampleRate();
+            AudioFormat format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sampleRate, 16, channels,
+                    channels * 2, sampleRate, false);
+
+            byte[] bytes;
+            try(AudioInputStream in = AudioSystem.getAudioInputStream(format, source)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int numBytesRead;
+                while((numBytesRead = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, numBytesRead);
+                }
+                bytes = out.toByteArray();
+            }
+
+            int[] samples = new int[bytes.length / 2];
+            for(int i = 0; i < samples.length; i++) {
+                samples[i] = (short) (bytes[2 * i] & 0xff | bytes[2 * i + 1] << 8);
+            }
+            return samples;
+        }
+    }
+
+    private static void writeWav(File file, int formatTag, AudioFormat format, byte[] data) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes()).putInt(36 + data.length).put("WAVE".getBytes());
+        header.put("fmt ".getBytes()).putInt(16).putShort((short) formatTag).putShort((short) format.getChannels())
+                .putInt((int) format.getSampleRate()).putInt((int) format.getSampleRate() * format.getFrameSize())
+                .putShort((short) format.getFrameSize()).putShort((short) format.getSampleSizeInBits());
+        header.put("data".getBytes()).putInt(data.length);
+        try(FileOutputStream out = new FileOutputStream(file)) {
+            out.write(header.array());
+            out.write(data);
+        }
+    }
 }
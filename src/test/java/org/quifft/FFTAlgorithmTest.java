@@ -0,0 +1,609 @@
+package org.quifft;
+
+import org.junit.Test;
+import org.quifft.fft.BatchFFT;
+import org.quifft.fft.BluesteinFFT;
+import org.quifft.fft.Complex;
+import org.quifft.fft.DoubleFFT;
+import org.quifft.fft.FFTEngine;
+import org.quifft.fft.FFTEngines;
+import org.quifft.fft.FFTFrameScheduler;
+import org.quifft.fft.FFTPlan;
+import org.quifft.fft.FFTPlanner;
+import org.quifft.fft.FloatFFT;
+import org.quifft.fft.FourStepFFT;
+import org.quifft.fft.GoertzelFilterBank;
+import org.quifft.fft.InplaceFFT;
+import org.quifft.fft.MixedRadixFFT;
+import org.quifft.fft.PrunedFFT;
+import org.quifft.fft.RealFFT;
+import org.quifft.fft.SlidingDFT;
+import org.quifft.fft.ZoomFFT;
+import org.quifft.params.FFTEngineType;
+import org.quifft.params.WindowFunction;
+import org.quifft.params.WindowFunctionGenerator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FFTAlgorithmTest {
+
+    // tolerance per point of transform (rounding error grows with transform length)
+    private static final double EPSILON = 1e-6;
+
+    @Test
+    public void Should_Compute_Same_Result_As_Reference_FFT() {
+        for(int n = 1; n <= 4096; n *= 2) {
+            double[] re = randomSignal(n, 1);
+            double[] im = randomSignal(n, 2);
+
+            Complex[] reference = new Complex[n];
+            for(int i = 0; i < n; i++) {
+                reference[i] = new Complex(re[i], im[i]);
+            }
+
+            InplaceFFT.fft(reference);
+            DoubleFFT.fft(re, im);
+
+            for(int i = 0; i < n; i++) {
+                assertEquals(reference[i].re(), re[i], n * EPSILON);
+                assertEquals(reference[i].im(), im[i], n * EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_First_Half_Of_Spectrum_For_Real_Signal() {
+        for(int n = 2; n <= 4096; n *= 2) {
+            double[] signal = randomSignal(n, 3);
+            int[] samples = new int[n];
+            for(int i = 0; i < n; i++) {
+                samples[i] = (int) signal[i];
+            }
+
+            double[] re = signal.clone();
+            double[] im = new double[n];
+            DoubleFFT.fft(re, im);
+
+            double[] realRe = new double[n / 2];
+            double[] realIm = new double[n / 2];
+            RealFFT.fft(samples, realRe, realIm);
+
+            for(int i = 0; i < n / 2; i++) {
+                assertEquals(re[i], realRe[i], n * EPSILON);
+                assertEquals(im[i], realIm[i], n * EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Result_As_DFT_For_Mixed_Radix_Lengths() {
+        int[] lengths = {3, 5, 6, 12, 15, 45, 60, 100, 375, 3000};
+        for(int n : lengths) {
+            assertMatchesDFT(n);
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Result_As_DFT_For_Lengths_With_Other_Prime_Factors() {
+        int[] lengths = {7, 11, 14, 97, 1001, 3001};
+        for(int n : lengths) {
+            assertMatchesDFT(n);
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_First_Half_Of_Spectrum_For_Real_Signal_Of_Any_Even_Length() {
+        int[] lengths = {6, 30, 3000, 2002};
+        for(int n : lengths) {
+            double[] signal = randomSignal(n, 4);
+            int[] samples = new int[n];
+            for(int i = 0; i < n; i++) {
+                samples[i] = (int) signal[i];
+            }
+
+            double[][] expected = dft(signal, new double[n]);
+            double[] realRe = new double[n / 2];
+            double[] realIm = new double[n / 2];
+            RealFFT.fft(samples, realRe, realIm);
+
+            for(int i = 0; i < n / 2; i++) {
+                assertEquals(expected[0][i], realRe[i], n * EPSILON);
+                assertEquals(expected[1][i], realIm[i], n * EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Result_As_DFT_With_Every_Engine_That_Supports_Length() {
+        int[] lengths = {1, 2, 8, 64, 1024, 3, 45, 3000, 7, 1001};
+        for(int n : lengths) {
+            double[] re = randomSignal(n, 7);
+            double[] im = randomSignal(n, 8);
+            double[][] expected = dft(re, im);
+
+            for(FFTEngine engine : FFTEngines.all()) {
+                if(!engine.supports(n)) continue;
+
+                double[] engineRe = re.clone();
+                double[] engineIm = im.clone();
+                engine.fft(engineRe, engineIm, FFTPlan.forSize(n));
+
+                for(int i = 0; i < n; i++) {
+                    assertEquals(engine.getName(), expected[0][i], engineRe[i], n * EPSILON);
+                    assertEquals(engine.getName(), expected[1][i], engineIm[i], n * EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Result_For_Zero_Padded_Signal_With_Every_Engine() {
+        int[] lengths = {64, 1024, 48, 3000, 1001};
+        int[] nonZeroLengths = {1, 5, 12, 100, 500};
+        for(int n : lengths) {
+            for(int nonZeroLength : nonZeroLengths) {
+                if(nonZeroLength > n) continue;
+
+                double[] re = randomSignal(n, 11);
+                double[] im = randomSignal(n, 12);
+                Arrays.fill(re, nonZeroLength, n, 0);
+                Arrays.fill(im, nonZeroLength, n, 0);
+                double[][] expected = dft(re, im);
+
+                for(FFTEngine engine : FFTEngines.all()) {
+                    if(!engine.supports(n)) continue;
+
+                    double[] engineRe = re.clone();
+                    double[] engineIm = im.clone();
+                    engine.fft(engineRe, engineIm, FFTPlan.forSize(n), nonZeroLength);
+
+                    for(int i = 0; i < n; i++) {
+                        assertEquals(engine.getName(), expected[0][i], engineRe[i], n * EPSILON);
+                        assertEquals(engine.getName(), expected[1][i], engineIm[i], n * EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_First_Half_Of_Spectrum_For_Zero_Padded_Real_Signal() {
+        int n = 4096;
+        int[] samples = new int[n];
+        double[] signal = randomSignal(n, 13);
+        for(int nonZeroLength : new int[]{1, 300, 511, 512, 2000, 4096}) {
+            for(int i = 0; i < n; i++) {
+                samples[i] = i < nonZeroLength ? (int) signal[i] : 0;
+            }
+
+            double[] re = new double[n / 2];
+            double[] im = new double[n / 2];
+            RealFFT.fft(samples, re, im);
+
+            for(FFTEngine engine : FFTEngines.all()) {
+                if(!engine.supports(n / 2)) continue;
+
+                double[] prunedRe = new double[n / 2];
+                double[] prunedIm = new double[n / 2];
+                RealFFT.fft(samples, nonZeroLength, prunedRe, prunedIm, FFTPlan.forSize(n / 2), engine);
+
+                for(int i = 0; i < n / 2; i++) {
+                    assertEquals(engine.getName(), re[i], prunedRe[i], n * EPSILON);
+                    assertEquals(engine.getName(), im[i], prunedIm[i], n * EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Outputs_In_Range_With_Every_Engine() {
+        int n = 1024;
+        double[] re = randomSignal(n, 14);
+        double[] im = randomSignal(n, 15);
+        double[][] expected = dft(re, im);
+
+        // ranges that start at 0, sit inside the transform, wrap around its end and cover it entirely
+        int[][] ranges = {{0, 1}, {0, 100}, {300, 200}, {1000, 50}, {1023, 1}, {7, 1024}};
+        for(int[] range : ranges) {
+            for(FFTEngine engine : FFTEngines.all()) {
+                if(!engine.supports(n)) continue;
+
+                double[] engineRe = re.clone();
+                double[] engineIm = im.clone();
+                engine.fft(engineRe, engineIm, FFTPlan.forSize(n), n, range[0], range[1]);
+
+                for(int i = 0; i < range[1]; i++) {
+                    int k = (range[0] + i) % n;
+                    assertEquals(engine.getName(), expected[0][k], engineRe[k], n * EPSILON);
+                    assertEquals(engine.getName(), expected[1][k], engineIm[k], n * EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Band_Of_Spectrum_For_Real_Signal() {
+        int n = 4096;
+        double[] signal = randomSignal(n, 16);
+        int[] samples = new int[n];
+        for(int i = 0; i < n; i++) {
+            samples[i] = (int) signal[i];
+        }
+
+        double[] re = new double[n / 2];
+        double[] im = new double[n / 2];
+        RealFFT.fft(samples, re, im);
+
+        int[][] bands = {{0, 0}, {0, 100}, {4, 928}, {1000, 1200}, {1024, 1024}, {900, 2047}, {1, 2047}};
+        for(int[] band : bands) {
+            for(FFTEngine engine : FFTEngines.all()) {
+                if(!engine.supports(n / 2)) continue;
+
+                double[] bandRe = new double[n / 2];
+                double[] bandIm = new double[n / 2];
+                RealFFT.fft(samples, n, band[0], band[1], bandRe, bandIm, FFTPlan.forSize(n / 2), engine);
+
+                for(int k = band[0]; k <= band[1]; k++) {
+                    assertEquals(engine.getName(), re[k], bandRe[k], n * EPSILON);
+                    assertEquals(engine.getName(), im[k], bandIm[k], n * EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Cover_Band_And_Its_Mirror_With_Shortest_Output_Range() {
+        // low band: wraps around from n - lastBin to lastBin
+        assertArrayEquals(new int[]{900, 201}, PrunedFFT.mirroredOutputRange(1000, 10, 100));
+        // middle band: runs from the band up to its mirror
+        assertArrayEquals(new int[]{300, 401}, PrunedFFT.mirroredOutputRange(1000, 300, 400));
+        // band starting at DC: index n is index 0
+        assertArrayEquals(new int[]{0, 1}, PrunedFFT.mirroredOutputRange(1000, 0, 0));
+        // whole first half: every output except n/2
+        assertArrayEquals(new int[]{501, 999}, PrunedFFT.mirroredOutputRange(1000, 0, 499));
+    }
+
+    @Test
+    public void Should_Prune_By_Largest_Power_Of_Two_That_Keeps_Non_Zero_Values() {
+        assertEquals(1, PrunedFFT.pruningFactor(1024, 1024));
+        assertEquals(1, PrunedFFT.pruningFactor(1024, 513));
+        assertEquals(2, PrunedFFT.pruningFactor(1024, 512));
+        assertEquals(8, PrunedFFT.pruningFactor(1024, 100));
+        assertEquals(1024, PrunedFFT.pruningFactor(1024, 1));
+        assertEquals(1024, PrunedFFT.pruningFactor(1024, 0));
+        assertEquals(8, PrunedFFT.pruningFactor(3000, 300));
+        assertEquals(1, PrunedFFT.pruningFactor(1001, 10));
+    }
+
+    @Test
+    public void Should_Compute_Same_First_Half_Of_Spectrum_In_Single_Precision() {
+        for(int n = 2; n <= 8192; n *= 2) {
+            double[] signal = randomSignal(n, 9);
+            int[] samples = new int[n];
+            for(int i = 0; i < n; i++) {
+                samples[i] = (int) signal[i];
+            }
+
+            double[] re = new double[n / 2];
+            double[] im = new double[n / 2];
+            RealFFT.fft(samples, re, im);
+
+            float[] floatRe = new float[n / 2];
+            float[] floatIm = new float[n / 2];
+            FloatFFT.fft(samples, floatRe, floatIm, FFTPlan.forSize(n / 2));
+
+            // single precision error relative to the largest possible bin magnitude
+            double tolerance = n * 32768 * 1e-6;
+            for(int i = 0; i < n / 2; i++) {
+                assertEquals(re[i], floatRe[i], tolerance);
+                assertEquals(im[i], floatIm[i], tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Band_Of_Spectrum_In_Single_Precision() {
+        int n = 4096;
+        double[] signal = randomSignal(n, 17);
+        int[] samples = new int[n];
+        for(int i = 0; i < n; i++) {
+            samples[i] = (int) signal[i];
+        }
+
+        float[] re = new float[n / 2];
+        float[] im = new float[n / 2];
+        FloatFFT.fft(samples, re, im, FFTPlan.forSize(n / 2));
+
+        int[][] bands = {{0, 0}, {0, 100}, {4, 928}, {1000, 1200}, {1024, 1024}, {900, 2047}, {1, 2047}};
+        for(int[] band : bands) {
+            float[] bandRe = new float[n / 2];
+            float[] bandIm = new float[n / 2];
+            FloatFFT.fft(samples, band[0], band[1], bandRe, bandIm, FFTPlan.forSize(n / 2));
+
+            for(int k = band[0]; k <= band[1]; k++) {
+                assertEquals(re[k], bandRe[k], 0);
+                assertEquals(im[k], bandIm[k], 0);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Only_Support_Single_Precision_For_Twice_A_Power_Of_Two() {
+        assertTrue(FloatFFT.supports(2));
+        assertTrue(FloatFFT.supports(4096));
+        assertFalse(FloatFFT.supports(3000));
+        assertFalse(FloatFFT.supports(4097));
+    }
+
+    @Test
+    public void Should_Compute_Same_Result_For_Batch_As_For_Each_Signal() {
+        int[] batchSizes = {1, 3, 8};
+        for(int n = 2; n <= 4096; n *= 4) {
+            for(int count : batchSizes) {
+                int[][] signals = new int[count][n];
+                for(int b = 0; b < count; b++) {
+                    double[] signal = randomSignal(n, 10 + b);
+                    for(int i = 0; i < n; i++) {
+                        signals[b][i] = (int) signal[i];
+                    }
+                }
+
+                double[] batchRe = new double[n / 2 * count];
+                double[] batchIm = new double[n / 2 * count];
+                BatchFFT.fft(signals, count, batchRe, batchIm, FFTPlan.forSize(n / 2));
+
+                for(int b = 0; b < count; b++) {
+                    double[] re = new double[n / 2];
+                    double[] im = new double[n / 2];
+                    RealFFT.fft(signals[b], re, im);
+                    for(int i = 0; i < n / 2; i++) {
+                        assertEquals(re[i], batchRe[i * count + b], n * EPSILON);
+                        assertEquals(im[i], batchIm[i * count + b], n * EPSILON);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Result_With_Four_Step_As_Radix_2_For_Large_Lengths() {
+        // square (2^16) and rectangular (2^17) matrices
+        for(int n = 1 << 16; n <= 1 << 17; n *= 2) {
+            double[] re = randomSignal(n, 11);
+            double[] im = randomSignal(n, 12);
+            double[] fourStepRe = re.clone();
+            double[] fourStepIm = im.clone();
+
+            FFTPlan plan = FFTPlan.forSize(n);
+            FFTEngines.RADIX_2.fft(re, im, plan);
+            FFTEngines.FOUR_STEP.fft(fourStepRe, fourStepIm, plan);
+
+            // rounding error of both transforms grows with log(n), not n
+            for(int i = 0; i < n; i++) {
+                assertEquals(re[i], fourStepRe[i], 1e-4);
+                assertEquals(im[i], fourStepIm[i], 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Identical_Result_With_Parallel_And_Sequential_Four_Step() {
+        for(int n = 1 << 16; n <= 1 << 17; n *= 2) {
+            double[] re = randomSignal(n, 13);
+            double[] im = randomSignal(n, 14);
+            double[] parallelRe = re.clone();
+            double[] parallelIm = im.clone();
+
+            FFTPlan plan = FFTPlan.forSize(n);
+            FFTEngines.FOUR_STEP.fft(re, im, plan);
+            FFTEngines.PARALLEL_FOUR_STEP.fft(parallelRe, parallelIm, plan);
+
+            // every element goes through the same arithmetic whichever thread computes it
+            assertArrayEquals(re, parallelRe, 0);
+            assertArrayEquals(im, parallelIm, 0);
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Spectrum_With_Sliding_DFT_As_Windowed_DFT() {
+        WindowFunction[] windowFunctions = {WindowFunction.RECTANGULAR, WindowFunction.HANNING,
+                WindowFunction.HAMMING, WindowFunction.BLACKMAN};
+        int windowSize = 100;
+        double[] signal = randomSignal(400, 15);
+
+        for(WindowFunction windowFunction : windowFunctions) {
+            // without and with zero-padding, sliding by 1 and by 3 samples at a time
+            for(int n = windowSize; n <= 128; n += 28) {
+                for(int hop = 1; hop <= 3; hop += 2) {
+                    SlidingDFT slidingDFT = new SlidingDFT(windowSize, n, windowFunction, 1 << 20,
+                            FFTEngineType.AUTO, FFTPlanner.DEFAULT_PARALLEL_THRESHOLD);
+                    // rectangular windows are never generated, since they leave samples unchanged
+                    double[] coefficients = new double[windowSize];
+                    if(windowFunction == WindowFunction.RECTANGULAR) {
+                        Arrays.fill(coefficients, 1);
+                    } else {
+                        coefficients = WindowFunctionGenerator.generateWindow(windowSize, windowFunction);
+                    }
+                    double[] magnitudes = new double[n / 2];
+
+                    for(int start = 0; start + windowSize <= signal.length; start += hop) {
+                        int[] window = new int[windowSize];
+                        double[] re = new double[n];
+                        for(int m = 0; m < windowSize; m++) {
+                            window[m] = (int) signal[start + m];
+                            re[m] = window[m] * coefficients[m];
+                        }
+                        double[][] expected = dft(re, new double[n]);
+
+                        slidingDFT.slide(window, hop);
+                        slidingDFT.magnitudes(magnitudes, 1);
+                        for(int k = 0; k < n / 2; k++) {
+                            assertEquals(Math.hypot(expected[0][k], expected[1][k]), magnitudes[k], n * EPSILON);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Magnitudes_With_Goertzel_Filters_As_DFT() {
+        int n = 96;
+        int sampleCount = 80;
+        double[] signal = randomSignal(sampleCount, 16);
+        int[] window = new int[n];
+        double[] re = new double[n];
+        for(int i = 0; i < sampleCount; i++) {
+            window[i] = (int) signal[i];
+            re[i] = signal[i];
+        }
+        double[][] expected = dft(re, new double[n]);
+
+        // every bin of a zero-padded window, with a sample rate of n Hz so bin k is at k Hz
+        double[] frequencies = new double[n / 2];
+        for(int k = 0; k < frequencies.length; k++) {
+            frequencies[k] = k;
+        }
+        double[] magnitudes = new double[frequencies.length];
+        GoertzelFilterBank.magnitudes(window, sampleCount, frequencies, n, magnitudes, 1);
+
+        for(int k = 0; k < frequencies.length; k++) {
+            assertEquals(Math.hypot(expected[0][k], expected[1][k]), magnitudes[k], n * EPSILON);
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Magnitudes_With_Zoom_FFT_As_Direct_Evaluation() {
+        int windowSize = 75;
+        float sampleRate = 1000;
+        double[] signal = randomSignal(windowSize, 17);
+        int[] window = new int[windowSize];
+        for(int i = 0; i < windowSize; i++) {
+            window[i] = (int) signal[i];
+        }
+
+        // a band between bin frequencies with spacing far finer than the frequency resolution
+        double minFrequency = 103.3;
+        double maxFrequency = 131.7;
+        int bins = 40;
+        double[] magnitudes = new double[bins];
+        ZoomFFT.forBand(windowSize, minFrequency, maxFrequency, bins, sampleRate).magnitudes(window, magnitudes, 1);
+
+        for(int k = 0; k < bins; k++) {
+            double frequency = ZoomFFT.binFrequency(minFrequency, maxFrequency, bins, k);
+            double re = 0;
+            double im = 0;
+            for(int n = 0; n < windowSize; n++) {
+                double angle = -2 * Math.PI * frequency * n / sampleRate;
+                re += signal[n] * Math.cos(angle);
+                im += signal[n] * Math.sin(angle);
+            }
+            assertEquals(Math.hypot(re, im), magnitudes[k], windowSize * EPSILON);
+        }
+    }
+
+    @Test
+    public void Should_Only_Support_Sliding_DFT_For_Cosine_Windows() {
+        assertTrue(SlidingDFT.supports(WindowFunction.HANNING));
+        assertTrue(SlidingDFT.supports(WindowFunction.RECTANGULAR));
+        assertFalse(SlidingDFT.supports(WindowFunction.TRIANGULAR));
+        assertFalse(SlidingDFT.supports(WindowFunction.BARTLETT));
+    }
+
+    @Test
+    public void Should_Find_Engines_By_Name() {
+        for(FFTEngine engine : FFTEngines.all()) {
+            assertSame(engine, FFTEngines.forName(engine.getName()));
+        }
+        assertNull(FFTEngines.forName("not-an-engine"));
+    }
+
+    @Test
+    public void Should_Only_Support_Sizes_Engine_Can_Compute() {
+        assertTrue(FFTEngines.RADIX_2.supports(4096));
+        assertFalse(FFTEngines.RADIX_2.supports(3000));
+        assertTrue(FFTEngines.MIXED_RADIX.supports(3000));
+        assertFalse(FFTEngines.MIXED_RADIX.supports(3001));
+        assertTrue(FFTEngines.BLUESTEIN.supports(3001));
+        assertFalse(FFTEngines.BLUESTEIN.supports(0));
+    }
+
+    @Test
+    public void Should_Reuse_Cached_Plan_For_Same_Transform_Size() {
+        FFTPlan plan = FFTPlan.forSize(2048);
+        assertSame(plan, FFTPlan.forSize(2048));
+        assertNotSame(plan, FFTPlan.forSize(4096));
+        assertEquals(2048, plan.size());
+        assertEquals(2048, plan.scratchRe().length);
+    }
+
+    @Test
+    public void Instantiate_DoubleFFT_To_Make_Cobertura_Happy() {
+        new DoubleFFT();
+        new RealFFT();
+        new MixedRadixFFT();
+        new BluesteinFFT();
+        new FFTEngines();
+        new FFTPlanner();
+        new FloatFFT();
+        new BatchFFT();
+        new FFTFrameScheduler();
+        new FourStepFFT();
+        new PrunedFFT();
+    }
+
+    /**
+     * Checks that {@link DoubleFFT} computes the same result as a direct DFT for a random signal of length n
+     * @param n length of signal
+     */
+    private static void assertMatchesDFT(int n) {
+        double[] re = randomSignal(n, 5);
+        double[] im = randomSignal(n, 6);
+        double[][] expected = dft(re, im);
+
+        DoubleFFT.fft(re, im);
+
+        for(int i = 0; i < n; i++) {
+            assertEquals(expected[0][i], re[i], n * EPSILON);
+            assertEquals(expected[1][i], im[i], n * EPSILON);
+        }
+    }
+
+    /**
+     * Computes the discrete Fourier transform of a complex signal directly from its definition in O(n^2) time
+     * @param re real parts of signal
+     * @param im imaginary parts of signal
+     * @return real parts and imaginary parts of DFT
+     */
+    static double[][] dft(double[] re, double[] im) {
+        int n = re.length;
+        double[][] result = new double[2][n];
+        for(int k = 0; k < n; k++) {
+            for(int j = 0; j < n; j++) {
+                double angle = -2 * Math.PI * (((long) j * k) % n) / n;
+                result[0][k] += re[j] * Math.cos(angle) - im[j] * Math.sin(angle);
+                result[1][k] += re[j] * Math.sin(angle) + im[j] * Math.cos(angle);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Generates a reproducible signal of random values in the 16-bit sample range
+     * @param n length of signal
+     * @param seed seed for random number generator
+     * @return random signal of length n
+     */
+    static double[] randomSignal(int n, long seed) {
+        Random random = new Random(seed);
+        double[] signal = new double[n];
+        for(int i = 0; i < n; i++) {
+            signal[i] = random.nextInt(65536) - 32768;
+        }
+        return signal;
+    }
+
+}
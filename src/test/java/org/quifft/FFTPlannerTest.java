@@ -0,0 +1,119 @@
+package org.quifft;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.quifft.fft.FFTEngine;
+import org.quifft.fft.FFTEngines;
+import org.quifft.fft.FFTPlanner;
+import org.quifft.params.FFTEngineType;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class FFTPlannerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void resetPlanner() {
+        FFTPlanner.setWisdomFile(null);
+        FFTPlanner.forgetWisdom();
+    }
+
+    @Test
+    public void Should_Choose_Engine_From_Size_With_Auto_Engine() {
+        FFTEngine powerOfTwoEngine = FFTEngines.isVectorAvailable() ? FFTEngines.VECTOR : FFTEngines.RADIX_2;
+        assertSame(powerOfTwoEngine, FFTPlanner.engineFor(4096, FFTEngineType.AUTO));
+        assertSame(FFTEngines.RADIX_2, FFTPlanner.engineFor(8, FFTEngineType.AUTO));
+        assertSame(FFTEngines.FOUR_STEP, FFTPlanner.engineFor(1 << 22, FFTEngineType.AUTO));
+        assertSame(FFTEngines.MIXED_RADIX, FFTPlanner.engineFor(3000, FFTEngineType.AUTO));
+        assertSame(FFTEngines.BLUESTEIN, FFTPlanner.engineFor(3001, FFTEngineType.AUTO));
+    }
+
+    @Test
+    public void Should_Return_Explicitly_Requested_Engine() {
+        assertSame(FFTEngines.RADIX_2, FFTPlanner.engineFor(4096, FFTEngineType.RADIX_2));
+        assertSame(FFTEngines.MIXED_RADIX, FFTPlanner.engineFor(4096, FFTEngineType.MIXED_RADIX));
+        assertSame(FFTEngines.BLUESTEIN, FFTPlanner.engineFor(4096, FFTEngineType.BLUESTEIN));
+        assertSame(FFTEngines.FOUR_STEP, FFTPlanner.engineFor(4096, FFTEngineType.FOUR_STEP));
+        assertSame(FFTEngines.PARALLEL_FOUR_STEP, FFTPlanner.engineFor(4096, FFTEngineType.PARALLEL_FOUR_STEP));
+    }
+
+    @Test
+    public void Should_Only_Choose_Parallel_Engine_Above_Threshold_With_Multiple_Processors() {
+        FFTEngine aboveThreshold = FFTPlanner.engineFor(4096, FFTEngineType.AUTO, 4096);
+        if(ForkJoinPool.getCommonPoolParallelism() > 1) {
+            assertSame(FFTEngines.PARALLEL_FOUR_STEP, aboveThreshold);
+        } else {
+            assertNotSame(FFTEngines.PARALLEL_FOUR_STEP, aboveThreshold);
+        }
+        assertNotSame(FFTEngines.PARALLEL_FOUR_STEP, FFTPlanner.engineFor(2048, FFTEngineType.AUTO, 4096));
+        assertNotSame(FFTEngines.PARALLEL_FOUR_STEP, FFTPlanner.engineFor(3000, FFTEngineType.AUTO, 1));
+    }
+
+    @Test
+    public void Should_Only_Return_Vector_Engine_If_Vector_API_Is_Available() {
+        try {
+            assertSame(FFTEngines.VECTOR, FFTPlanner.engineFor(4096, FFTEngineType.VECTOR));
+            assertTrue(FFTEngines.isVectorAvailable());
+        } catch(IllegalArgumentException e) {
+            assertFalse(FFTEngines.isVectorAvailable());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void Should_Throw_Exception_If_Requested_Engine_Does_Not_Support_Size() {
+        FFTPlanner.engineFor(3000, FFTEngineType.RADIX_2);
+    }
+
+    @Test
+    public void Should_Calibrate_Supporting_Engine_Once_And_Remember_It() {
+        FFTEngine engine = FFTPlanner.engineFor(3000, FFTEngineType.CALIBRATED);
+
+        assertTrue(engine.supports(3000));
+        assertSame(engine, FFTPlanner.engineFor(3000, FFTEngineType.CALIBRATED));
+    }
+
+    @Test
+    public void Should_Save_Calibrated_Engine_To_Wisdom_File() throws IOException {
+        File wisdomFile = new File(temporaryFolder.getRoot(), "wisdom.properties");
+        FFTPlanner.setWisdomFile(wisdomFile);
+
+        FFTEngine engine = FFTPlanner.engineFor(1024, FFTEngineType.CALIBRATED);
+
+        Properties wisdom = new Properties();
+        try(InputStream in = new FileInputStream(wisdomFile)) {
+            wisdom.load(in);
+        }
+        assertEquals(engine.getName(), wisdom.getProperty("1024"));
+    }
+
+    @Test
+    public void Should_Use_Engine_Loaded_From_Wisdom_File_Without_Calibrating() throws IOException {
+        File wisdomFile = temporaryFolder.newFile("wisdom.properties");
+        Properties wisdom = new Properties();
+        wisdom.setProperty("2048", FFTEngines.BLUESTEIN.getName());
+        wisdom.setProperty("3001", FFTEngines.RADIX_2.getName()); // unsupported size is ignored
+        wisdom.setProperty("not-a-size", FFTEngines.RADIX_2.getName()); // malformed entry is ignored
+        try(OutputStream out = new FileOutputStream(wisdomFile)) {
+            wisdom.store(out, null);
+        }
+
+        FFTPlanner.setWisdomFile(wisdomFile);
+
+        assertSame(FFTEngines.BLUESTEIN, FFTPlanner.engineFor(2048, FFTEngineType.CALIBRATED));
+        assertSame(FFTEngines.BLUESTEIN, FFTPlanner.engineFor(3001, FFTEngineType.CALIBRATED));
+    }
+
+}
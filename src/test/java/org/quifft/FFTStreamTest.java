@@ -115,6 +115,56 @@ public class FFTStreamTest {
         }
     }
 
+    @Test
+    public void Should_Compute_Same_FFT_Output_With_Sliding_DFT() throws IOException, UnsupportedAudioFileException {
+        // windows 5 samples apart, with and without zero-padding
+        for(int numPoints = 512; numPoints <= 1024; numPoints *= 2) {
+            FFTStream stream = new QuiFFT(mono600Hz3SecsWav).windowSize(512).numPoints(numPoints)
+                    .windowOverlap(0.99).dBScale(false).fftStream();
+            FFTStream slidingStream = new QuiFFT(mono600Hz3SecsWav).windowSize(512).numPoints(numPoints)
+                    .windowOverlap(0.99).dBScale(false).slidingDFT(true).fftStream();
+
+            // the FFT path rounds windowed samples to integers, the sliding DFT doesn't
+            for(int i = 0; i < 500; i++) {
+                FFTFrame frame = stream.next();
+                FFTFrame slidingFrame = slidingStream.next();
+                assertEquals(frame.frameStartMs, slidingFrame.frameStartMs, 0);
+                for(int j = 0; j < frame.bins.length; j++) {
+                    assertEquals(frame.bins[j].amplitude, slidingFrame.bins[j].amplitude, 0.1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Band_With_Sliding_DFT_As_Whole_Spectrum() throws IOException, UnsupportedAudioFileException {
+        FFTStream stream = new QuiFFT(mono600Hz3SecsWav).windowSize(512).numPoints(1024).windowOverlap(0.99)
+                .dBScale(false).slidingDFT(true).fftStream();
+        FFTStream bandStream = new QuiFFT(mono600Hz3SecsWav).windowSize(512).numPoints(1024).windowOverlap(0.99)
+                .dBScale(false).slidingDFT(true).minFrequency(400).maxFrequency(800).fftStream();
+
+        for(int i = 0; i < 100; i++) {
+            FFTFrame frame = stream.next();
+            FFTFrame bandFrame = bandStream.next();
+            int firstBin = (int) Math.round(bandFrame.bins[0].frequency / stream.frequencyResolution);
+            for(int j = 0; j < bandFrame.bins.length; j++) {
+                assertEquals(frame.bins[firstBin + j].frequency, bandFrame.bins[j].frequency, 0);
+                assertEquals(frame.bins[firstBin + j].amplitude, bandFrame.bins[j].amplitude, 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Detect_Tone_At_Target_Frequencies_FFTStream() throws IOException, UnsupportedAudioFileException {
+        FFTStream stream = new QuiFFT(mono500Hz3SecsWav).targetFrequencies(500, 600).fftStream();
+
+        for(int i = 0; i < 5; i++) {
+            FFTFrame frame = stream.next();
+            assertEquals(2, frame.bins.length);
+            assertTrue(frame.bins[0].amplitude > frame.bins[1].amplitude);
+        }
+    }
+
     @Test
     public void Should_Have_Same_Frame_Start_And_End_Times_As_Full_FFT() throws IOException, UnsupportedAudioFileException {
         FFTStream stream = new QuiFFT(stereo600Hz500MsWAV).fftStream();
@@ -213,6 +263,42 @@ public class FFTStreamTest {
         assertTrue(Math.abs(noOverlapFramesCount - (overlapFramesCount / 4)) <= 1);
     }
 
+    @Test
+    public void Should_Compute_Same_Frames_For_Range_As_Full_FFT() throws IOException, UnsupportedAudioFileException {
+        for(File audio : new File[] { stereo500Hz3SecsMP3, mono600Hz3SecsWav }) {
+            FFTFrame[] fullFFTFrames = new QuiFFT(audio).range(1234.5, 2100).fullFFT().fftFrames;
+            FFTStream fftStream = new QuiFFT(audio).range(1234.5, 2100).fftStream();
+
+            for(FFTFrame fullFFTFrame : fullFFTFrames) {
+                FFTFrame frame = fftStream.next();
+                assertEquals(fullFFTFrame.frameStartMs, frame.frameStartMs, 1e-9);
+                for(int j = 0; j < frame.bins.length; j++) {
+                    assertEquals(fullFFTFrame.bins[j].amplitude, frame.bins[j].amplitude, 0);
+                }
+            }
+            assertFalse(fftStream.hasNext());
+            assertEquals(1234.5, fullFFTFrames[0].frameStartMs, 1000 / 44100.0);
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Frames_With_Read_Ahead_As_Without() throws IOException, UnsupportedAudioFileException {
+        for(File audio : new File[] { stereo500Hz3SecsMP3, mono600Hz3SecsWav }) {
+            FFTStream fftStream = new QuiFFT(audio).windowOverlap(0.75).fftStream();
+            FFTStream readAheadStream = new QuiFFT(audio).windowOverlap(0.75).readAhead(2).fftStream();
+
+            while(fftStream.hasNext()) {
+                assertTrue(readAheadStream.hasNext());
+                FFTFrame frame = fftStream.next();
+                FFTFrame readAheadFrame = readAheadStream.next();
+                for(int j = 0; j < frame.bins.length; j++) {
+                    assertEquals(frame.bins[j].amplitude, readAheadFrame.bins[j].amplitude, 0);
+                }
+            }
+            assertFalse(readAheadStream.hasNext());
+        }
+    }
+
     @Test
     public void Should_Compute_Same_Frame_Start_Times_As_Full_FFT() throws IOException, UnsupportedAudioFileException {
         FFTFrame[] fullFFTFrames = new QuiFFT(mono600Hz3SecsWav).windowOverlap(0.25).fullFFT().fftFrames;
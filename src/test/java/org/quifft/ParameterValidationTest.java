@@ -2,7 +2,10 @@ package org.quifft;
 
 import org.junit.Test;
 import org.quifft.output.BadParametersException;
+import org.quifft.params.FFTEngineType;
 import org.quifft.params.ParameterValidator;
+import org.quifft.params.Precision;
+import org.quifft.params.WindowFunction;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
@@ -17,7 +20,7 @@ public class ParameterValidationTest {
         new QuiFFT(audioFile).windowSize(-1).fullFFT();
     }
 
-    @Test(expected = BadParametersException.class)
+    @Test(expected = Test.None.class)
     public void Num_Points_Not_Set_And_Window_Size_Not_Power_Of_Two() throws IOException, UnsupportedAudioFileException {
         new QuiFFT(audioFile).windowSize(8190).fullFFT();
     }
@@ -52,11 +55,131 @@ public class ParameterValidationTest {
         new QuiFFT(audioFile).windowSize(8192).numPoints(4096).fullFFT();
     }
 
-    @Test(expected = BadParametersException.class)
+    @Test(expected = Test.None.class)
     public void Num_Points_Is_Not_A_Power_Of_Two() throws IOException, UnsupportedAudioFileException {
         new QuiFFT(audioFile).windowSize(512).numPoints(1023).fullFFT();
     }
 
+    @Test(expected = BadParametersException.class)
+    public void Engine_Is_Null() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).engine(null).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Radix_2_Engine_And_Window_Size_Not_Power_Of_Two() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).windowSize(3000).engine(FFTEngineType.RADIX_2).fullFFT();
+    }
+
+    @Test(expected = Test.None.class)
+    public void Radix_2_Engine_And_Num_Points_Power_Of_Two() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).windowSize(3000).numPoints(4096).engine(FFTEngineType.RADIX_2).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Mixed_Radix_Engine_And_Window_Size_With_Other_Prime_Factor() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).windowSize(3001).engine(FFTEngineType.MIXED_RADIX).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Parallel_Four_Step_Engine_And_Window_Size_That_Is_Not_Power_Of_Two() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).windowSize(3000).engine(FFTEngineType.PARALLEL_FOUR_STEP).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Parallel_Threshold_Is_Zero() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).parallelThreshold(0).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Sliding_DFT_With_Triangular_Window() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).windowFunction(WindowFunction.TRIANGULAR).slidingDFT(true).fftStream();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Anchor_Interval_Is_Zero() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).anchorInterval(0).fftStream();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Range_Start_Is_Negative() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).range(-1, 1000).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Range_End_Is_Not_After_Start() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).range(1000, 1000).fftStream();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Read_Ahead_Is_Negative() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).readAhead(-1).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Decoder_Threads_Is_Zero() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).decoderThreads(0).fftStream();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Target_Frequencies_Is_Empty() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).targetFrequencies(new double[0]).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Target_Frequencies_Contains_Negative_Frequency() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).targetFrequencies(500, -600).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Sliding_DFT_With_Target_Frequencies() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).targetFrequencies(500).slidingDFT(true).fftStream();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Zoom_Band_Maximum_Below_Minimum() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).zoom(600, 500, 100).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Zoom_Band_With_No_Bins() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).zoom(500, 600, 0).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Zoom_Band_With_Target_Frequencies() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).zoom(500, 600, 100).targetFrequencies(500).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Minimum_Frequency_Is_Negative() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).minFrequency(-1).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Maximum_Frequency_Is_Infinite() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).maxFrequency(Double.POSITIVE_INFINITY).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Maximum_Frequency_Below_Minimum() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).minFrequency(600).maxFrequency(500).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Frequency_Band_With_Target_Frequencies() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).maxFrequency(5000).targetFrequencies(500).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Precision_Is_Null() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).precision(null).fullFFT();
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void Float_Precision_Is_Combined_With_Forced_Engine() throws IOException, UnsupportedAudioFileException {
+        new QuiFFT(audioFile).precision(Precision.FLOAT).engine(FFTEngineType.RADIX_2).fullFFT();
+    }
+
     @Test(expected = BadParametersException.class)
     public void Using_FFT_Stream_And_Normalized_Output_Without_Decibel_Scale() throws IOException, UnsupportedAudioFileException {
         new QuiFFT(audioFile).normalized(true).dBScale(false).fftStream();
@@ -2,19 +2,29 @@ package org.quifft;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.quifft.audioread.AudioReader;
+import org.quifft.audioread.AudioReaderFactory;
 import org.quifft.fft.FFTComputationWrapper;
+import org.quifft.fft.FFTEngines;
+import org.quifft.fft.FFTFrameScheduler;
+import org.quifft.fft.GoertzelFilterBank;
 import org.quifft.fft.InplaceFFT;
 import org.quifft.output.FFTFrame;
 import org.quifft.output.FFTResult;
 import org.quifft.output.FrequencyBin;
+import org.quifft.params.FFTEngineType;
 import org.quifft.params.FFTParameters;
+import org.quifft.params.Precision;
 import org.quifft.params.WindowFunction;
+import org.quifft.sampling.SampleWindowExtractor;
 
 import static org.junit.Assert.*;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 
 public class QuiFFTTest {
 
@@ -51,6 +61,29 @@ public class QuiFFTTest {
         new QuiFFT(noExtensionFile);
     }
 
+    @Test
+    public void Should_Compute_Same_FFT_For_Audio_In_Memory_As_For_File() throws IOException, UnsupportedAudioFileException {
+        for(File audio : new File[] { mono600Hz3SecsWav, stereo500Hz3SecsMP3 }) {
+            FFTResult result = new QuiFFT(audio).fullFFT();
+            FFTResult memoryResult = new QuiFFT(Files.readAllBytes(audio.toPath())).fullFFT();
+
+            assertNull(memoryResult.fileName);
+            assertEquals(result.fftFrames.length, memoryResult.fftFrames.length);
+            for(int i = 0; i < result.fftFrames.length; i++) {
+                for(int j = 0; j < result.fftFrames[i].bins.length; j++) {
+                    assertEquals(result.fftFrames[i].bins[j].amplitude, memoryResult.fftFrames[i].bins[j].amplitude, 0);
+                }
+            }
+        }
+    }
+
+    @Test(expected = UnsupportedAudioFileException.class)
+    public void Should_Throw_Exception_When_Passed_Non_Audio_Stream() throws IOException, UnsupportedAudioFileException {
+        try(InputStream in = Files.newInputStream(TestUtils.getAudioFile("text.txt").toPath())) {
+            new QuiFFT(in);
+        }
+    }
+
     @Test
     public void Should_Set_And_Return_FFT_Parameters_Correctly() throws IOException, UnsupportedAudioFileException {
         QuiFFT quiFFT = new QuiFFT(mono600Hz3SecsWav).windowSize(512).windowFunction(WindowFunction.HANNING)
@@ -117,6 +150,185 @@ public class QuiFFTTest {
         assertEquals(10.7, withPaddingResult.frequencyResolution, 0.1);
     }
 
+    @Test
+    public void Should_Only_Keep_Bins_Between_Minimum_And_Maximum_Frequencies() throws IOException, UnsupportedAudioFileException {
+        // engines that prune outputs and engines that don't, with and without batches and zero-padding
+        FFTEngineType[] engines = {FFTEngineType.AUTO, FFTEngineType.RADIX_2, FFTEngineType.MIXED_RADIX};
+        for(FFTEngineType engine : engines) {
+            for(int numPoints = 1024; numPoints <= 4096; numPoints *= 4) {
+                FFTResult result = new QuiFFT(mono600Hz3SecsWav).windowSize(1024).numPoints(numPoints).dBScale(false)
+                        .engine(engine).fullFFT();
+                FFTResult bandResult = new QuiFFT(mono600Hz3SecsWav).windowSize(1024).numPoints(numPoints)
+                        .dBScale(false).engine(engine).minFrequency(20).maxFrequency(5000).fullFFT();
+
+                assertEquals(result.fftFrames.length, bandResult.fftFrames.length);
+                for(int i = 0; i < result.fftFrames.length; i++) {
+                    FrequencyBin[] bins = bandResult.fftFrames[i].bins;
+                    assertTrue(bins[0].frequency >= 20 && bins[0].frequency - result.frequencyResolution < 20);
+                    assertTrue(bins[bins.length - 1].frequency <= 5000
+                            && bins[bins.length - 1].frequency + result.frequencyResolution > 5000);
+
+                    int firstBin = (int) Math.round(bins[0].frequency / result.frequencyResolution);
+                    for(int j = 0; j < bins.length; j++) {
+                        assertEquals(result.fftFrames[i].bins[firstBin + j].frequency, bins[j].frequency, 0);
+                        assertEquals(result.fftFrames[i].bins[firstBin + j].amplitude, bins[j].amplitude, 1e-9);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Peak_At_600Hz_Within_Frequency_Band() throws IOException, UnsupportedAudioFileException {
+        FFTResult result = new QuiFFT(mono600Hz3SecsWav).minFrequency(550).maxFrequency(650).fullFFT();
+
+        FrequencyBin[] bins = result.fftFrames[1].bins;
+        FrequencyBin peak = bins[0];
+        for(FrequencyBin bin : bins) {
+            if(bin.amplitude > peak.amplitude) peak = bin;
+        }
+        assertEquals(600, peak.frequency, result.frequencyResolution);
+    }
+
+    @Test
+    public void Should_Compute_Same_FFT_Output_With_And_Without_Pruning_Zero_Padding() throws IOException, UnsupportedAudioFileException {
+        // the mixed radix engine computes zero-padded windows in full
+        FFTResult prunedResult = new QuiFFT(mono600Hz3SecsWav).windowSize(500).numPoints(4096).dBScale(false)
+                .fullFFT();
+        FFTResult fullResult = new QuiFFT(mono600Hz3SecsWav).windowSize(500).numPoints(4096).dBScale(false)
+                .engine(FFTEngineType.MIXED_RADIX).fullFFT();
+
+        assertEquals(fullResult.fftFrames.length, prunedResult.fftFrames.length);
+        for(int i = 0; i < fullResult.fftFrames.length; i++) {
+            for(int j = 0; j < fullResult.fftFrames[i].bins.length; j++) {
+                assertEquals(fullResult.fftFrames[i].bins[j].amplitude, prunedResult.fftFrames[i].bins[j].amplitude,
+                        1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Frames_For_Range_As_For_Whole_File() throws IOException, UnsupportedAudioFileException {
+        File[] files = { mono600Hz3SecsWav, stereo600Hz3SecsWav, stereo500Hz3SecsMP3 };
+        for(File audio : files) {
+            FFTResult result = new QuiFFT(audio).windowSize(1024).windowOverlap(0.5).dBScale(false).fullFFT();
+
+            // range starts at the window of frame 100 and lasts 40 windows
+            int firstFrame = 100;
+            double startMs = firstFrame * 512 * 1000.0 / 44100;
+            double endMs = startMs + 40 * 512 * 1000.0 / 44100;
+            FFTResult rangeResult = new QuiFFT(audio).windowSize(1024).windowOverlap(0.5).dBScale(false)
+                    .range(startMs, endMs).fullFFT();
+
+            String message = audio.getName();
+            assertEquals(message, startMs, rangeResult.rangeStartMs, 1e-3);
+            assertEquals(message, 40, rangeResult.fftFrames.length);
+            // the last window of the range is zero-padded past its end
+            for(int i = 0; i < rangeResult.fftFrames.length - 1; i++) {
+                FFTFrame frame = result.fftFrames[firstFrame + i];
+                FFTFrame rangeFrame = rangeResult.fftFrames[i];
+                assertEquals(message, frame.frameStartMs, rangeFrame.frameStartMs, 1e-3);
+                assertEquals(message, frame.frameEndMs, rangeFrame.frameEndMs, 1e-3);
+                for(int j = 0; j < frame.bins.length; j++) {
+                    assertEquals(message, frame.bins[j].amplitude, rangeFrame.bins[j].amplitude, 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_End_Range_At_End_Of_File() throws IOException, UnsupportedAudioFileException {
+        FFTResult result = new QuiFFT(mono600Hz3SecsWav).windowSize(1000).windowOverlap(0).fullFFT();
+        FFTResult rangeResult = new QuiFFT(mono600Hz3SecsWav).windowSize(1000).windowOverlap(0)
+                .range(1000000 / 44100.0, 60000).fullFFT();
+
+        assertEquals(result.fftFrames.length - 1, rangeResult.fftFrames.length);
+        FFTFrame lastFrame = result.fftFrames[result.fftFrames.length - 1];
+        FFTFrame lastRangeFrame = rangeResult.fftFrames[rangeResult.fftFrames.length - 1];
+        assertEquals(lastFrame.frameStartMs, lastRangeFrame.frameStartMs, 1e-3);
+        assertEquals(lastFrame.frameEndMs, lastRangeFrame.frameEndMs, 1e-3);
+    }
+
+    @Test
+    public void Should_Compute_Same_Frames_With_Several_Decoder_Threads_As_With_One()
+            throws IOException, UnsupportedAudioFileException {
+        for(File audio : new File[] { mono600Hz3SecsMP3, stereo500Hz3SecsMP3, stereo600Hz3SecsWav }) {
+            FFTResult result = new QuiFFT(audio).windowSize(1000).dBScale(false).range(500, 2500).fullFFT();
+            FFTResult parallelResult = new QuiFFT(audio).windowSize(1000).dBScale(false).range(500, 2500)
+                    .decoderThreads(4).readAhead(2).fullFFT();
+
+            assertEquals(result.fftFrames.length, parallelResult.fftFrames.length);
+            for(int i = 0; i < result.fftFrames.length; i++) {
+                assertEquals(result.fftFrames[i].frameStartMs, parallelResult.fftFrames[i].frameStartMs, 0);
+                for(int j = 0; j < result.fftFrames[i].bins.length; j++) {
+                    assertEquals(result.fftFrames[i].bins[j].amplitude,
+                            parallelResult.fftFrames[i].bins[j].amplitude, 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Frames_With_Read_Ahead_As_Without() throws IOException, UnsupportedAudioFileException {
+        // a depth of 1 makes the decoding thread wait for every block to be taken
+        File[] files = { mono600Hz3SecsMP3, stereo500Hz3SecsMP3, stereo600Hz3SecsWav, stereo600Hz500MsWAV };
+        for(File audio : files) {
+            for(int depth : new int[] { 1, 4 }) {
+                FFTResult result = new QuiFFT(audio).windowSize(1000).dBScale(false).fullFFT();
+                FFTResult readAheadResult = new QuiFFT(audio).windowSize(1000).dBScale(false).readAhead(depth)
+                        .fullFFT();
+
+                assertEquals(result.fileDurationMs, readAheadResult.fileDurationMs);
+                assertEquals(result.fftFrames.length, readAheadResult.fftFrames.length);
+                for(int i = 0; i < result.fftFrames.length; i++) {
+                    for(int j = 0; j < result.fftFrames[i].bins.length; j++) {
+                        assertEquals(result.fftFrames[i].bins[j].amplitude,
+                                readAheadResult.fftFrames[i].bins[j].amplitude, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Frames_In_Chunks_As_From_Whole_Waveform() throws IOException, UnsupportedAudioFileException {
+        // window sizes and overlaps include windows whose spacing rounds down, and windows that don't advance at all
+        Object[][] cases = {
+                { stereo600Hz3SecsWav, 4096, 0.0 }, { mono600Hz3SecsWav, 1000, 0.3 },
+                { stereo600Hz500MsWAV, 512, 0.75 }, { stereo600Hz500MsWAV, 3, 0.5 }, { stereo600Hz500MsWAV, 1, 0.5 }
+        };
+        for(Object[] c : cases) {
+            File audio = (File) c[0];
+            int windowSize = (Integer) c[1];
+            double windowOverlap = (Double) c[2];
+            String message = audio.getName() + " " + windowSize + " " + windowOverlap;
+
+            FFTResult chunkedResult = new QuiFFT(audio).windowSize(windowSize).windowOverlap(windowOverlap)
+                    .windowFunction(WindowFunction.HANNING).dBScale(false).fullFFT();
+
+            // frames computed from the whole waveform at once
+            AudioReader reader = AudioReaderFactory.audioReaderFor(audio);
+            FFTParameters params = chunkedResult.fftParameters;
+            boolean isStereo = reader.getAudioFormat().getChannels() == 2;
+            int[] wave = reader.getWaveform();
+            int numFrames = (int) Math.ceil(((double) wave.length / (isStereo ? 2 : 1) / windowSize)
+                    * (1 / (1 - windowOverlap)));
+            FFTFrame[] frames = new FFTFrame[numFrames];
+            SampleWindowExtractor windowExtractor = new SampleWindowExtractor(wave, isStereo, windowSize,
+                    params.windowFunction, windowOverlap, params.zeroPadLength());
+            FFTFrameScheduler.computeFrames(windowExtractor, frames, chunkedResult.windowDurationMs,
+                    chunkedResult.fileDurationMs, reader.getAudioFormat().getSampleRate(), params);
+
+            assertEquals(message, frames.length, chunkedResult.fftFrames.length);
+            for(int i = 0; i < frames.length; i++) {
+                assertEquals(message, frames[i].frameStartMs, chunkedResult.fftFrames[i].frameStartMs, 0);
+                for(int j = 0; j < frames[i].bins.length; j++) {
+                    assertEquals(message, frames[i].bins[j].amplitude, chunkedResult.fftFrames[i].bins[j].amplitude, 0);
+                }
+            }
+        }
+    }
+
     @Test
     public void Should_Not_Allow_Last_Frames_End_Times_To_Be_Greater_Than_Audio_Length() throws IOException, UnsupportedAudioFileException {
         // no overlap (only check last frame)
@@ -179,6 +391,94 @@ public class QuiFFTTest {
         assertEquals(500, TestUtils.findMaxFrequencyBin(result.fftFrames[0]), result.frequencyResolution);
     }
 
+    @Test
+    public void Should_Compute_Peak_At_500Hz_With_Window_Size_That_Is_Not_A_Power_Of_Two() throws IOException, UnsupportedAudioFileException {
+        FFTResult mixedRadixResult = new QuiFFT(mono500Hz3SecsWav).windowSize(3000).fullFFT();
+        FFTResult bluesteinResult = new QuiFFT(mono500Hz3SecsWav).windowSize(3001).fullFFT();
+
+        assertEquals(1500, mixedRadixResult.fftFrames[0].bins.length);
+        assertEquals(500, TestUtils.findMaxFrequencyBin(mixedRadixResult.fftFrames[0]), mixedRadixResult.frequencyResolution);
+        assertEquals(500, TestUtils.findMaxFrequencyBin(bluesteinResult.fftFrames[0]), bluesteinResult.frequencyResolution);
+    }
+
+    @Test
+    public void Should_Compute_Same_FFT_Output_With_Every_Engine() throws IOException, UnsupportedAudioFileException {
+        FFTResult autoResult = new QuiFFT(mono500Hz3SecsWav).windowSize(4096).fullFFT();
+        for(FFTEngineType engine : FFTEngineType.values()) {
+            if(engine == FFTEngineType.VECTOR && !FFTEngines.isVectorAvailable()) continue;
+
+            QuiFFT quiFFT = new QuiFFT(mono500Hz3SecsWav).windowSize(4096).engine(engine);
+            FFTResult engineResult = quiFFT.fullFFT();
+
+            assertEquals(engine, quiFFT.engine());
+            assertEquals(engine, engineResult.fftParameters.engine);
+            assertEquals(autoResult.fftFrames.length, engineResult.fftFrames.length);
+            for(int i = 0; i < autoResult.fftFrames.length; i++) {
+                for(int j = 0; j < autoResult.fftFrames[i].bins.length; j++) {
+                    assertEquals(autoResult.fftFrames[i].bins[j].amplitude,
+                            engineResult.fftFrames[i].bins[j].amplitude, 0.001);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_FFT_Output_In_Single_Precision() throws IOException, UnsupportedAudioFileException {
+        // compare linear amplitudes: rounding error is relative to the loudest bin, not to each bin
+        FFTResult doubleResult = new QuiFFT(mono500Hz3SecsWav).dBScale(false).fullFFT();
+        QuiFFT quiFFT = new QuiFFT(mono500Hz3SecsWav).dBScale(false).precision(Precision.FLOAT);
+        FFTResult floatResult = quiFFT.fullFFT();
+
+        assertEquals(Precision.FLOAT, quiFFT.precision());
+        assertEquals(Precision.FLOAT, floatResult.fftParameters.precision);
+        assertEquals(doubleResult.fftFrames.length, floatResult.fftFrames.length);
+        for(int i = 0; i < doubleResult.fftFrames.length; i++) {
+            for(int j = 0; j < doubleResult.fftFrames[i].bins.length; j++) {
+                assertEquals(doubleResult.fftFrames[i].bins[j].amplitude,
+                        floatResult.fftFrames[i].bins[j].amplitude, 0.05);
+            }
+        }
+        assertEquals(500, TestUtils.findMaxFrequencyBin(floatResult.fftFrames[0]), floatResult.frequencyResolution);
+    }
+
+    @Test
+    public void Should_Compute_Same_FFT_Output_In_Parallel() throws IOException, UnsupportedAudioFileException {
+        FFTResult sequentialResult = new QuiFFT(stereo500Hz3SecsWav).windowSize(1024).fullFFT();
+        QuiFFT quiFFT = new QuiFFT(stereo500Hz3SecsWav).windowSize(1024).parallel(true);
+        FFTResult parallelResult = quiFFT.fullFFT();
+
+        assertTrue(quiFFT.parallel());
+        assertTrue(parallelResult.fftParameters.isParallel);
+        assertEquals(sequentialResult.fftFrames.length, parallelResult.fftFrames.length);
+        for(int i = 0; i < sequentialResult.fftFrames.length; i++) {
+            assertEquals(sequentialResult.fftFrames[i].frameStartMs, parallelResult.fftFrames[i].frameStartMs, 0);
+            for(int j = 0; j < sequentialResult.fftFrames[i].bins.length; j++) {
+                assertEquals(sequentialResult.fftFrames[i].bins[j].amplitude,
+                        parallelResult.fftFrames[i].bins[j].amplitude, 0);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_FFT_Output_With_And_Without_Batches() throws IOException, UnsupportedAudioFileException {
+        // an explicitly chosen engine disables batching
+        FFTResult batchedResult = new QuiFFT(mono500Hz3SecsWav).windowSize(512).dBScale(false).fullFFT();
+        FFTResult unbatchedResult = new QuiFFT(mono500Hz3SecsWav).windowSize(512).dBScale(false)
+                .engine(FFTEngineType.RADIX_2).fullFFT();
+
+        assertEquals(unbatchedResult.fftFrames.length, batchedResult.fftFrames.length);
+        for(int i = 0; i < unbatchedResult.fftFrames.length; i++) {
+            assertEquals(unbatchedResult.fftFrames[i].frameStartMs, batchedResult.fftFrames[i].frameStartMs, 0);
+            assertEquals(unbatchedResult.fftFrames[i].frameEndMs, batchedResult.fftFrames[i].frameEndMs, 0);
+            for(int j = 0; j < unbatchedResult.fftFrames[i].bins.length; j++) {
+                assertEquals(unbatchedResult.fftFrames[i].bins[j].frequency,
+                        batchedResult.fftFrames[i].bins[j].frequency, 0);
+                assertEquals(unbatchedResult.fftFrames[i].bins[j].amplitude,
+                        batchedResult.fftFrames[i].bins[j].amplitude, 1e-9);
+            }
+        }
+    }
+
     @Test
     public void Should_Compute_Approx_Double_As_Many_Frames_With_50_Percent_Overlap() throws IOException, UnsupportedAudioFileException {
         FFTResult noOverlap = new QuiFFT(mono600Hz3SecsWav).windowOverlap(0).fullFFT();
@@ -206,10 +506,59 @@ public class QuiFFTTest {
         assertEquals(overlapTime, noOverlapTime / 2, 0.001);
     }
 
+    @Test
+    public void Should_Compute_Same_Amplitudes_At_Target_Frequencies_As_Full_FFT() throws IOException, UnsupportedAudioFileException {
+        // 4410 samples at 44.1 kHz gives a frequency resolution of exactly 10 Hz, so 500 Hz and 600 Hz are bins 50 and 60
+        FFTResult fullResult = new QuiFFT(mono500Hz3SecsWav).windowSize(4410).dBScale(false).fullFFT();
+        QuiFFT quiFFT = new QuiFFT(mono500Hz3SecsWav).windowSize(4410).dBScale(false).targetFrequencies(500, 600);
+        FFTResult targetResult = quiFFT.fullFFT();
+
+        assertArrayEquals(new double[]{500, 600}, quiFFT.targetFrequencies(), 0);
+        assertEquals(fullResult.fftFrames.length, targetResult.fftFrames.length);
+        for(int i = 0; i < targetResult.fftFrames.length; i++) {
+            FrequencyBin[] bins = targetResult.fftFrames[i].bins;
+            assertEquals(2, bins.length);
+            assertEquals(500, bins[0].frequency, 0);
+            assertEquals(600, bins[1].frequency, 0);
+            assertEquals(fullResult.fftFrames[i].bins[50].amplitude, bins[0].amplitude, 0.001);
+            assertEquals(fullResult.fftFrames[i].bins[60].amplitude, bins[1].amplitude, 0.001);
+        }
+    }
+
+    @Test
+    public void Should_Compute_Same_Amplitudes_In_Zoom_Band_As_Full_FFT() throws IOException, UnsupportedAudioFileException {
+        // bins 10 Hz apart from 400 to 600 Hz line up with bins 40 to 60 of a 4410 point FFT at 44.1 kHz
+        FFTResult fullResult = new QuiFFT(mono500Hz3SecsWav).windowSize(4410).dBScale(false).fullFFT();
+        QuiFFT quiFFT = new QuiFFT(mono500Hz3SecsWav).windowSize(4410).dBScale(false).zoom(400, 600, 21);
+        FFTResult zoomResult = quiFFT.fullFFT();
+
+        assertEquals(400, quiFFT.minFrequency(), 0);
+        assertEquals(600, quiFFT.maxFrequency(), 0);
+        assertEquals(21, (int) quiFFT.zoomBins());
+        assertEquals(fullResult.fftFrames.length, zoomResult.fftFrames.length);
+        for(int i = 0; i < zoomResult.fftFrames.length; i++) {
+            FrequencyBin[] bins = zoomResult.fftFrames[i].bins;
+            assertEquals(21, bins.length);
+            for(int j = 0; j < bins.length; j++) {
+                assertEquals(400 + 10 * j, bins[j].frequency, 1e-9);
+                assertEquals(fullResult.fftFrames[i].bins[40 + j].amplitude, bins[j].amplitude, 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void Should_Compute_Peak_At_500Hz_In_Fine_Zoom_Band() throws IOException, UnsupportedAudioFileException {
+        FFTResult zoomResult = new QuiFFT(mono500Hz3SecsWav).zoom(490, 510, 201).fullFFT();
+
+        // 0.1 Hz bins, far finer than the 10.8 Hz frequency resolution of a 4096 sample window
+        assertEquals(500, TestUtils.findMaxFrequencyBin(zoomResult.fftFrames[3]), 0.5);
+    }
+
     @Test
     public void Instantiate_FFT_Classes_To_Make_Cobertura_Happy() {
         new InplaceFFT();
         new FFTComputationWrapper();
+        new GoertzelFilterBank();
     }
 
 }
\ No newline at end of file